@@ -53,5 +53,7 @@ dependencies {
     implementation("com.airbnb.android:lottie:5.0.3")
     implementation("com.github.bumptech.glide:glide:4.13.1") 
 
+    testImplementation("junit:junit:4.13.2")
+
 }
 
@@ -54,4 +54,7 @@ public class ChatUIConfig {
 
   //是否使用权限说明弹窗
   public Boolean showPermissionPop;
+
+  //消息列表最多保留的消息条数，加载新分页时丢弃远离可视区域一端的消息，为空或小于等于0不限制
+  public Integer messageWindowSize;
 }
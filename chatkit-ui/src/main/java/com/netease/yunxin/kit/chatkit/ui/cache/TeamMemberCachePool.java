@@ -0,0 +1,221 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.cache;
+
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.v2.V2NIMError;
+import com.netease.nimlib.sdk.v2.auth.V2NIMLoginDetailListener;
+import com.netease.nimlib.sdk.v2.auth.enums.V2NIMConnectStatus;
+import com.netease.nimlib.sdk.v2.auth.enums.V2NIMDataSyncState;
+import com.netease.nimlib.sdk.v2.auth.enums.V2NIMDataSyncType;
+import com.netease.nimlib.sdk.v2.team.model.V2NIMTeam;
+import com.netease.nimlib.sdk.v2.team.model.V2NIMTeamMember;
+import com.netease.nimlib.sdk.v2.user.V2NIMUser;
+import com.netease.yunxin.kit.chatkit.impl.TeamListenerImpl;
+import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
+import com.netease.yunxin.kit.corekit.im2.IMKitClient;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最近使用群的成员缓存，按群 LRU 淘汰
+ *
+ * <p>切换群时当前群的成员和用户信息放入缓存池，再次进入时直接恢复，不必重新拉取全部成员。成员数超过预算的群不缓存。
+ *
+ * <p>缓存池非空时自行监听群成员变化，缓存期间群成员有变化、成员数据重新同步或缓存超过 {@link #MAX_STALE_AGE_MS} 时，恢复后需要重新拉取全部成员。
+ */
+class TeamMemberCachePool {
+
+  // 最多缓存的群数量
+  private static final int MAX_CACHED_TEAMS = 5;
+
+  // 单个群缓存的最大成员数
+  private static final int MAX_MEMBERS_PER_TEAM = 3000;
+
+  // 缓存超过该时间后视为不完整，恢复时只用于首屏展示
+  private static final long MAX_STALE_AGE_MS = 10 * 60 * 1000;
+
+  private boolean listening;
+
+  private final Map<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(MAX_CACHED_TEAMS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+          return size() > MAX_CACHED_TEAMS;
+        }
+      };
+
+  /**
+   * 放入缓存，成员数超过预算时不缓存
+   *
+   * @return 是否缓存成功
+   */
+  synchronized boolean put(
+      String account,
+      String teamId,
+      Map<String, V2NIMTeamMember> members,
+      Map<String, V2NIMUser> users,
+      boolean allLoaded) {
+    String key = key(account, teamId);
+    if (members.isEmpty() || members.size() > MAX_MEMBERS_PER_TEAM) {
+      entries.remove(key);
+      updateListening();
+      return false;
+    }
+    entries.put(
+        key,
+        new Entry(
+            teamId,
+            new HashMap<>(members),
+            new HashMap<>(users),
+            allLoaded,
+            SystemClock.elapsedRealtime()));
+    updateListening();
+    return true;
+  }
+
+  /** 取出缓存，取出后从缓存池移除，由调用方持有 */
+  @Nullable
+  synchronized Entry take(String account, String teamId) {
+    Entry entry = entries.remove(key(account, teamId));
+    updateListening();
+    if (entry != null && SystemClock.elapsedRealtime() - entry.parkTime > MAX_STALE_AGE_MS) {
+      entry.allLoaded = false;
+    }
+    return entry;
+  }
+
+  // 缓存期间群成员变化，缓存的成员列表不再完整
+  private synchronized void markStale(String teamId) {
+    for (Entry entry : entries.values()) {
+      if (entry.teamId.equals(teamId)) {
+        entry.allLoaded = false;
+      }
+    }
+  }
+
+  private synchronized void markAllStale() {
+    for (Entry entry : entries.values()) {
+      entry.allLoaded = false;
+    }
+  }
+
+  // 已离开的群不再缓存
+  private synchronized void removeTeam(String teamId) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().teamId.equals(teamId)) {
+        iterator.remove();
+      }
+    }
+    updateListening();
+  }
+
+  // 缓存池非空时监听群成员变化和数据同步
+  private void updateListening() {
+    boolean needListen = !entries.isEmpty();
+    if (needListen == listening) {
+      return;
+    }
+    listening = needListen;
+    if (needListen) {
+      TeamRepo.addTeamListener(teamListener);
+      IMKitClient.addLoginDetailListener(loginDetailListener);
+    } else {
+      TeamRepo.removeTeamListener(teamListener);
+      IMKitClient.removeLoginDetailListener(loginDetailListener);
+    }
+  }
+
+  private void onMembersChanged(List<V2NIMTeamMember> teamMembers) {
+    if (teamMembers != null && !teamMembers.isEmpty()) {
+      markStale(teamMembers.get(0).getTeamId());
+    }
+  }
+
+  private final TeamListenerImpl teamListener =
+      new TeamListenerImpl() {
+        @Override
+        public void onTeamMemberJoined(List<V2NIMTeamMember> teamMembers) {
+          onMembersChanged(teamMembers);
+        }
+
+        @Override
+        public void onTeamMemberKicked(
+            String operatorAccountId, List<V2NIMTeamMember> teamMembers) {
+          onMembersChanged(teamMembers);
+        }
+
+        @Override
+        public void onTeamMemberLeft(List<V2NIMTeamMember> teamMembers) {
+          onMembersChanged(teamMembers);
+        }
+
+        @Override
+        public void onTeamMemberInfoUpdated(List<V2NIMTeamMember> teamMembers) {
+          onMembersChanged(teamMembers);
+        }
+
+        @Override
+        public void onTeamLeft(@Nullable V2NIMTeam team, boolean isKicked) {
+          if (team != null) {
+            removeTeam(team.getTeamId());
+          }
+        }
+      };
+
+  // 断线期间的成员变化通过重新同步获取，无法区分具体的群
+  private final V2NIMLoginDetailListener loginDetailListener =
+      new V2NIMLoginDetailListener() {
+        @Override
+        public void onConnectStatus(V2NIMConnectStatus status) {}
+
+        @Override
+        public void onDisconnected(V2NIMError error) {}
+
+        @Override
+        public void onConnectFailed(V2NIMError error) {}
+
+        @Override
+        public void onDataSync(
+            V2NIMDataSyncType type, V2NIMDataSyncState state, V2NIMError error) {
+          if (type == V2NIMDataSyncType.V2NIM_DATA_SYNC_TEAM_MEMBER
+              && state == V2NIMDataSyncState.V2NIM_DATA_SYNC_STATE_COMPLETED) {
+            markAllStale();
+          }
+        }
+      };
+
+  // 不同登录账号的缓存互不可见
+  private static String key(String account, String teamId) {
+    return account + "/" + teamId;
+  }
+
+  static final class Entry {
+    final String teamId;
+    final Map<String, V2NIMTeamMember> members;
+    final Map<String, V2NIMUser> users;
+    boolean allLoaded;
+    // 放入缓存池的时间
+    final long parkTime;
+
+    Entry(
+        String teamId,
+        Map<String, V2NIMTeamMember> members,
+        Map<String, V2NIMUser> users,
+        boolean allLoaded,
+        long parkTime) {
+      this.teamId = teamId;
+      this.members = members;
+      this.users = users;
+      this.allLoaded = allLoaded;
+      this.parkTime = parkTime;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.cache;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.corekit.im2.IMKitClient;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * 群成员展示信息的磁盘快照，每个群一个文件，保存在应用缓存目录
+ *
+ * <p>只保存昵称、头像等展示字段，用于重新进入群时在成员信息拉取完成前先展示。读写均在后台线程执行。
+ */
+class TeamMemberDiskCache {
+
+  private static final String TAG = "TeamMemberDiskCache";
+
+  private static final String DIR_NAME = "team_member_snapshot";
+
+  // 最多保存的群文件数量
+  private static final int MAX_FILES = 20;
+
+  // 单个群最多保存的成员数
+  private static final int MAX_MEMBERS = 3000;
+
+  private final Executor ioExecutor = Executors.newSingleThreadExecutor();
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  interface LoadCallback {
+    /** 主线程回调，无快照时不回调 */
+    void onLoaded(@NonNull Map<String, MemberDisplayInfo> infoMap);
+  }
+
+  /** 异步保存群成员展示信息 */
+  void save(String teamId, Collection<MemberDisplayInfo> infoList) {
+    File file = getFile(teamId);
+    if (file == null || infoList.isEmpty()) {
+      return;
+    }
+    JSONArray array = new JSONArray();
+    for (MemberDisplayInfo info : infoList) {
+      if (array.length() >= MAX_MEMBERS) {
+        break;
+      }
+      array.put(info.toJson());
+    }
+    byte[] data = array.toString().getBytes(StandardCharsets.UTF_8);
+    ioExecutor.execute(
+        () -> {
+          File dir = file.getParentFile();
+          if (dir == null || (!dir.exists() && !dir.mkdirs())) {
+            return;
+          }
+          File temp = new File(dir, file.getName() + ".tmp");
+          try (OutputStream outputStream = new FileOutputStream(temp)) {
+            outputStream.write(data);
+          } catch (IOException e) {
+            ALog.e(LIB_TAG, TAG, "save error:" + e);
+            return;
+          }
+          if (!temp.renameTo(file)) {
+            ALog.e(LIB_TAG, TAG, "save rename failed:" + teamId);
+          }
+          trimFiles(dir);
+        });
+  }
+
+  /** 异步读取群成员展示信息 */
+  void load(String teamId, LoadCallback callback) {
+    File file = getFile(teamId);
+    if (file == null) {
+      return;
+    }
+    ioExecutor.execute(
+        () -> {
+          if (!file.exists()) {
+            return;
+          }
+          Map<String, MemberDisplayInfo> infoMap = new HashMap<>();
+          try (InputStream inputStream = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < data.length
+                && (read = inputStream.read(data, offset, data.length - offset)) > 0) {
+              offset += read;
+            }
+            JSONArray array = new JSONArray(new String(data, 0, offset, StandardCharsets.UTF_8));
+            for (int index = 0; index < array.length(); index++) {
+              MemberDisplayInfo info = MemberDisplayInfo.fromJson(array.optJSONArray(index));
+              if (info != null) {
+                infoMap.put(info.accountId, info);
+              }
+            }
+          } catch (IOException | JSONException e) {
+            ALog.e(LIB_TAG, TAG, "load error:" + e);
+            return;
+          }
+          // 更新修改时间，按最近使用淘汰
+          file.setLastModified(System.currentTimeMillis());
+          if (!infoMap.isEmpty()) {
+            mainHandler.post(() -> callback.onLoaded(infoMap));
+          }
+        });
+  }
+
+  @Nullable
+  private File getFile(String teamId) {
+    Context context = IMKitClient.getApplicationContext();
+    String account = IMKitClient.account();
+    if (context == null || TextUtils.isEmpty(account) || TextUtils.isEmpty(teamId)) {
+      return null;
+    }
+    File dir =
+        new File(new File(context.getCacheDir(), DIR_NAME), String.valueOf(account.hashCode()));
+    return new File(dir, teamId);
+  }
+
+  private static void trimFiles(File dir) {
+    File[] files = dir.listFiles();
+    if (files == null || files.length <= MAX_FILES) {
+      return;
+    }
+    Arrays.sort(files, (o1, o2) -> Long.compare(o2.lastModified(), o1.lastModified()));
+    for (int index = MAX_FILES; index < files.length; index++) {
+      if (!files[index].delete()) {
+        ALog.e(LIB_TAG, TAG, "delete failed:" + files[index].getName());
+      }
+    }
+  }
+
+  /** 成员展示信息 */
+  static final class MemberDisplayInfo {
+    final String accountId;
+    @Nullable final String teamNick;
+    @Nullable final String name;
+    @Nullable final String avatar;
+
+    MemberDisplayInfo(
+        String accountId, @Nullable String teamNick, @Nullable String name, @Nullable String avatar) {
+      this.accountId = accountId;
+      this.teamNick = teamNick;
+      this.name = name;
+      this.avatar = avatar;
+    }
+
+    JSONArray toJson() {
+      return new JSONArray(
+          Arrays.asList(
+              accountId,
+              teamNick == null ? "" : teamNick,
+              name == null ? "" : name,
+              avatar == null ? "" : avatar));
+    }
+
+    @Nullable
+    static MemberDisplayInfo fromJson(@Nullable JSONArray array) {
+      if (array == null || array.length() < 4 || TextUtils.isEmpty(array.optString(0))) {
+        return null;
+      }
+      return new MemberDisplayInfo(
+          array.optString(0),
+          emptyToNull(array.optString(1)),
+          emptyToNull(array.optString(2)),
+          emptyToNull(array.optString(3)));
+    }
+
+    @Nullable
+    private static String emptyToNull(String value) {
+      return TextUtils.isEmpty(value) ? null : value;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.cache;
+
+import androidx.annotation.NonNull;
+import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
+import java.util.List;
+
+/** 群成员分页加载监听，主线程回调 */
+public interface TeamMemberPageListener {
+
+  /**
+   * 一页群成员加载完成，第一次回调为已加载的全部成员
+   *
+   * @param page 本页群成员，按群身份排序
+   * @param loadedCount 已加载的群成员数量
+   * @param finished 是否已全部加载，为true后不再回调
+   */
+  void onPage(@NonNull List<TeamMemberWithUserInfo> page, int loadedCount, boolean finished);
+
+  /**
+   * 加载失败，之后不再回调
+   *
+   * @param errorCode 错误码
+   * @param errorMsg 错误信息
+   */
+  void onError(int errorCode, String errorMsg);
+}
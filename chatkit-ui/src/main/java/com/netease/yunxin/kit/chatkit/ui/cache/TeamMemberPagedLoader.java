@@ -0,0 +1,166 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.cache;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+
+import androidx.annotation.NonNull;
+import com.netease.nimlib.sdk.NIMClient;
+import com.netease.nimlib.sdk.v2.team.V2NIMTeamService;
+import com.netease.nimlib.sdk.v2.team.enums.V2NIMTeamMemberRoleQueryType;
+import com.netease.nimlib.sdk.v2.team.enums.V2NIMTeamType;
+import com.netease.nimlib.sdk.v2.team.model.V2NIMTeamMember;
+import com.netease.nimlib.sdk.v2.team.option.V2NIMTeamMemberQueryOption;
+import com.netease.nimlib.sdk.v2.team.result.V2NIMTeamMemberListResult;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
+import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
+import com.netease.yunxin.kit.corekit.im2.extend.FetchCallback;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 群成员分页加载，按 nextToken 逐页拉取群成员及用户信息，每页加载完成后回调，直到全部加载或取消
+ *
+ * <p>大群全部成员一次拉取耗时较长，分页加载可以在第一页返回后先展示，其余页在之后继续加载。
+ */
+public class TeamMemberPagedLoader {
+
+  private static final String TAG = "TeamMemberPagedLoader";
+
+  // 默认每页数量
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  private final String teamId;
+  private final V2NIMTeamType teamType;
+  private final int pageSize;
+
+  private PageCallback callback;
+  private int loadedCount;
+  private boolean finished;
+  private boolean canceled;
+
+  /** 分页回调，主线程 */
+  public interface PageCallback {
+    /**
+     * 一页加载完成
+     *
+     * @param page 本页的在群成员
+     * @param loadedCount 已加载的成员数量
+     * @param finished 是否已全部加载
+     */
+    void onPage(@NonNull List<TeamMemberWithUserInfo> page, int loadedCount, boolean finished);
+
+    void onError(int errorCode, String errorMsg);
+  }
+
+  public TeamMemberPagedLoader(String teamId, V2NIMTeamType teamType, int pageSize) {
+    this.teamId = teamId;
+    this.teamType = teamType;
+    this.pageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+  }
+
+  public String getTeamId() {
+    return teamId;
+  }
+
+  public int getLoadedCount() {
+    return loadedCount;
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * 开始加载，只能调用一次
+   *
+   * @param callback 分页回调
+   */
+  public void start(@NonNull PageCallback callback) {
+    if (this.callback != null) {
+      return;
+    }
+    this.callback = callback;
+    loadPage(null);
+  }
+
+  /** 取消加载，之后不再回调 */
+  public void cancel() {
+    canceled = true;
+  }
+
+  private void loadPage(String nextToken) {
+    V2NIMTeamMemberQueryOption option = new V2NIMTeamMemberQueryOption();
+    option.setRoleQueryType(V2NIMTeamMemberRoleQueryType.V2NIM_TEAM_MEMBER_ROLE_QUERY_TYPE_ALL);
+    option.setLimit(pageSize);
+    option.setNextToken(nextToken);
+    NIMClient.getService(V2NIMTeamService.class)
+        .getTeamMemberList(
+            teamId,
+            teamType,
+            option,
+            result -> {
+              if (!canceled) {
+                onMemberPage(result);
+              }
+            },
+            error -> {
+              ALog.e(LIB_TAG, TAG, "loadPage,onFailure:" + error.getCode());
+              if (!canceled) {
+                callback.onError(error.getCode(), error.getDesc());
+              }
+            });
+  }
+
+  // 获取本页成员的用户信息后回调，未结束时继续加载下一页
+  private void onMemberPage(V2NIMTeamMemberListResult result) {
+    List<String> accounts = new ArrayList<>();
+    if (result != null && result.getMemberList() != null) {
+      for (V2NIMTeamMember member : result.getMemberList()) {
+        if (member.isInTeam()) {
+          accounts.add(member.getAccountId());
+        }
+      }
+    }
+    boolean lastPage = result == null || result.isFinished();
+    String nextToken = result == null ? null : result.getNextToken();
+    if (accounts.isEmpty()) {
+      deliverPage(Collections.emptyList(), lastPage, nextToken);
+      return;
+    }
+    TeamRepo.getTeamMemberListWithUserInfoByIds(
+        teamId,
+        teamType,
+        accounts,
+        new FetchCallback<List<TeamMemberWithUserInfo>>() {
+          @Override
+          public void onSuccess(List<TeamMemberWithUserInfo> data) {
+            if (!canceled) {
+              deliverPage(data == null ? Collections.emptyList() : data, lastPage, nextToken);
+            }
+          }
+
+          @Override
+          public void onError(int errorCode, String errorMsg) {
+            ALog.e(LIB_TAG, TAG, "getTeamMemberListWithUserInfoByIds,onError:" + errorCode);
+            if (!canceled) {
+              callback.onError(errorCode, errorMsg);
+            }
+          }
+        });
+  }
+
+  private void deliverPage(List<TeamMemberWithUserInfo> page, boolean lastPage, String nextToken) {
+    loadedCount += page.size();
+    finished = lastPage;
+    ALog.d(LIB_TAG, TAG, "deliverPage:" + page.size() + ",loaded:" + loadedCount + "," + lastPage);
+    callback.onPage(page, loadedCount, lastPage);
+    if (!lastPage && !canceled) {
+      loadPage(nextToken);
+    }
+  }
+}
@@ -6,6 +6,8 @@ package com.netease.yunxin.kit.chatkit.ui.cache;
 
 import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -25,6 +27,7 @@ import com.netease.yunxin.kit.chatkit.impl.TeamListenerImpl;
 import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
 import com.netease.yunxin.kit.chatkit.repo.ContactRepo;
 import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
+import com.netease.yunxin.kit.chatkit.ui.cache.TeamMemberDiskCache.MemberDisplayInfo;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUtils;
 import com.netease.yunxin.kit.corekit.im2.IMKitClient;
 import com.netease.yunxin.kit.corekit.im2.extend.FetchCallback;
@@ -36,30 +39,67 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** 群聊用户信息管理 */
 public class TeamUserManager {
 
   private static final String TAG = "TeamUserManager";
-  //群成员缓存
-  private final Map<String, V2NIMTeamMember> teamMemberMap = new HashMap<>();
+  //群成员缓存，SDK 回调线程写入，任意线程无锁读取
+  private final Map<String, V2NIMTeamMember> teamMemberMap = new ConcurrentHashMap<>();
   //用户信息缓存，只缓存非好友
-  private final Map<String, V2NIMUser> userInfoMap = new HashMap<>();
+  private final Map<String, V2NIMUser> userInfoMap = new ConcurrentHashMap<>();
   //当前群信息
-  private V2NIMTeam currentTeam;
+  private volatile V2NIMTeam currentTeam;
   //当前群id
-  private String teamId;
+  private volatile String teamId;
   //是否已经加载过所有群成员
-  private boolean haveLoadAllTeamMembers = false;
+  private volatile boolean haveLoadAllTeamMembers = false;
 
-  //用户信息变化监听
-  private final Set<TeamUserChangedListener> userChangedListeners = new HashSet<>();
+  //群成员快照，缓存变化后版本号递增，下次读取时重新生成
+  private volatile TeamMemberSnapshot memberSnapshot;
+  private final AtomicLong snapshotVersion = new AtomicLong();
+
+  //用户信息变化监听，回调遍历时允许增删
+  private final Set<TeamUserChangedListener> userChangedListeners = new CopyOnWriteArraySet<>();
 
   //群信息变化监听
-  private final Set<TeamChangeListener> teamChangedListeners = new HashSet<>();
+  private final Set<TeamChangeListener> teamChangedListeners = new CopyOnWriteArraySet<>();
+
+  //缓存未命中的成员合并查询等待时间
+  private static final long RESOLVE_DELAY_MS = 50;
+  //单次批量查询的最大成员数
+  private static final int RESOLVE_BATCH_SIZE = 100;
+  //等待批量查询的成员
+  private final Set<String> pendingResolveAccounts = new LinkedHashSet<>();
+  //正在查询中的成员
+  private final Set<String> resolvingAccounts =
+      Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final Handler resolveHandler = new Handler(Looper.getMainLooper());
+  private final Runnable resolveRunnable = this::resolvePendingMembers;
+
+  //最近使用群的成员缓存，切换回来时直接恢复
+  private final TeamMemberCachePool cachePool = new TeamMemberCachePool();
+  //群成员展示信息磁盘快照
+  private final TeamMemberDiskCache diskCache = new TeamMemberDiskCache();
+  //是否开启磁盘快照，默认关闭
+  private volatile boolean diskSnapshotEnabled = false;
+  //磁盘快照中的展示信息，成员信息获取到之前使用
+  private volatile Map<String, MemberDisplayInfo> displaySnapshot = Collections.emptyMap();
+
+  //分页加载中的群成员，主线程访问，加载结束后置空
+  private TeamMemberPagedLoader pagedLoader;
+  //分页已加载的在群成员，用于加载过程中新加入的监听
+  private final List<TeamMemberWithUserInfo> pagedMembers = new ArrayList<>();
+  //分页加载监听，value为是否需要自己
+  private final Map<TeamMemberPageListener, Boolean> pageListeners = new LinkedHashMap<>();
 
   //内部类实现全局单例
   private TeamUserManager() {}
@@ -80,22 +120,105 @@ public class TeamUserManager {
     ALog.d(LIB_TAG, TAG, "init");
     clear();
     this.teamId = teamId;
+    restoreTeamCache(teamId);
     registerListener();
   }
 
-  //清除缓存
+  /**
+   * 设置是否开启群成员磁盘快照，开启后离开群时保存成员昵称和头像，再次进入时在成员信息获取到之前先展示
+   *
+   * @param enabled 是否开启
+   */
+  public void setDiskSnapshotEnabled(boolean enabled) {
+    diskSnapshotEnabled = enabled;
+  }
+
+  //清除缓存，当前群的成员放入最近使用缓存
   public void clear() {
     ALog.d(LIB_TAG, TAG, "clear");
+    //缓存池自行监听缓存期间的成员变化
+    parkTeamCache();
+    displaySnapshot = Collections.emptyMap();
     teamMemberMap.clear();
     userInfoMap.clear();
+    invalidateSnapshot();
     currentTeam = null;
     teamId = null;
     haveLoadAllTeamMembers = false;
+    cancelPagedLoad();
+    resolveHandler.removeCallbacks(resolveRunnable);
+    synchronized (pendingResolveAccounts) {
+      pendingResolveAccounts.clear();
+      resolvingAccounts.clear();
+    }
     teamChangedListeners.clear();
     userChangedListeners.clear();
     unregisterListener();
   }
 
+  //当前群的成员和用户信息放入最近使用缓存，开启磁盘快照时同时保存展示信息
+  private void parkTeamCache() {
+    String parkTeamId = teamId;
+    String account = IMKitClient.account();
+    if (TextUtils.isEmpty(parkTeamId) || TextUtils.isEmpty(account) || teamMemberMap.isEmpty()) {
+      return;
+    }
+    cachePool.put(account, parkTeamId, teamMemberMap, userInfoMap, haveLoadAllTeamMembers);
+    if (diskSnapshotEnabled) {
+      List<MemberDisplayInfo> infoList = new ArrayList<>(teamMemberMap.size());
+      for (V2NIMTeamMember teamMember : teamMemberMap.values()) {
+        if (!teamMember.isInTeam()) {
+          continue;
+        }
+        String accountId = teamMember.getAccountId();
+        V2NIMUser userInfo = userInfoMap.get(accountId);
+        UserWithFriend friend = FriendUserCache.getFriendByAccount(accountId);
+        if (userInfo == null && friend != null) {
+          userInfo = friend.getUserInfo();
+        }
+        infoList.add(
+            new MemberDisplayInfo(
+                accountId,
+                teamMember.getTeamNick(),
+                userInfo != null ? userInfo.getName() : null,
+                userInfo != null ? userInfo.getAvatar() : null));
+      }
+      diskCache.save(parkTeamId, infoList);
+    }
+  }
+
+  //从最近使用缓存恢复群成员，没有时尝试读取磁盘快照
+  private void restoreTeamCache(String restoreTeamId) {
+    String account = IMKitClient.account();
+    if (TextUtils.isEmpty(restoreTeamId) || TextUtils.isEmpty(account)) {
+      return;
+    }
+    TeamMemberCachePool.Entry entry = cachePool.take(account, restoreTeamId);
+    if (entry != null) {
+      ALog.d(LIB_TAG, TAG, "restoreTeamCache:" + entry.members.size());
+      teamMemberMap.putAll(entry.members);
+      userInfoMap.putAll(entry.users);
+      haveLoadAllTeamMembers = entry.allLoaded;
+      invalidateSnapshot();
+      return;
+    }
+    if (diskSnapshotEnabled) {
+      diskCache.load(
+          restoreTeamId,
+          infoMap -> {
+            if (!TextUtils.equals(teamId, restoreTeamId)) {
+              return;
+            }
+            ALog.d(LIB_TAG, TAG, "load disk snapshot:" + infoMap.size());
+            displaySnapshot = infoMap;
+            List<String> accounts = new ArrayList<>(infoMap.keySet());
+            for (TeamUserChangedListener listener : userChangedListeners) {
+              listener.onUsersChanged(accounts);
+            }
+          });
+    }
+  }
+
   //初始化相关监听，包括群监听、好友监听、用户监听以及登录监听
   private void registerListener() {
     //监听群信息变化
@@ -137,7 +260,7 @@ public class TeamUserManager {
                 if (data == null || !TextUtils.equals(data.getTeamId(), teamId)) {
                   return;
                 }
-                teamMemberMap.put(data.getAccountId(), data);
+                putTeamMember(data);
                 for (TeamUserChangedListener listener : userChangedListeners) {
                   if (isAdd) {
                     listener.onUsersAdd(Collections.singletonList(data.getAccountId()));
@@ -229,8 +352,68 @@ public class TeamUserManager {
    */
   public void setCurTeamMember(V2NIMTeamMember curTeamMember) {
     if (curTeamMember != null && !TextUtils.isEmpty(curTeamMember.getAccountId())) {
-      teamMemberMap.put(curTeamMember.getAccountId(), curTeamMember);
+      putTeamMember(curTeamMember);
+    }
+  }
+
+  private void putTeamMember(V2NIMTeamMember teamMember) {
+    if (teamMember == null || TextUtils.isEmpty(teamMember.getAccountId())) {
+      return;
+    }
+    teamMemberMap.put(teamMember.getAccountId(), teamMember);
+    invalidateSnapshot();
+  }
+
+  private void putUserInfo(String account, V2NIMUser userInfo) {
+    if (TextUtils.isEmpty(account) || userInfo == null) {
+      return;
     }
+    userInfoMap.put(account, userInfo);
+    invalidateSnapshot();
+  }
+
+  private void invalidateSnapshot() {
+    snapshotVersion.incrementAndGet();
+  }
+
+  /**
+   * 获取当前群成员快照，只包含在群内的成员，按群身份排序。缓存未变化时多次调用返回同一快照，任意线程可调用
+   *
+   * @return 群成员快照
+   */
+  @NonNull
+  public TeamMemberSnapshot getTeamMemberSnapshot() {
+    long version = snapshotVersion.get();
+    TeamMemberSnapshot snapshot = memberSnapshot;
+    if (snapshot != null && snapshot.version == version) {
+      return snapshot;
+    }
+    List<TeamMemberWithUserInfo> members = new ArrayList<>(teamMemberMap.size());
+    for (V2NIMTeamMember teamMember : teamMemberMap.values()) {
+      if (teamMember.isInTeam()) {
+        members.add(buildMemberWithUserInfo(teamMember));
+      }
+    }
+    if (members.size() > 1) {
+      Collections.sort(members, ChatUtils.teamManagerComparator());
+    }
+    snapshot = new TeamMemberSnapshot(version, members);
+    memberSnapshot = snapshot;
+    return snapshot;
+  }
+
+  private TeamMemberWithUserInfo buildMemberWithUserInfo(V2NIMTeamMember teamMember) {
+    TeamMemberWithUserInfo teamMemberWithUserInfo = new TeamMemberWithUserInfo(teamMember, null);
+    V2NIMUser userInfo = userInfoMap.get(teamMember.getAccountId());
+    UserWithFriend friend = FriendUserCache.getFriendByAccount(teamMember.getAccountId());
+    if (friend != null) {
+      teamMemberWithUserInfo.setFriendInfo(friend.getFriend());
+      teamMemberWithUserInfo.setUserInfo(friend.getUserInfo());
+    }
+    if (userInfo != null) {
+      teamMemberWithUserInfo.setUserInfo(userInfo);
+    }
+    return teamMemberWithUserInfo;
   }
 
   /**
@@ -242,7 +425,7 @@ public class TeamUserManager {
     if (teamMember == null || !TextUtils.equals(teamMember.getTeamId(), teamId)) {
       return;
     }
-    teamMemberMap.put(teamMember.getAccountId(), teamMember);
+    putTeamMember(teamMember);
   }
 
   /**
@@ -267,7 +450,7 @@ public class TeamUserManager {
     List<String> accounts = new ArrayList<>();
     List<String> noCacheUsers = new ArrayList<>();
     for (V2NIMTeamMember teamMember : teamMembers) {
-      teamMemberMap.put(teamMember.getAccountId(), teamMember);
+      putTeamMember(teamMember);
       accounts.add(teamMember.getAccountId());
       if (FriendUserCache.getFriendByAccount(teamMember.getAccountId()) == null
               || FriendUserCache.getFriendByAccount(teamMember.getAccountId()).getUserInfo() != null) {
@@ -306,7 +489,7 @@ public class TeamUserManager {
               public void onSuccess(@Nullable List<V2NIMUser> data) {
                 if (data != null) {
                   for (V2NIMUser userInfo : data) {
-                    userInfoMap.put(userInfo.getAccountId(), userInfo);
+                    putUserInfo(userInfo.getAccountId(), userInfo);
                   }
                 }
                 for (TeamUserChangedListener listener : userChangedListeners) {
@@ -372,19 +555,7 @@ public class TeamUserManager {
     for (String account : accounts) {
       V2NIMTeamMember teamMember = teamMemberMap.get(account);
       if (teamMember != null) {
-        TeamMemberWithUserInfo teamMemberWithUserInfo =
-                new TeamMemberWithUserInfo(teamMember, null);
-        V2NIMUser userInfo = userInfoMap.get(account);
-        UserWithFriend friend = FriendUserCache.getFriendByAccount(account);
-        if (friend != null) {
-          teamMemberWithUserInfo.setFriendInfo(friend.getFriend());
-          teamMemberWithUserInfo.setUserInfo(friend.getUserInfo());
-        }
-
-        if (userInfo != null) {
-          teamMemberWithUserInfo.setUserInfo(userInfo);
-        }
-        teamMembers.add(teamMemberWithUserInfo);
+        teamMembers.add(buildMemberWithUserInfo(teamMember));
       } else {
         noCacheAccIds.add(account);
       }
@@ -412,10 +583,10 @@ public class TeamUserManager {
               public void onSuccess(List<TeamMemberWithUserInfo> data) {
                 if (data != null) {
                   for (TeamMemberWithUserInfo member : data) {
-                    teamMemberMap.put(member.getAccountId(), member.getTeamMember());
+                    putTeamMember(member.getTeamMember());
                     if (member.getUserInfo() != null
                             && !FriendUserCache.isFriend(member.getAccountId())) {
-                      userInfoMap.put(member.getAccountId(), member.getUserInfo());
+                      putUserInfo(member.getAccountId(), member.getUserInfo());
                     }
                   }
                 }
@@ -438,19 +609,7 @@ public class TeamUserManager {
     for (String account : accounts) {
       V2NIMTeamMember teamMember = teamMemberMap.get(account);
       if (teamMember != null) {
-        TeamMemberWithUserInfo teamMemberWithUserInfo =
-                new TeamMemberWithUserInfo(teamMember, null);
-        V2NIMUser userInfo = userInfoMap.get(account);
-        UserWithFriend friend = FriendUserCache.getFriendByAccount(account);
-        if (friend != null) {
-          teamMemberWithUserInfo.setFriendInfo(friend.getFriend());
-          teamMemberWithUserInfo.setUserInfo(friend.getUserInfo());
-        }
-
-        if (userInfo != null) {
-          teamMemberWithUserInfo.setUserInfo(userInfo);
-        }
-        teamMembers.add(teamMemberWithUserInfo);
+        teamMembers.add(buildMemberWithUserInfo(teamMember));
       }
     }
     return teamMembers;
@@ -468,26 +627,10 @@ public class TeamUserManager {
     if (teamId == null || !teamId.equals(this.teamId)) {
       return new ArrayList<>();
     }
-    List<TeamMemberWithUserInfo> teamMemberList = new ArrayList<>();
-    if (role != null) {
-      for (V2NIMTeamMember teamMember : teamMemberMap.values()) {
-        if (teamMember.isInTeam() && teamMember.getMemberRole() == role) {
-          TeamMemberWithUserInfo teamMemberWithUserInfo =
-                  new TeamMemberWithUserInfo(teamMember, null);
-          V2NIMUser userInfo = userInfoMap.get(teamMember.getAccountId());
-          UserWithFriend friend = FriendUserCache.getFriendByAccount(teamMember.getAccountId());
-          if (friend != null) {
-            teamMemberWithUserInfo.setFriendInfo(friend.getFriend());
-            teamMemberWithUserInfo.setUserInfo(friend.getUserInfo());
-          }
-          if (userInfo != null) {
-            teamMemberWithUserInfo.setUserInfo(userInfo);
-          }
-          teamMemberList.add(teamMemberWithUserInfo);
-        }
-      }
+    if (role == null) {
+      return new ArrayList<>();
     }
-    return teamMemberList;
+    return new ArrayList<>(getTeamMemberSnapshot().getMembersWithRole(role));
   }
 
   /**
@@ -519,31 +662,15 @@ public class TeamUserManager {
       return;
     }
     if (haveLoadAllTeamMembers) {
-      List<TeamMemberWithUserInfo> teamMembers = new ArrayList<>();
-      for (V2NIMTeamMember teamMember : teamMemberMap.values()) {
+      List<TeamMemberWithUserInfo> snapshotMembers = getTeamMemberSnapshot().getMembers();
+      List<TeamMemberWithUserInfo> teamMembers = new ArrayList<>(snapshotMembers.size());
+      String self = IMKitClient.account();
+      for (TeamMemberWithUserInfo member : snapshotMembers) {
         //去除自己
-        if (!needSelf && TextUtils.equals(teamMember.getAccountId(), IMKitClient.account())) {
-          continue;
-        }
-        //不在群里的不显示
-        if (!teamMember.isInTeam()) {
+        if (!needSelf && TextUtils.equals(member.getAccountId(), self)) {
           continue;
         }
-        TeamMemberWithUserInfo teamMemberWithUserInfo =
-                new TeamMemberWithUserInfo(teamMember, null);
-        V2NIMUser userInfo = userInfoMap.get(teamMember.getAccountId());
-        UserWithFriend friend = FriendUserCache.getFriendByAccount(teamMember.getAccountId());
-        if (friend != null) {
-          teamMemberWithUserInfo.setFriendInfo(friend.getFriend());
-          teamMemberWithUserInfo.setUserInfo(friend.getUserInfo());
-        }
-        if (userInfo != null) {
-          teamMemberWithUserInfo.setUserInfo(userInfo);
-        }
-        teamMembers.add(teamMemberWithUserInfo);
-      }
-      if (!teamMembers.isEmpty() && teamMembers.size() > 1) {
-        Collections.sort(teamMembers, ChatUtils.teamManagerComparator());
+        teamMembers.add(member);
       }
       callback.onSuccess(teamMembers);
       return;
@@ -568,10 +695,10 @@ public class TeamUserManager {
                     if (!member.getTeamMember().isInTeam()) {
                       continue;
                     }
-                    teamMemberMap.put(member.getAccountId(), member.getTeamMember());
+                    putTeamMember(member.getTeamMember());
                     if (member.getUserInfo() != null
                             && !FriendUserCache.isFriend(member.getAccountId())) {
-                      userInfoMap.put(member.getAccountId(), member.getUserInfo());
+                      putUserInfo(member.getAccountId(), member.getUserInfo());
                     }
                     if (needSelf || !TextUtils.equals(member.getAccountId(), IMKitClient.account())) {
                       result.add(member);
@@ -589,6 +716,116 @@ public class TeamUserManager {
             });
   }
 
+  /**
+   * 分页获取所有群成员，每页加载完成后回调并合并到缓存，全部加载前可以先展示已加载的成员。已全部加载时直接回调一次
+   *
+   * <p>同一个群同时只有一个分页加载，加载过程中调用时先回调已加载的成员，之后与其他监听一起接收后续的页。主线程调用。
+   *
+   * @param needSelf 是否需要自己
+   * @param listener 分页监听
+   */
+  public void getAllTeamMembersPaged(boolean needSelf, @NonNull TeamMemberPageListener listener) {
+    if (TextUtils.isEmpty(teamId)) {
+      listener.onError(-1, "teamId is null");
+      return;
+    }
+    if (haveLoadAllTeamMembers) {
+      List<TeamMemberWithUserInfo> members =
+          filterSelf(getTeamMemberSnapshot().getMembers(), needSelf);
+      listener.onPage(members, members.size(), true);
+      return;
+    }
+    pageListeners.put(listener, needSelf);
+    if (pagedLoader != null) {
+      List<TeamMemberWithUserInfo> loaded = new ArrayList<>(pagedMembers);
+      Collections.sort(loaded, ChatUtils.teamManagerComparator());
+      listener.onPage(filterSelf(loaded, needSelf), pagedLoader.getLoadedCount(), false);
+      return;
+    }
+    TeamMemberPagedLoader loader =
+        new TeamMemberPagedLoader(
+            teamId, V2NIMTeamType.V2NIM_TEAM_TYPE_NORMAL, TeamMemberPagedLoader.DEFAULT_PAGE_SIZE);
+    pagedLoader = loader;
+    loader.start(
+        new TeamMemberPagedLoader.PageCallback() {
+          @Override
+          public void onPage(
+              @NonNull List<TeamMemberWithUserInfo> page, int loadedCount, boolean finished) {
+            if (loader != pagedLoader) {
+              return;
+            }
+            List<TeamMemberWithUserInfo> sortedPage = new ArrayList<>(page);
+            if (sortedPage.size() > 1) {
+              Collections.sort(sortedPage, ChatUtils.teamManagerComparator());
+            }
+            for (TeamMemberWithUserInfo member : sortedPage) {
+              putTeamMember(member.getTeamMember());
+              if (member.getUserInfo() != null
+                  && !FriendUserCache.isFriend(member.getAccountId())) {
+                putUserInfo(member.getAccountId(), member.getUserInfo());
+              }
+            }
+            List<Map.Entry<TeamMemberPageListener, Boolean>> listeners =
+                new ArrayList<>(pageListeners.entrySet());
+            if (finished) {
+              ALog.d(LIB_TAG, TAG, "getAllTeamMembersPaged,finished:" + loadedCount);
+              haveLoadAllTeamMembers = true;
+              pagedLoader = null;
+              pagedMembers.clear();
+              pageListeners.clear();
+            } else {
+              pagedMembers.addAll(sortedPage);
+            }
+            for (Map.Entry<TeamMemberPageListener, Boolean> entry : listeners) {
+              List<TeamMemberWithUserInfo> listenerPage = filterSelf(sortedPage, entry.getValue());
+              entry.getKey().onPage(listenerPage, loadedCount, finished);
+            }
+          }
+
+          @Override
+          public void onError(int errorCode, String errorMsg) {
+            if (loader != pagedLoader) {
+              return;
+            }
+            List<TeamMemberPageListener> listeners = new ArrayList<>(pageListeners.keySet());
+            cancelPagedLoad();
+            for (TeamMemberPageListener pageListener : listeners) {
+              pageListener.onError(errorCode, errorMsg);
+            }
+          }
+        });
+  }
+
+  /**
+   * 移除分页加载监听，加载不会停止，后续的页仍合并到缓存
+   *
+   * @param listener 分页监听
+   */
+  public void removeTeamMemberPageListener(TeamMemberPageListener listener) {
+    pageListeners.remove(listener);
+  }
+
+  private void cancelPagedLoad() {
+    if (pagedLoader != null) {
+      pagedLoader.cancel();
+      pagedLoader = null;
+    }
+    pagedMembers.clear();
+    pageListeners.clear();
+  }
+
+  private static List<TeamMemberWithUserInfo> filterSelf(
+      List<TeamMemberWithUserInfo> members, boolean needSelf) {
+    List<TeamMemberWithUserInfo> result = new ArrayList<>(members.size());
+    String self = IMKitClient.account();
+    for (TeamMemberWithUserInfo member : members) {
+      if (needSelf || !TextUtils.equals(member.getAccountId(), self)) {
+        result.add(member);
+      }
+    }
+    return result;
+  }
+
   /**
    * 获取用户显示昵称
    *
@@ -608,39 +845,7 @@ public class TeamUserManager {
     }
     if (!account.isEmpty() && !TextUtils.isEmpty(teamId)) {
       if (userInfoMap.get(account) == null && teamMemberMap.get(account) == null) {
-        TeamRepo.getTeamMemberListWithUserInfoByIds(
-                teamId,
-                V2NIMTeamType.V2NIM_TEAM_TYPE_NORMAL,
-                new ArrayList<String>() {
-                  {
-                    add(account);
-                  }
-                },
-                new FetchCallback<List<TeamMemberWithUserInfo>>() {
-                  @Override
-                  public void onError(int errorCode, String errorMsg) {}
-
-                  @Override
-                  public void onSuccess(List<TeamMemberWithUserInfo> data) {
-                    if (data != null && !data.isEmpty()) {
-                      List<String> users = new ArrayList<>();
-                      for (TeamMemberWithUserInfo member : data) {
-                        teamMemberMap.put(member.getAccountId(), member.getTeamMember());
-                        if (member.getUserInfo() != null
-                                && !FriendUserCache.isFriend(member.getAccountId())) {
-                          userInfoMap.put(member.getAccountId(), member.getUserInfo());
-                        }
-                        users.add(member.getAccountId());
-                      }
-                      for (TeamUserChangedListener listener : userChangedListeners) {
-                        listener.onUsersChanged(users);
-                      }
-                    } else {
-                      //非群成员，获取用户信息
-                      getUserInfoAndNotify(Collections.singletonList(account), false);
-                    }
-                  }
-                });
+        requestResolveMember(account);
       }
       UserWithFriend friendInfo = FriendUserCache.getFriendByAccount(account);
       if (needFriendAlias && friendInfo != null && !TextUtils.isEmpty(friendInfo.getAlias())) {
@@ -658,10 +863,104 @@ public class TeamUserManager {
       if (userInfo != null && !TextUtils.isEmpty(userInfo.getName())) {
         return userInfo.getName();
       }
+      //成员信息获取到之前使用磁盘快照
+      MemberDisplayInfo displayInfo = displaySnapshot.get(account);
+      if (displayInfo != null) {
+        if (teamMember == null && !TextUtils.isEmpty(displayInfo.teamNick)) {
+          return displayInfo.teamNick;
+        }
+        if (userInfo == null && !TextUtils.isEmpty(displayInfo.name)) {
+          return displayInfo.name;
+        }
+      }
     }
     return account;
   }
 
+  /**
+   * 将缓存未命中的成员加入批量查询，短时间内的多次未命中合并为一次请求，已在查询中的成员不重复请求
+   *
+   * @param account 用户账号
+   */
+  private void requestResolveMember(String account) {
+    synchronized (pendingResolveAccounts) {
+      if (resolvingAccounts.contains(account) || !pendingResolveAccounts.add(account)) {
+        return;
+      }
+      if (pendingResolveAccounts.size() == 1) {
+        resolveHandler.postDelayed(resolveRunnable, RESOLVE_DELAY_MS);
+      }
+    }
+  }
+
+  /** 批量查询等待中的成员，完成后统一通知一次成员变化 */
+  private void resolvePendingMembers() {
+    String requestTeamId = teamId;
+    List<String> accounts;
+    synchronized (pendingResolveAccounts) {
+      if (pendingResolveAccounts.isEmpty() || TextUtils.isEmpty(requestTeamId)) {
+        pendingResolveAccounts.clear();
+        return;
+      }
+      accounts = new ArrayList<>(pendingResolveAccounts);
+      pendingResolveAccounts.clear();
+      resolvingAccounts.addAll(accounts);
+    }
+    ALog.d(LIB_TAG, TAG, "resolvePendingMembers:" + accounts.size());
+    for (int start = 0; start < accounts.size(); start += RESOLVE_BATCH_SIZE) {
+      List<String> batch =
+              new ArrayList<>(
+                      accounts.subList(start, Math.min(start + RESOLVE_BATCH_SIZE, accounts.size())));
+      resolveMembers(requestTeamId, batch);
+    }
+  }
+
+  private void resolveMembers(String requestTeamId, List<String> accounts) {
+    TeamRepo.getTeamMemberListWithUserInfoByIds(
+            requestTeamId,
+            V2NIMTeamType.V2NIM_TEAM_TYPE_NORMAL,
+            accounts,
+            new FetchCallback<List<TeamMemberWithUserInfo>>() {
+              @Override
+              public void onError(int errorCode, String errorMsg) {
+                ALog.e(LIB_TAG, TAG, "resolveMembers error:" + errorCode + ",errorMsg:" + errorMsg);
+                if (TextUtils.equals(requestTeamId, teamId)) {
+                  resolvingAccounts.removeAll(accounts);
+                }
+              }
+
+              @Override
+              public void onSuccess(List<TeamMemberWithUserInfo> data) {
+                if (!TextUtils.equals(requestTeamId, teamId)) {
+                  return;
+                }
+                resolvingAccounts.removeAll(accounts);
+                List<String> users = new ArrayList<>();
+                if (data != null) {
+                  for (TeamMemberWithUserInfo member : data) {
+                    putTeamMember(member.getTeamMember());
+                    if (member.getUserInfo() != null
+                            && !FriendUserCache.isFriend(member.getAccountId())) {
+                      putUserInfo(member.getAccountId(), member.getUserInfo());
+                    }
+                    users.add(member.getAccountId());
+                  }
+                }
+                if (!users.isEmpty()) {
+                  for (TeamUserChangedListener listener : userChangedListeners) {
+                    listener.onUsersChanged(users);
+                  }
+                }
+                //非群成员，获取用户信息
+                List<String> notMembers = new ArrayList<>(accounts);
+                notMembers.removeAll(new HashSet<>(users));
+                if (!notMembers.isEmpty()) {
+                  getUserInfoAndNotify(notMembers, false);
+                }
+              }
+            });
+  }
+
   /**
    * 获取用户头像中显示昵称，当用户头像URL为空，则用改名字展示头像
    *
@@ -690,6 +989,10 @@ public class TeamUserManager {
       }
       if (userInfo == null) {
         getUserInfoAndNotify(Collections.singletonList(account), false);
+        MemberDisplayInfo displayInfo = displaySnapshot.get(account);
+        if (displayInfo != null && !TextUtils.isEmpty(displayInfo.name)) {
+          return displayInfo.name;
+        }
       }
     }
     return account;
@@ -709,7 +1012,8 @@ public class TeamUserManager {
       return userInfoMap.get(accId).getAvatar();
     }
     getUserInfoAndNotify(Collections.singletonList(accId), false);
-    return null;
+    MemberDisplayInfo displayInfo = displaySnapshot.get(accId);
+    return displayInfo != null ? displayInfo.avatar : null;
   }
 
   private TeamListenerImpl teamListener =
@@ -752,7 +1056,7 @@ public class TeamUserManager {
               }
               List<String> accounts = new ArrayList<>();
               for (V2NIMTeamMember teamMember : teamMembers) {
-                teamMemberMap.put(teamMember.getAccountId(), teamMember);
+                putTeamMember(teamMember);
                 accounts.add(teamMember.getAccountId());
               }
               for (TeamUserChangedListener listener : userChangedListeners) {
@@ -773,7 +1077,7 @@ public class TeamUserManager {
               List<String> accounts = new ArrayList<>();
               for (V2NIMTeamMember teamMember : teamMembers) {
                 // 更新群成员信息，成员离开但是消息展示还需要用到该成员信息
-                teamMemberMap.put(teamMember.getAccountId(), teamMember);
+                putTeamMember(teamMember);
                 accounts.add(teamMember.getAccountId());
               }
               for (TeamUserChangedListener listener : userChangedListeners) {
@@ -822,6 +1126,47 @@ public class TeamUserManager {
             }
           };
 
+  /** 群成员快照，创建后不再修改 */
+  public static final class TeamMemberSnapshot {
+    private final long version;
+    private final List<TeamMemberWithUserInfo> members;
+    private final Map<V2NIMTeamMemberRole, List<TeamMemberWithUserInfo>> roleMembers;
+
+    TeamMemberSnapshot(long version, List<TeamMemberWithUserInfo> sortedMembers) {
+      this.version = version;
+      this.members = Collections.unmodifiableList(sortedMembers);
+      Map<V2NIMTeamMemberRole, List<TeamMemberWithUserInfo>> roleMap = new HashMap<>();
+      for (TeamMemberWithUserInfo member : sortedMembers) {
+        List<TeamMemberWithUserInfo> list = roleMap.get(member.getMemberRole());
+        if (list == null) {
+          list = new ArrayList<>();
+          roleMap.put(member.getMemberRole(), list);
+        }
+        list.add(member);
+      }
+      for (Map.Entry<V2NIMTeamMemberRole, List<TeamMemberWithUserInfo>> entry :
+          roleMap.entrySet()) {
+        entry.setValue(Collections.unmodifiableList(entry.getValue()));
+      }
+      this.roleMembers = roleMap;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    /** 所有在群成员，只读 */
+    public List<TeamMemberWithUserInfo> getMembers() {
+      return members;
+    }
+
+    /** 指定群身份的成员，只读 */
+    public List<TeamMemberWithUserInfo> getMembersWithRole(V2NIMTeamMemberRole role) {
+      List<TeamMemberWithUserInfo> list = roleMembers.get(role);
+      return list == null ? Collections.emptyList() : list;
+    }
+  }
+
   private ContactListener contactListener =
           new ContactListener() {
 
@@ -839,9 +1184,11 @@ public class TeamUserManager {
               for (UserWithFriend contact : contactList) {
                 accounts.add(contact.getAccount());
                 if (contact.getFriend() == null) {
-                  userInfoMap.put(contact.getAccount(), contact.getUserInfo());
+                  putUserInfo(contact.getAccount(), contact.getUserInfo());
                 }
               }
+              //好友信息变化会影响快照中的好友备注
+              invalidateSnapshot();
               for (TeamUserChangedListener listener : userChangedListeners) {
                 listener.onUsersChanged(accounts);
               }
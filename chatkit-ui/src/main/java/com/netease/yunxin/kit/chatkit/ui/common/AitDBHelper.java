@@ -4,21 +4,26 @@
 
 package com.netease.yunxin.kit.chatkit.ui.common;
 
-import android.annotation.SuppressLint;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
 import com.netease.yunxin.kit.corekit.im2.IMKitClient;
 import com.netease.yunxin.kit.corekit.im2.custom.AitInfo;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /** @数据库Helper类，用于会话列表中[有人@我]功能 提供@信息的数据库操作，增删改查 */
 public class AitDBHelper extends SQLiteOpenHelper {
@@ -27,12 +32,31 @@ public class AitDBHelper extends SQLiteOpenHelper {
   public static AitDBHelper aitDBHelper = null;
   private SQLiteDatabase aitDatabase = null;
   public static final String DB_NAME = "nim_kit_ait.db";
-  public static final String TABLE_NAME = "ait_message";
+  public static final String TABLE_NAME = "ait_message_item";
   public static final String DB_COLUMN_SESSION = "session_id";
   public static final String DB_COLUMN_ROW_ID = "_id";
   public static final String DB_COLUMN_MSG_ID = "msg_uuid";
   public static final String DB_COLUMN_USER_ID = "account_id";
-  public static int Version = 1;
+  public static final String INDEX_ACCOUNT_SESSION_MSG = "idx_ait_account_session_msg";
+  // 版本1、2的表，每个会话一行，msg_uuid 为逗号拼接的消息ID
+  private static final String TABLE_NAME_V1 = "ait_message";
+  // 版本2：增加 (account_id, session_id) 索引
+  // 版本3：每条@消息一行，(account_id, session_id, msg_uuid) 唯一索引
+  public static int Version = 3;
+
+  private static final String WHERE_ACCOUNT = DB_COLUMN_USER_ID + "=?";
+  private static final String WHERE_ACCOUNT_SESSION =
+      DB_COLUMN_USER_ID + "=? AND " + DB_COLUMN_SESSION + "=?";
+  private static final String INSERT_SQL =
+      "INSERT OR IGNORE INTO "
+          + TABLE_NAME
+          + "("
+          + DB_COLUMN_USER_ID
+          + ","
+          + DB_COLUMN_SESSION
+          + ","
+          + DB_COLUMN_MSG_ID
+          + ") VALUES (?,?,?)";
 
   public AitDBHelper(Context context) {
     super(context, DB_NAME, null, Version);
@@ -55,7 +79,7 @@ public class AitDBHelper extends SQLiteOpenHelper {
     return aitDBHelper;
   }
 
-  public SQLiteDatabase openWrite() {
+  public synchronized SQLiteDatabase openWrite() {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "openWrite");
     if (aitDatabase == null || !aitDatabase.isOpen()) {
       aitDatabase = aitDBHelper.getWritableDatabase();
@@ -63,7 +87,7 @@ public class AitDBHelper extends SQLiteOpenHelper {
     return aitDatabase;
   }
 
-  public SQLiteDatabase openRead() {
+  public synchronized SQLiteDatabase openRead() {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "openRead");
     if (aitDatabase == null || !aitDatabase.isOpen()) {
       aitDatabase = aitDBHelper.getReadableDatabase();
@@ -81,26 +105,264 @@ public class AitDBHelper extends SQLiteOpenHelper {
   @Override
   public void onCreate(SQLiteDatabase db) {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "onCreate");
-    String drop_sql = "DROP TABLE IF EXISTS " + TABLE_NAME + ";";
-    db.execSQL(drop_sql);
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME_V1 + ";");
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME + ";");
+    createTable(db);
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "onUpgrade:" + oldVersion + "->" + newVersion);
+    if (oldVersion < 3) {
+      createTable(db);
+      migrateFromV1(db);
+    }
+  }
+
+  private void createTable(SQLiteDatabase db) {
     String create_sql =
         "CREATE TABLE IF NOT EXISTS "
             + TABLE_NAME
             + "("
             + DB_COLUMN_ROW_ID
             + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + DB_COLUMN_USER_ID
+            + " VARCHAR NOT NULL,"
             + DB_COLUMN_SESSION
             + " VARCHAR NOT NULL,"
             + DB_COLUMN_MSG_ID
-            + " VARCHAR NOT NULL,"
-            + DB_COLUMN_USER_ID
             + " VARCHAR NOT NULL"
             + ");";
     db.execSQL(create_sql);
+    // 按账号、账号+会话的查询均可使用该索引的前缀
+    db.execSQL(
+        "CREATE UNIQUE INDEX IF NOT EXISTS "
+            + INDEX_ACCOUNT_SESSION_MSG
+            + " ON "
+            + TABLE_NAME
+            + "("
+            + DB_COLUMN_USER_ID
+            + ","
+            + DB_COLUMN_SESSION
+            + ","
+            + DB_COLUMN_MSG_ID
+            + ");");
   }
 
-  @Override
-  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+  // 将旧表中逗号拼接的消息ID拆分为每条消息一行，迁移完成后删除旧表。onUpgrade 已在事务中执行
+  private void migrateFromV1(SQLiteDatabase db) {
+    int rows = 0;
+    SQLiteStatement insertStatement = db.compileStatement(INSERT_SQL);
+    try (Cursor cursor =
+        db.rawQuery(
+            "SELECT "
+                + DB_COLUMN_USER_ID
+                + ","
+                + DB_COLUMN_SESSION
+                + ","
+                + DB_COLUMN_MSG_ID
+                + " FROM "
+                + TABLE_NAME_V1,
+            null)) {
+      while (cursor.moveToNext()) {
+        String accountId = cursor.getString(0);
+        String conversationId = cursor.getString(1);
+        String msgIds = cursor.getString(2);
+        if (accountId == null || TextUtils.isEmpty(conversationId) || TextUtils.isEmpty(msgIds)) {
+          continue;
+        }
+        for (String msgId : msgIds.split(",")) {
+          if (!TextUtils.isEmpty(msgId)
+              && insertRow(insertStatement, accountId, conversationId, msgId)) {
+            rows++;
+          }
+        }
+      }
+    } catch (SQLException e) {
+      // 旧表不存在或数据损坏，@信息仅用于提示，直接丢弃
+      ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "migrateFromV1 error:" + e);
+    } finally {
+      insertStatement.close();
+    }
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME_V1 + ";");
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "migrateFromV1 rows:" + rows);
+  }
+
+  private static boolean insertRow(
+      SQLiteStatement statement, String accountId, String conversationId, String msgId) {
+    statement.bindString(1, accountId);
+    statement.bindString(2, conversationId);
+    statement.bindString(3, msgId);
+    return statement.executeInsert() != -1;
+  }
+
+  /**
+   * 在一个事务中批量写入，每个操作按 清空会话、删除消息、添加消息 的顺序执行
+   *
+   * @param ops 写入操作，同一会话只应有一个操作
+   * @return 影响的行数，失败返回-1
+   */
+  public int applyBatch(List<AitWriteOp> ops) {
+    if (ops == null || ops.isEmpty() || aitDatabase == null || !aitDatabase.isOpen()) {
+      return -1;
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "applyBatch:" + ops.size());
+    SQLiteDatabase db = aitDatabase;
+    SQLiteStatement clearStatement = null;
+    SQLiteStatement deleteStatement = null;
+    SQLiteStatement insertStatement = null;
+    int rows = 0;
+    db.beginTransaction();
+    try {
+      for (AitWriteOp op : ops) {
+        if (TextUtils.isEmpty(op.conversationId) || op.accountId == null) {
+          continue;
+        }
+        if (op.clear) {
+          if (clearStatement == null) {
+            clearStatement =
+                db.compileStatement(
+                    "DELETE FROM " + TABLE_NAME + " WHERE " + WHERE_ACCOUNT_SESSION);
+          }
+          clearStatement.bindString(1, op.accountId);
+          clearStatement.bindString(2, op.conversationId);
+          rows += clearStatement.executeUpdateDelete();
+        }
+        for (String msgId : op.removeMsgIds) {
+          if (deleteStatement == null) {
+            deleteStatement =
+                db.compileStatement(
+                    "DELETE FROM "
+                        + TABLE_NAME
+                        + " WHERE "
+                        + WHERE_ACCOUNT_SESSION
+                        + " AND "
+                        + DB_COLUMN_MSG_ID
+                        + "=?");
+          }
+          deleteStatement.bindString(1, op.accountId);
+          deleteStatement.bindString(2, op.conversationId);
+          deleteStatement.bindString(3, msgId);
+          rows += deleteStatement.executeUpdateDelete();
+        }
+        for (String msgId : op.addMsgIds) {
+          if (insertStatement == null) {
+            insertStatement = db.compileStatement(INSERT_SQL);
+          }
+          if (insertRow(insertStatement, op.accountId, op.conversationId, msgId)) {
+            rows++;
+          }
+        }
+      }
+      db.setTransactionSuccessful();
+    } catch (SQLException e) {
+      ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "applyBatch error:" + e);
+      rows = -1;
+    } finally {
+      db.endTransaction();
+      closeStatement(clearStatement);
+      closeStatement(deleteStatement);
+      closeStatement(insertStatement);
+    }
+    return rows;
+  }
+
+  private static void closeStatement(SQLiteStatement statement) {
+    if (statement != null) {
+      statement.close();
+    }
+  }
+
+  /**
+   * 查询账号下每个会话的@消息数量，不加载消息ID，用于会话列表展示[有人@我]
+   *
+   * @param accountId 账号
+   * @return 会话ID -> @消息数量，按最近一条@消息倒序
+   */
+  public Map<String, Integer> queryAitCount(String accountId) {
+    Map<String, Integer> result = new LinkedHashMap<>();
+    if (accountId == null || aitDatabase == null || !aitDatabase.isOpen()) {
+      return result;
+    }
+    try (Cursor cursor =
+        aitDatabase.rawQuery(
+            "SELECT "
+                + DB_COLUMN_SESSION
+                + ",COUNT(*),MAX("
+                + DB_COLUMN_ROW_ID
+                + ") AS last_id FROM "
+                + TABLE_NAME
+                + " WHERE "
+                + WHERE_ACCOUNT
+                + " GROUP BY "
+                + DB_COLUMN_SESSION
+                + " ORDER BY last_id DESC",
+            new String[] {accountId})) {
+      while (cursor.moveToNext()) {
+        result.put(cursor.getString(0), cursor.getInt(1));
+      }
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "queryAitCount result:" + result.size());
+    return result;
+  }
+
+  /**
+   * 查询会话的@消息数量
+   *
+   * @param accountId 账号
+   * @param conversationId 会话ID
+   * @return @消息数量
+   */
+  public int queryAitCount(String accountId, String conversationId) {
+    if (accountId == null
+        || TextUtils.isEmpty(conversationId)
+        || aitDatabase == null
+        || !aitDatabase.isOpen()) {
+      return 0;
+    }
+    return (int)
+        DatabaseUtils.queryNumEntries(
+            aitDatabase,
+            TABLE_NAME,
+            WHERE_ACCOUNT_SESSION,
+            new String[] {accountId, conversationId});
+  }
+
+  /**
+   * 分页查询会话的@消息ID，按写入顺序
+   *
+   * @param accountId 账号
+   * @param conversationId 会话ID
+   * @param offset 起始位置
+   * @param limit 数量
+   * @return 消息ID列表
+   */
+  public List<String> queryAitMsgIds(
+      String accountId, String conversationId, int offset, int limit) {
+    List<String> result = new ArrayList<>();
+    if (accountId == null
+        || TextUtils.isEmpty(conversationId)
+        || limit <= 0
+        || aitDatabase == null
+        || !aitDatabase.isOpen()) {
+      return result;
+    }
+    try (Cursor cursor =
+        aitDatabase.query(
+            TABLE_NAME,
+            new String[] {DB_COLUMN_MSG_ID},
+            WHERE_ACCOUNT_SESSION,
+            new String[] {accountId, conversationId},
+            null,
+            null,
+            DB_COLUMN_ROW_ID,
+            Math.max(offset, 0) + "," + limit)) {
+      while (cursor.moveToNext()) {
+        result.add(cursor.getString(0));
+      }
+    }
+    return result;
+  }
 
   public int delete(String condition) {
     // 执行删除记录动作，该语句返回删除记录的数目
@@ -138,7 +400,7 @@ public class AitDBHelper extends SQLiteOpenHelper {
     return aitDatabase.delete(TABLE_NAME, "1=1", null);
   }
 
-  // 往该表添加一条记录
+  // 往该表添加一条记录，每条@消息写入一行
   public long insert(AitInfo info) {
     if (info == null) {
       return -1;
@@ -149,7 +411,7 @@ public class AitDBHelper extends SQLiteOpenHelper {
     return insert(aitInfo);
   }
 
-  // 往该表添加多条记录
+  // 往该表添加多条记录，每条@消息写入一行，已存在的消息忽略
   public long insert(List<AitInfo> aitInfoList) {
     long result = -1;
     if (aitInfoList == null
@@ -159,29 +421,27 @@ public class AitDBHelper extends SQLiteOpenHelper {
       return result;
     }
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "list insert:" + aitInfoList.size());
+    List<AitWriteOp> ops = new ArrayList<>();
     for (AitInfo aitInfo : aitInfoList) {
       if (!TextUtils.isEmpty(aitInfo.getConversationId()) && aitInfo.getMsgUidList() != null) {
-        ALog.d(
-            ChatKitUIConstant.LIB_TAG, TAG, "list insert aitinfo:" + aitInfo.getConversationId());
-        ContentValues cv = new ContentValues();
-        cv.put(DB_COLUMN_SESSION, aitInfo.getConversationId());
-        cv.put(DB_COLUMN_MSG_ID, aitInfo.getMsgUidString());
-        cv.put(DB_COLUMN_USER_ID, aitInfo.getAccountId());
-        // 执行插入记录动作，该语句返回插入记录的行号
-        // 参数二：参数未设置为NULL,参数提供可空列名称的名称，以便在 cv 为空的情况下显式插入 NULL。
-        // 参数三：values 此映射包含行的初始列值。键应该是列名，值应该是列值
-        result = aitDatabase.insert(TABLE_NAME, "", cv);
-      }
-      // 添加成功则返回行号，添加失败则返回-1
-      if (result == -1) {
-        return result;
+        AitWriteOp op = new AitWriteOp(aitInfo.getAccountId(), aitInfo.getConversationId());
+        op.add(aitInfo.getMsgUidList());
+        ops.add(op);
       }
     }
+    if (!ops.isEmpty()) {
+      result = applyBatch(ops);
+    }
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "list insert result:" + result);
     return result;
   }
 
-  // 根据条件更新指定的表记录
+  /**
+   * 删除满足条件的记录后写入 aitInfo 的全部@消息
+   *
+   * @deprecated 条件为拼接的SQL，使用 {@link #update(AitInfo)}
+   */
+  @Deprecated
   public int update(AitInfo aitInfo, String condition) {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "update:" + condition);
     if (aitInfo == null
@@ -190,64 +450,129 @@ public class AitDBHelper extends SQLiteOpenHelper {
         || !aitDatabase.isOpen()) {
       return -1;
     }
-    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "update:" + aitInfo.getConversationId());
-    ContentValues cv = new ContentValues();
-    cv.put(DB_COLUMN_SESSION, aitInfo.getConversationId());
-    cv.put(DB_COLUMN_MSG_ID, aitInfo.getMsgUidString());
-    cv.put(DB_COLUMN_USER_ID, aitInfo.getAccountId());
-    return aitDatabase.update(TABLE_NAME, cv, condition, null);
+    aitDatabase.beginTransaction();
+    try {
+      aitDatabase.delete(TABLE_NAME, condition, null);
+      int rows = (int) insert(aitInfo);
+      aitDatabase.setTransactionSuccessful();
+      return rows;
+    } finally {
+      aitDatabase.endTransaction();
+    }
   }
 
+  // 用 aitInfo 的@消息替换该会话已保存的@消息
   public int update(AitInfo aitInfo) {
-    // 执行更新记录动作，该语句返回更新的记录数量
-    return update(aitInfo, DB_COLUMN_ROW_ID + "=" + aitInfo.getRowId());
+    if (aitInfo == null || TextUtils.isEmpty(aitInfo.getConversationId())) {
+      return -1;
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "update:" + aitInfo.getConversationId());
+    AitWriteOp op = new AitWriteOp(aitInfo.getAccountId(), aitInfo.getConversationId());
+    op.clear();
+    if (aitInfo.getMsgUidList() != null) {
+      op.add(aitInfo.getMsgUidList());
+    }
+    return applyBatch(Collections.singletonList(op));
   }
 
-  @SuppressLint("Range")
+  // 查询当前账号的全部@信息，会加载所有消息ID，会话列表展示[有人@我]使用 queryAitCount
   public List<AitInfo> queryAll() {
-    return query(DB_COLUMN_USER_ID + "='" + IMKitClient.account() + "'");
+    return query(WHERE_ACCOUNT, new String[] {IMKitClient.account()});
   }
 
-  @SuppressLint("Range")
+  /**
+   * 按条件查询@信息
+   *
+   * @deprecated 条件为拼接的SQL，使用 {@link #query(String, String[])}
+   */
+  @Deprecated
   public List<AitInfo> query(String condition) {
-    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query:" + condition);
-    String sql =
-        String.format(
-            "select "
-                + DB_COLUMN_ROW_ID
-                + ","
-                + DB_COLUMN_SESSION
-                + ","
-                + DB_COLUMN_MSG_ID
-                + ","
-                + DB_COLUMN_USER_ID
-                + " from %s where %s;",
-            TABLE_NAME,
-            condition);
-    List<AitInfo> infoList = new ArrayList<>();
+    return query(condition, null);
+  }
+
+  /**
+   * 按条件查询@信息，同一账号同一会话的消息合并为一个 AitInfo
+   *
+   * @param selection 查询条件，参数使用?占位
+   * @param selectionArgs 查询参数
+   * @return @信息列表
+   */
+  public List<AitInfo> query(String selection, String[] selectionArgs) {
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query:" + selection);
+    Map<String, AitInfo> infoMap = new LinkedHashMap<>();
     // 执行记录查询动作，该语句返回结果集的游标
     if (aitDatabase != null && aitDatabase.isOpen()) {
+      try (Cursor cursor =
+          aitDatabase.query(
+              TABLE_NAME,
+              new String[] {DB_COLUMN_USER_ID, DB_COLUMN_SESSION, DB_COLUMN_MSG_ID},
+              selection,
+              selectionArgs,
+              null,
+              null,
+              DB_COLUMN_ROW_ID)) {
+        // 循环取出游标指向的每条记录
+        while (cursor.moveToNext()) {
+          String accountId = cursor.getString(0);
+          String conversationId = cursor.getString(1);
+          String key = accountId + "/" + conversationId;
+          AitInfo aitInfo = infoMap.get(key);
+          if (aitInfo == null) {
+            aitInfo = new AitInfo();
+            aitInfo.setAccountId(accountId);
+            aitInfo.setConversationId(conversationId);
+            infoMap.put(key, aitInfo);
+          }
+          aitInfo.addMsgUid(cursor.getString(2));
+        }
+      }
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query result:" + infoMap.size());
+    return new ArrayList<>(infoMap.values());
+  }
+
+  /**
+   * 单个会话的批量写入操作，多次修改合并后按 清空会话、删除消息、添加消息 的顺序写入
+   *
+   * <p>非线程安全，由调用方加锁
+   */
+  public static final class AitWriteOp {
+    final String accountId;
+    final String conversationId;
+    boolean clear;
+    final Set<String> addMsgIds = new LinkedHashSet<>();
+    final Set<String> removeMsgIds = new LinkedHashSet<>();
+
+    public AitWriteOp(String accountId, String conversationId) {
+      this.accountId = accountId;
+      this.conversationId = conversationId;
+    }
+
+    // 添加@消息，覆盖之前对这些消息的删除
+    public void add(Collection<String> msgIds) {
+      for (String msgId : msgIds) {
+        if (!TextUtils.isEmpty(msgId)) {
+          removeMsgIds.remove(msgId);
+          addMsgIds.add(msgId);
+        }
+      }
+    }
 
-      Cursor cursor = aitDatabase.rawQuery(sql, null);
-      // 循环取出游标指向的每条记录
-      while (cursor != null && cursor.moveToNext()) {
-        AitInfo aitInfo = new AitInfo();
-        aitInfo.setConversationId(cursor.getString(cursor.getColumnIndex(DB_COLUMN_SESSION)));
-        aitInfo.setRowId(cursor.getInt(cursor.getColumnIndex(DB_COLUMN_ROW_ID)));
-        String msgId = cursor.getString(cursor.getColumnIndex(DB_COLUMN_MSG_ID));
-        String accountID = cursor.getString(cursor.getColumnIndex(DB_COLUMN_USER_ID));
+    // 删除@消息，覆盖之前对这些消息的添加
+    public void remove(Collection<String> msgIds) {
+      for (String msgId : msgIds) {
         if (!TextUtils.isEmpty(msgId)) {
-          String[] idStrings = msgId.split(",");
-          aitInfo.addMsgUid(Arrays.asList(idStrings));
+          addMsgIds.remove(msgId);
+          removeMsgIds.add(msgId);
         }
-        aitInfo.setAccountId(accountID);
-        ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query AitInfo:" + aitInfo.getConversationId());
-        infoList.add(aitInfo);
       }
-      // 查询完毕，关闭数据库游标
-      cursor.close();
     }
-    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query result:" + infoList.size());
-    return infoList;
+
+    // 清空会话的@消息，之前的添加和删除都不再需要
+    public void clear() {
+      clear = true;
+      addMsgIds.clear();
+      removeMsgIds.clear();
+    }
   }
 }
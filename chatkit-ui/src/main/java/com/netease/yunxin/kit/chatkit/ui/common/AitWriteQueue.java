@@ -0,0 +1,234 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * @信息数据库写入队列，单线程写入
+ *
+ * <p>待写入的操作按会话合并，同一会话的多次添加、删除合并为一个操作；写入线程每次取出当前所有待写入操作，在一个事务中完成。
+ */
+public class AitWriteQueue {
+
+  private static final String TAG = "AitWriteQueue";
+
+  /** 删除@消息后会话已无@消息的回调 */
+  public interface OnAitClearedListener {
+    /** 主线程回调 */
+    void onAitCleared(@NonNull List<String> conversationIds);
+  }
+
+  private final Context context;
+
+  private final Executor writeExecutor = Executors.newSingleThreadExecutor();
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // account + conversationId -> 待写入操作
+  private final Map<String, AitDBHelper.AitWriteOp> pendingOps = new LinkedHashMap<>();
+
+  private boolean drainScheduled;
+
+  private final Metrics metrics = new Metrics();
+
+  private volatile OnAitClearedListener clearedListener;
+
+  public AitWriteQueue(@NonNull Context context) {
+    this.context = context.getApplicationContext();
+  }
+
+  public void setOnAitClearedListener(@Nullable OnAitClearedListener listener) {
+    this.clearedListener = listener;
+  }
+
+  /**
+   * 添加会话的@消息
+   *
+   * @param accountId 当前账号
+   * @param conversationId 会话ID
+   * @param msgIds @消息ID
+   */
+  public void add(String accountId, String conversationId, Collection<String> msgIds) {
+    if (msgIds == null || msgIds.isEmpty()) {
+      return;
+    }
+    synchronized (pendingOps) {
+      getOrCreateOp(accountId, conversationId).add(msgIds);
+    }
+    flush();
+  }
+
+  /**
+   * 删除会话的@消息，删除后会话已无@消息时通过 {@link OnAitClearedListener} 回调
+   *
+   * @param accountId 当前账号
+   * @param conversationId 会话ID
+   * @param msgIds @消息ID
+   */
+  public void remove(String accountId, String conversationId, Collection<String> msgIds) {
+    if (msgIds == null || msgIds.isEmpty()) {
+      return;
+    }
+    synchronized (pendingOps) {
+      getOrCreateOp(accountId, conversationId).remove(msgIds);
+    }
+    flush();
+  }
+
+  /**
+   * 清空会话的@消息
+   *
+   * @param accountId 当前账号
+   * @param conversationId 会话ID
+   */
+  public void clear(String accountId, String conversationId) {
+    synchronized (pendingOps) {
+      getOrCreateOp(accountId, conversationId).clear();
+    }
+    flush();
+  }
+
+  /** 立即写入等待中的操作 */
+  public void flush() {
+    synchronized (pendingOps) {
+      if (drainScheduled || pendingOps.isEmpty()) {
+        return;
+      }
+      drainScheduled = true;
+    }
+    writeExecutor.execute(this::drain);
+  }
+
+  /** 获取写入统计 */
+  @NonNull
+  public Metrics getMetrics() {
+    synchronized (metrics) {
+      return metrics.copy();
+    }
+  }
+
+  private AitDBHelper.AitWriteOp getOrCreateOp(String accountId, String conversationId) {
+    String key = accountId + "/" + conversationId;
+    AitDBHelper.AitWriteOp op = pendingOps.get(key);
+    if (op == null) {
+      op = new AitDBHelper.AitWriteOp(accountId, conversationId);
+      pendingOps.put(key, op);
+    }
+    return op;
+  }
+
+  private void drain() {
+    List<AitDBHelper.AitWriteOp> ops;
+    synchronized (pendingOps) {
+      ops = new ArrayList<>(pendingOps.values());
+      pendingOps.clear();
+      drainScheduled = false;
+    }
+    if (ops.isEmpty()) {
+      return;
+    }
+    long start = SystemClock.elapsedRealtime();
+    AitDBHelper helper = AitDBHelper.getInstance(context);
+    helper.openWrite();
+    int rows = helper.applyBatch(ops);
+    long cost = SystemClock.elapsedRealtime() - start;
+    synchronized (metrics) {
+      metrics.batchCount++;
+      metrics.opCount += ops.size();
+      if (rows >= 0) {
+        metrics.rowCount += rows;
+      } else {
+        metrics.failedBatchCount++;
+      }
+      metrics.lastBatchCostMillis = cost;
+      metrics.totalBatchCostMillis += cost;
+      metrics.maxBatchCostMillis = Math.max(metrics.maxBatchCostMillis, cost);
+    }
+    ALog.d(
+        ChatKitUIConstant.LIB_TAG,
+        TAG,
+        "drain ops:" + ops.size() + ",rows:" + rows + ",cost:" + cost);
+    OnAitClearedListener listener = clearedListener;
+    if (rows < 0 || listener == null) {
+      return;
+    }
+    List<String> clearedIds = new ArrayList<>();
+    for (AitDBHelper.AitWriteOp op : ops) {
+      if (!op.clear
+          && !op.removeMsgIds.isEmpty()
+          && op.addMsgIds.isEmpty()
+          && helper.queryAitCount(op.accountId, op.conversationId) == 0) {
+        clearedIds.add(op.conversationId);
+      }
+    }
+    if (!clearedIds.isEmpty()) {
+      mainHandler.post(() -> listener.onAitCleared(clearedIds));
+    }
+  }
+
+  /** 写入统计 */
+  public static final class Metrics {
+    // 写入批次数
+    public long batchCount;
+    // 写入失败的批次数
+    public long failedBatchCount;
+    // 合并后写入的操作数
+    public long opCount;
+    // 影响的行数
+    public long rowCount;
+    // 最近一次批次耗时
+    public long lastBatchCostMillis;
+    // 批次最大耗时
+    public long maxBatchCostMillis;
+    // 批次总耗时
+    public long totalBatchCostMillis;
+
+    Metrics copy() {
+      Metrics copy = new Metrics();
+      copy.batchCount = batchCount;
+      copy.failedBatchCount = failedBatchCount;
+      copy.opCount = opCount;
+      copy.rowCount = rowCount;
+      copy.lastBatchCostMillis = lastBatchCostMillis;
+      copy.maxBatchCostMillis = maxBatchCostMillis;
+      copy.totalBatchCostMillis = totalBatchCostMillis;
+      return copy;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "batch="
+          + batchCount
+          + ",failed="
+          + failedBatchCount
+          + ",ops="
+          + opCount
+          + ",rows="
+          + rowCount
+          + ",lastCost="
+          + lastBatchCostMillis
+          + ",maxCost="
+          + maxBatchCostMillis
+          + ",totalCost="
+          + totalBatchCostMillis;
+    }
+  }
+}
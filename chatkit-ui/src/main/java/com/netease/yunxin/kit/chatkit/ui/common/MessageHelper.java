@@ -22,6 +22,7 @@ import android.os.SystemClock;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.Spanned;
+import android.text.SpannedString;
 import android.text.TextUtils;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.ImageSpan;
@@ -54,7 +55,6 @@ import com.netease.nimlib.sdk.v2.team.model.V2NIMUpdatedTeamInfo;
 import com.netease.nimlib.sdk.v2.utils.V2NIMConversationIdUtil;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.ChatCustomMsgFactory;
-import com.netease.yunxin.kit.chatkit.emoji.ChatEmojiManager;
 import com.netease.yunxin.kit.chatkit.manager.AIUserManager;
 import com.netease.yunxin.kit.chatkit.model.CustomAttachment;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
@@ -69,22 +69,25 @@ import com.netease.yunxin.kit.chatkit.ui.cache.TeamUserManager;
 import com.netease.yunxin.kit.chatkit.ui.custom.MultiForwardAttachment;
 import com.netease.yunxin.kit.chatkit.ui.custom.RichTextAttachment;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import com.netease.yunxin.kit.chatkit.ui.model.MessageExtension;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AitBlock;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AtContactsModel;
+import com.netease.yunxin.kit.chatkit.ui.view.emoji.EmojiManager;
+import com.netease.yunxin.kit.chatkit.ui.view.emoji.EmojiMatcher;
 import com.netease.yunxin.kit.chatkit.utils.AIErrorCode;
 import com.netease.yunxin.kit.chatkit.utils.ErrorUtils;
-import com.netease.yunxin.kit.chatkit.utils.MessageExtensionHelper;
 import com.netease.yunxin.kit.common.ui.utils.ToastX;
 import com.netease.yunxin.kit.corekit.im2.IMKitClient;
 import com.netease.yunxin.kit.corekit.im2.extend.FetchCallback;
 import com.netease.yunxin.kit.corekit.im2.extend.ProgressFetchCallback;
 import com.netease.yunxin.kit.corekit.im2.utils.RouterConstant;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -347,17 +350,8 @@ public class MessageHelper {
    * @return UI展示消息体内容
    */
   public static String getMessageRevokeContent(IMMessageInfo messageInfo) {
-    Map<String, Object> localExtension =
-        MessageExtensionHelper.parseJsonStringToMap(messageInfo.getMessage().getLocalExtension());
-    if (localExtension != null) {
-      if (localExtension.containsKey(RouterConstant.KEY_REVOKE_CONTENT_TAG)) {
-        Object content = localExtension.get(RouterConstant.KEY_REVOKE_CONTENT_TAG);
-        if (content instanceof String) {
-          return (String) content;
-        }
-      }
-    }
-    return "";
+    String content = MessageExtension.of(messageInfo.getMessage()).getRevokeContent();
+    return content != null ? content : "";
   }
 
   /**
@@ -367,18 +361,7 @@ public class MessageHelper {
    * @return UI展示消息体内容
    */
   public static Map<String, String> getRichMessageRevokeContent(IMMessageInfo messageInfo) {
-
-    Map<String, Object> localExtension =
-        MessageExtensionHelper.parseJsonStringToMap(messageInfo.getMessage().getLocalExtension());
-    if (localExtension != null) {
-      if (localExtension.containsKey(RouterConstant.KEY_REVOKE_RICH_CONTENT_TAG)) {
-        Object content = localExtension.get(RouterConstant.KEY_REVOKE_RICH_CONTENT_TAG);
-        if (content instanceof Map) {
-          return (Map<String, String>) content;
-        }
-      }
-    }
-    return null;
+    return MessageExtension.of(messageInfo.getMessage()).getRevokeRichContent();
   }
 
   /**
@@ -415,18 +398,41 @@ public class MessageHelper {
    */
   public static void identifyExpression(
       Context context, View textView, String content, V2NIMMessage message) {
-    if (message != null && textView != null) {
-      SpannableString spannableString =
-          replaceEmoticons(context, content, DEF_SCALE, ImageSpan.ALIGN_BOTTOM);
-      int color = context.getResources().getColor(AT_HIGHLIGHT);
-      // 如果是AI消息，不需要高亮@
-      if (!MessageHelper.isReceivedMessageFromAi(message)) {
-        identifyAtExpression(context, spannableString, color, content, message);
-      }
-      viewSetText(textView, spannableString);
+    if (message != null && textView instanceof TextView) {
+      ((TextView) textView).setText(getExpressionSpanned(context, content, message));
     }
   }
 
+  /**
+   * 生成表情替换为图片、@信息高亮后的文本，结果按消息缓存在 {@link MessageSpanCache}
+   *
+   * @param context 上下文
+   * @param content 消息内容
+   * @param message 消息体
+   * @return 不可修改的文本，可直接设置到TextView
+   */
+  public static Spanned getExpressionSpanned(
+      Context context, String content, @NonNull V2NIMMessage message) {
+    int color = context.getResources().getColor(AT_HIGHLIGHT);
+    long version =
+        MessageSpanCache.version(
+            context, content, message, DEF_SCALE, ImageSpan.ALIGN_BOTTOM, color);
+    Spanned cached = MessageSpanCache.getInstance().get(message.getMessageClientId(), version);
+    if (cached != null) {
+      return cached;
+    }
+    SpannableString spannableString =
+        replaceEmoticons(context, content, DEF_SCALE, ImageSpan.ALIGN_BOTTOM);
+    // 如果是AI消息，不需要高亮@
+    if (!MessageHelper.isReceivedMessageFromAi(message)) {
+      identifyAtExpression(context, spannableString, color, content, message);
+    }
+    // SpannedString 设置到TextView时不会再复制
+    Spanned spanned = new SpannedString(spannableString);
+    MessageSpanCache.getInstance().put(message.getMessageClientId(), version, spanned);
+    return spanned;
+  }
+
   /**
    * 识别文本消息内容中的@信息并高亮
    *
@@ -442,7 +448,7 @@ public class MessageHelper {
       int color,
       String content,
       V2NIMMessage message) {
-    AtContactsModel atContactsModel = getAitBlockFromMsg(message);
+    AtContactsModel atContactsModel = MessageExtension.of(message).getAitModel();
     if (atContactsModel != null && !TextUtils.isEmpty(content)) {
       List<AitBlock> blockList = atContactsModel.getAtBlockList();
       for (AitBlock block : blockList) {
@@ -527,16 +533,8 @@ public class MessageHelper {
    */
   public static AtContactsModel getAitBlockFromMsg(V2NIMMessage message) {
     if (message != null && message.getServerExtension() != null) {
-
-      Map<String, Object> remoteExt =
-          MessageExtensionHelper.parseJsonStringToMap(message.getServerExtension());
-      if (remoteExt != null && remoteExt.containsKey(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY)) {
-        Object aitData = remoteExt.get(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
-        if (aitData instanceof Map) {
-          JSONObject aitJson = new JSONObject((Map) aitData);
-          return AtContactsModel.parseFromJson(aitJson);
-        }
-      }
+      // 返回新对象，调用方可以修改
+      return MessageExtension.of(message).newAitModel();
     }
     return null;
   }
@@ -655,17 +653,20 @@ public class MessageHelper {
     }
 
     SpannableString mSpannableString = new SpannableString(value);
-    Matcher matcher = ChatEmojiManager.INSTANCE.getPattern().matcher(value);
-    while (matcher.find()) {
-      int start = matcher.start();
-      int end = matcher.end();
-      String emote = value.substring(start, end);
-      Drawable d = ChatEmojiManager.INSTANCE.getEmoteDrawable(emote, scale);
-      if (d != null) {
-        ImageSpan span = new ImageSpan(d, align);
-        mSpannableString.setSpan(span, start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-      }
-    }
+    // 与表情初始化同时构建，未初始化时没有可替换的表情
+    EmojiMatcher emojiMatcher = EmojiManager.getMatcher();
+    if (emojiMatcher == null) {
+      return mSpannableString;
+    }
+    emojiMatcher.match(
+        value,
+        (start, end, emoji) -> {
+          Drawable d = EmojiManager.getEmoteDrawable(context, emoji, scale);
+          if (d != null) {
+            ImageSpan span = new ImageSpan(d, align);
+            mSpannableString.setSpan(span, start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+          }
+        });
     return mSpannableString;
   }
 
@@ -682,21 +683,24 @@ public class MessageHelper {
       Context context, SpannableString spannableString, int start, int count) {
     if (count <= 0 || spannableString.length() < start + count) return false;
 
-    boolean result = false;
-    CharSequence s = spannableString.subSequence(start, start + count);
-    Matcher matcher = ChatEmojiManager.INSTANCE.getPattern().matcher(s);
-    while (matcher.find()) {
-      int from = start + matcher.start();
-      int to = start + matcher.end();
-      String emote = spannableString.subSequence(from, to).toString();
-      Drawable d = ChatEmojiManager.INSTANCE.getEmoteDrawable(emote, SMALL_SCALE);
-      if (d != null) {
-        ImageSpan span = new ImageSpan(d, ImageSpan.ALIGN_CENTER);
-        spannableString.setSpan(span, from, to, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-        result = true;
-      }
+    EmojiMatcher emojiMatcher = EmojiManager.getMatcher();
+    if (emojiMatcher == null) {
+      return false;
     }
-    return result;
+    boolean[] replaced = new boolean[1];
+    emojiMatcher.match(
+        spannableString,
+        start,
+        start + count,
+        (from, to, emoji) -> {
+          Drawable d = EmojiManager.getEmoteDrawable(context, emoji, SMALL_SCALE);
+          if (d != null) {
+            ImageSpan span = new ImageSpan(d, ImageSpan.ALIGN_CENTER);
+            spannableString.setSpan(span, from, to, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+            replaced[0] = true;
+          }
+        });
+    return replaced[0];
   }
 
   public static Map<String, Object> createReplyExtension(
@@ -721,8 +725,7 @@ public class MessageHelper {
 
   public static void clearAitAndReplyInfo(V2NIMMessage message) {
     if (message != null && message.getServerExtension() != null) {
-      Map<String, Object> remote =
-          MessageExtensionHelper.parseJsonStringToMap(message.getServerExtension());
+      Map<String, Object> remote = MessageExtension.of(message).copyServerExtension();
       if (remote != null) {
         remote.remove(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY);
         remote.remove(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
@@ -868,89 +871,15 @@ public class MessageHelper {
     ALog.d(LIB_TAG, TAG, "saveLocalNotFriendCallTipMessageAndNotify:" + tipMessage.getCreateTime());
   }
 
-  // 创建合并转发消息体内容
+  // 创建合并转发消息体内容，不修改原消息，消息较多时使用 MultiForwardWriter 直接写入文件
   public static String createMultiForwardMsg(List<IMMessageInfo> msgList) {
-    if (msgList == null || msgList.isEmpty()) {
-      return "";
-    }
-
-    V2NIMConversationType conversationType = msgList.get(0).getMessage().getConversationType();
-
-    //    生成合并转发消息Str
-    List<V2NIMMessage> messageList = new ArrayList<>();
-    Map<String, Object> atMap = new HashMap<>();
-    Map<String, Object> replyMap = new HashMap<>();
-    for (int index = 0; index < msgList.size(); index++) {
-      IMMessageInfo info = msgList.get(index);
-      //  去除转发消息中的回复消息 和 @消息
-      Map<String, Object> extension =
-          MessageExtensionHelper.parseJsonStringToMap(info.getMessage().getServerExtension());
-      if (extension != null) {
-        if (extension.containsKey(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY)) {
-          Object replyContent = extension.remove(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY);
-          replyMap.put(info.getMessage().getMessageClientId(), replyContent);
-        }
-        if (extension.containsKey(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY)) {
-          Object atContent = extension.remove(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
-          atMap.put(info.getMessage().getMessageClientId(), atContent);
-        }
-      } else {
-        extension = new HashMap<>();
-      }
-      String name = null;
-      String avatar = null;
-      if (MessageHelper.getRealMessageSenderId(info.getMessage()).equals(IMKitClient.account())
-          && IMKitClient.currentUser() != null) {
-        //自己
-        name = IMKitClient.currentUser().getName();
-        avatar = IMKitClient.currentUser().getAvatar();
-      } else {
-        name =
-            MessageHelper.getUserNickByAccount(
-                MessageHelper.getRealMessageSenderId(info.getMessage()), conversationType);
-        avatar =
-            MessageHelper.getChatCacheAvatar(
-                MessageHelper.getRealMessageSenderId(info.getMessage()), conversationType);
-      }
-
-      extension.put(
-          ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_NICK,
-          name != null ? name : info.getMessage().getSenderId());
-      extension.put(
-          ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_AVATAR, avatar != null ? avatar : "");
-      info.getMessage().setServerExtension(new JSONObject(extension).toString());
-      messageList.add(info.getMessage());
-    }
-    String messageListStr = createForwardMessageListFileDetail(messageList);
-    for (int index = 0; index < msgList.size(); index++) {
-      IMMessageInfo info = msgList.get(index);
-      // 去除转发消息中的回复消息 和 @消息
-      Map<String, Object> extMap =
-          MessageExtensionHelper.parseJsonStringToMap(info.getMessage().getServerExtension());
-      if (replyMap.containsKey(info.getMessage().getMessageClientId())) {
-        if (extMap == null) {
-          extMap = new HashMap<>();
-        }
-        extMap.put(
-            ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY,
-            replyMap.get(info.getMessage().getMessageClientId()));
-      }
-      if (atMap.containsKey(info.getMessage().getMessageClientId())) {
-        if (extMap == null) {
-          extMap = new HashMap<>();
-        }
-        extMap.put(
-            ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY,
-            atMap.get(info.getMessage().getMessageClientId()));
-      }
-      if (extMap != null) {
-        extMap.remove(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_NICK);
-        extMap.remove(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_AVATAR);
-        info.getMessage().setServerExtension(new JSONObject(extMap).toString());
-      }
+    StringWriter writer = new StringWriter();
+    try {
+      MultiForwardWriter.write(writer, msgList);
+    } catch (IOException e) {
+      ALog.e(LIB_TAG, TAG, "createMultiForwardMsg error:" + e.getMessage());
     }
-
-    return messageListStr;
+    return writer.toString();
   }
 
   /**
@@ -969,21 +898,30 @@ public class MessageHelper {
     }
     List<V2NIMMessage> msgList = new ArrayList<>(messages.size());
     for (V2NIMMessage msg : messages) {
-      // 不是来自同一会话，不添加
-      if (!conversationId.equals(msg.getConversationId())) {
-        continue;
+      if (isForwardable(msg, conversationId)) {
+        msgList.add(msg);
       }
-      // 不是可以转发的类型，不添加
-      if (msg.getMessageType() == V2NIMMessageType.V2NIM_MESSAGE_TYPE_NOTIFICATION
-          || msg.getMessageType() == V2NIMMessageType.V2NIM_MESSAGE_TYPE_AVCHAT
-          || msg.getMessageType() == V2NIMMessageType.V2NIM_MESSAGE_TYPE_ROBOT) {
-        continue;
-      }
-      msgList.add(msg);
     }
     return buildHeader(0, msgList.size()) + "\n" + buildBody(msgList);
   }
 
+  /**
+   * 消息是否可以加入合并转发
+   *
+   * @param msg 消息
+   * @param conversationId 合并转发的来源会话
+   */
+  static boolean isForwardable(V2NIMMessage msg, String conversationId) {
+    // 不是来自同一会话，不添加
+    if (!conversationId.equals(msg.getConversationId())) {
+      return false;
+    }
+    // 不是可以转发的类型，不添加
+    return msg.getMessageType() != V2NIMMessageType.V2NIM_MESSAGE_TYPE_NOTIFICATION
+        && msg.getMessageType() != V2NIMMessageType.V2NIM_MESSAGE_TYPE_AVCHAT
+        && msg.getMessageType() != V2NIMMessageType.V2NIM_MESSAGE_TYPE_ROBOT;
+  }
+
   /**
    * 序列化文件的头部，占一行
    *
@@ -991,7 +929,7 @@ public class MessageHelper {
    * @param message_count 消息数目
    * @return 头部字符串
    */
-  private static String buildHeader(int version, int message_count) {
+  static String buildHeader(int version, int message_count) {
     JSONObject obj = new JSONObject();
     try {
       obj.put("version", version);
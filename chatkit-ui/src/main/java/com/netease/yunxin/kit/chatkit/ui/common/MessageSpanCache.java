@@ -0,0 +1,157 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.text.Spanned;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessage;
+import com.netease.nimlib.sdk.v2.message.enums.V2NIMMessageType;
+import com.netease.yunxin.kit.chatkit.IMKitConfigCenter;
+import com.netease.yunxin.kit.chatkit.ui.custom.RichTextAttachment;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import com.netease.yunxin.kit.corekit.im2.IMKitClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 消息文本渲染结果缓存，缓存表情图片和@高亮处理后的文本
+ *
+ * <p>按 messageClientId 缓存，同时记录版本号。版本号由文本内容、服务端扩展（@信息）、表情缩放、对齐方式、高亮颜色和深色模式计算，任一变化时缓存失效重新生成。消息撤回、删除时主动移除。
+ */
+public class MessageSpanCache {
+
+  // 最多缓存的消息数量
+  private static final int MAX_SIZE = 300;
+
+  private static final MessageSpanCache instance = new MessageSpanCache();
+
+  private final LruCache<String, Entry> cache = new LruCache<>(MAX_SIZE);
+
+  private final Executor prefetchExecutor = Executors.newSingleThreadExecutor();
+
+  private MessageSpanCache() {}
+
+  public static MessageSpanCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * 获取缓存，版本号不一致时返回null
+   *
+   * @param messageClientId 消息ID
+   * @param version 版本号，由 {@link #version} 计算
+   */
+  @Nullable
+  public Spanned get(String messageClientId, long version) {
+    if (TextUtils.isEmpty(messageClientId)) {
+      return null;
+    }
+    Entry entry = cache.get(messageClientId);
+    return entry != null && entry.version == version ? entry.spanned : null;
+  }
+
+  public void put(String messageClientId, long version, @NonNull Spanned spanned) {
+    if (TextUtils.isEmpty(messageClientId)) {
+      return;
+    }
+    cache.put(messageClientId, new Entry(version, spanned));
+  }
+
+  /** 移除消息的缓存，用于消息撤回、删除 */
+  public void invalidate(String messageClientId) {
+    if (!TextUtils.isEmpty(messageClientId)) {
+      cache.remove(messageClientId);
+    }
+  }
+
+  public void invalidate(List<String> messageClientIds) {
+    if (messageClientIds == null) {
+      return;
+    }
+    for (String messageClientId : messageClientIds) {
+      invalidate(messageClientId);
+    }
+  }
+
+  public void clear() {
+    cache.evictAll();
+  }
+
+  /**
+   * 后台线程预先生成文本消息和富文本消息的渲染结果
+   *
+   * @param messageList 新加载的消息
+   */
+  public void prefetch(List<ChatMessageBean> messageList) {
+    Context context = IMKitClient.getApplicationContext();
+    if (context == null
+        || messageList == null
+        || messageList.isEmpty()
+        || !IMKitConfigCenter.getEnableAtMessage()) {
+      return;
+    }
+    List<ChatMessageBean> prefetchList = new ArrayList<>(messageList);
+    prefetchExecutor.execute(
+        () -> {
+          for (ChatMessageBean bean : prefetchList) {
+            if (bean == null || bean.getMessageData() == null) {
+              continue;
+            }
+            V2NIMMessage message = bean.getMessageData().getMessage();
+            String content = null;
+            if (message.getMessageType() == V2NIMMessageType.V2NIM_MESSAGE_TYPE_TEXT) {
+              content = message.getText();
+            } else if (bean.getMessageData().getAttachment() instanceof RichTextAttachment) {
+              content = ((RichTextAttachment) bean.getMessageData().getAttachment()).body;
+            }
+            if (!TextUtils.isEmpty(content)) {
+              MessageHelper.getExpressionSpanned(context, content, message);
+            }
+          }
+        });
+  }
+
+  /**
+   * 计算渲染结果的版本号
+   *
+   * @param context 上下文，用于获取深色模式
+   * @param content 消息文本
+   * @param message 消息体，服务端扩展中包含@信息
+   * @param scale 表情缩放比例
+   * @param align 表情对齐方式
+   * @param color @高亮颜色
+   */
+  public static long version(
+      Context context, String content, V2NIMMessage message, float scale, int align, int color) {
+    int uiMode =
+        context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+    String serverExtension = message.getServerExtension();
+    long version = 17;
+    version = 31 * version + (content == null ? 0 : content.hashCode());
+    version = 31 * version + (serverExtension == null ? 0 : serverExtension.hashCode());
+    version = 31 * version + Float.floatToIntBits(scale);
+    version = 31 * version + align;
+    version = 31 * version + color;
+    version = 31 * version + uiMode;
+    return version;
+  }
+
+  private static final class Entry {
+    final long version;
+    final Spanned spanned;
+
+    Entry(long version, Spanned spanned) {
+      this.version = version;
+      this.spanned = spanned;
+    }
+  }
+}
@@ -0,0 +1,226 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import com.netease.nimlib.sdk.v2.conversation.enums.V2NIMConversationType;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessage;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessageConverter;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
+import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
+import com.netease.yunxin.kit.chatkit.ui.model.MessageExtension;
+import com.netease.yunxin.kit.corekit.im2.IMKitClient;
+import com.netease.yunxin.kit.corekit.im2.extend.FetchCallback;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+/**
+ * 合并转发消息序列化，逐条序列化消息并直接写入文件，写入的同时计算文件MD5
+ *
+ * <p>文件第一行为头部信息，之后每条消息一行。转发的消息去除回复和@信息，并在服务端扩展中加入发送者昵称和头像，序列化时使用消息副本，不修改原消息。
+ */
+public class MultiForwardWriter {
+
+  private static final String TAG = "MultiForwardWriter";
+
+  private static final String LINE_SEPARATOR = "\n";
+
+  private static final Executor writeExecutor = Executors.newSingleThreadExecutor();
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private MultiForwardWriter() {}
+
+  /**
+   * 后台线程写入文件，发送者昵称和头像在调用线程获取
+   *
+   * @param file 写入的文件
+   * @param msgList 转发的消息
+   * @param callback 主线程回调，成功时返回文件MD5
+   */
+  public static void writeToFileAsync(
+      @NonNull File file,
+      @NonNull List<IMMessageInfo> msgList,
+      @NonNull FetchCallback<String> callback) {
+    List<IMMessageInfo> writeList = new ArrayList<>(msgList);
+    Map<String, SenderInfo> senderInfoMap = loadSenderInfo(writeList);
+    writeExecutor.execute(
+        () -> {
+          try {
+            String md5 = writeToFile(file, writeList, senderInfoMap);
+            mainHandler.post(() -> callback.onSuccess(md5));
+          } catch (IOException e) {
+            ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "writeToFileAsync error:" + e.getMessage());
+            mainHandler.post(() -> callback.onError(-1, e.getMessage()));
+          }
+        });
+  }
+
+  /**
+   * 写入文件
+   *
+   * @param file 写入的文件
+   * @param msgList 转发的消息
+   * @return 文件MD5
+   */
+  @NonNull
+  public static String writeToFile(@NonNull File file, @NonNull List<IMMessageInfo> msgList)
+      throws IOException {
+    return writeToFile(file, msgList, loadSenderInfo(msgList));
+  }
+
+  /**
+   * 写入到 Writer，不关闭 Writer
+   *
+   * @param writer 写入目标
+   * @param msgList 转发的消息
+   */
+  public static void write(@NonNull Writer writer, List<IMMessageInfo> msgList)
+      throws IOException {
+    write(writer, msgList, loadSenderInfo(msgList));
+  }
+
+  private static String writeToFile(
+      File file, List<IMMessageInfo> msgList, Map<String, SenderInfo> senderInfoMap)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(
+                new DigestOutputStream(new FileOutputStream(file), digest),
+                StandardCharsets.UTF_8))) {
+      write(writer, msgList, senderInfoMap);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static void write(
+      Writer writer, List<IMMessageInfo> msgList, Map<String, SenderInfo> senderInfoMap)
+      throws IOException {
+    if (msgList == null || msgList.isEmpty()) {
+      return;
+    }
+    String conversationId = msgList.get(0).getMessage().getConversationId();
+    if (conversationId == null) {
+      return;
+    }
+    List<V2NIMMessage> forwardList = new ArrayList<>(msgList.size());
+    for (IMMessageInfo info : msgList) {
+      if (MessageHelper.isForwardable(info.getMessage(), conversationId)) {
+        forwardList.add(info.getMessage());
+      }
+    }
+    writer.write(MessageHelper.buildHeader(0, forwardList.size()));
+    writer.write(LINE_SEPARATOR);
+    for (int index = 0; index < forwardList.size(); index++) {
+      if (index > 0) {
+        writer.write(LINE_SEPARATOR);
+      }
+      V2NIMMessage message = forwardList.get(index);
+      writer.write(
+          serialize(message, senderInfoMap.get(MessageHelper.getRealMessageSenderId(message))));
+    }
+  }
+
+  // 序列化消息副本，去除回复和@信息，加入发送者昵称和头像
+  private static String serialize(V2NIMMessage message, SenderInfo senderInfo) {
+    String data = V2NIMMessageConverter.messageSerialization(message);
+    V2NIMMessage copy = V2NIMMessageConverter.messageDeserialization(data);
+    if (copy == null) {
+      ALog.e(
+          ChatKitUIConstant.LIB_TAG, TAG, "serialize copy failed:" + message.getMessageClientId());
+      return data;
+    }
+    Map<String, Object> extension = MessageExtension.of(message).copyServerExtension();
+    if (extension == null) {
+      extension = new HashMap<>();
+    }
+    extension.remove(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY);
+    extension.remove(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
+    extension.put(
+        ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_NICK,
+        senderInfo != null ? senderInfo.name : message.getSenderId());
+    extension.put(
+        ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_AVATAR,
+        senderInfo != null ? senderInfo.avatar : "");
+    copy.setServerExtension(new JSONObject(extension).toString());
+    return V2NIMMessageConverter.messageSerialization(copy);
+  }
+
+  // 按发送者获取昵称和头像，同一发送者只获取一次
+  private static Map<String, SenderInfo> loadSenderInfo(List<IMMessageInfo> msgList) {
+    Map<String, SenderInfo> senderInfoMap = new HashMap<>();
+    if (msgList == null || msgList.isEmpty()) {
+      return senderInfoMap;
+    }
+    V2NIMConversationType conversationType = msgList.get(0).getMessage().getConversationType();
+    for (IMMessageInfo info : msgList) {
+      String senderId = MessageHelper.getRealMessageSenderId(info.getMessage());
+      if (senderInfoMap.containsKey(senderId)) {
+        continue;
+      }
+      String name;
+      String avatar;
+      if (TextUtils.equals(senderId, IMKitClient.account()) && IMKitClient.currentUser() != null) {
+        //自己
+        name = IMKitClient.currentUser().getName();
+        avatar = IMKitClient.currentUser().getAvatar();
+      } else {
+        name = MessageHelper.getUserNickByAccount(senderId, conversationType);
+        avatar = MessageHelper.getChatCacheAvatar(senderId, conversationType);
+      }
+      senderInfoMap.put(
+          senderId,
+          new SenderInfo(
+              name != null ? name : info.getMessage().getSenderId(),
+              avatar != null ? avatar : ""));
+    }
+    return senderInfoMap;
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] hexChars = "0123456789abcdef".toCharArray();
+    char[] result = new char[bytes.length * 2];
+    for (int index = 0; index < bytes.length; index++) {
+      result[index * 2] = hexChars[(bytes[index] >> 4) & 0x0f];
+      result[index * 2 + 1] = hexChars[bytes[index] & 0x0f];
+    }
+    return new String(result);
+  }
+
+  private static final class SenderInfo {
+    final String name;
+    final String avatar;
+
+    SenderInfo(String name, String avatar) {
+      this.name = name;
+      this.avatar = avatar;
+    }
+  }
+}
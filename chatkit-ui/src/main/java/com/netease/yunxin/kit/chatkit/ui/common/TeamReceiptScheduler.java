@@ -0,0 +1,174 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessage;
+import com.netease.nimlib.sdk.v2.message.V2NIMTeamMessageReadReceipt;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 群消息已读回执刷新调度，主线程使用
+ *
+ * <p>滚动过程中可见消息先合并到待请求队列，延迟后批量请求；有效期内已获取过回执或已全部已读的消息不再请求，
+ * 并限制每秒请求次数。收到的回执推送同样写入缓存，避免重复请求。
+ */
+public class TeamReceiptScheduler {
+
+  private static final String TAG = "TeamReceiptScheduler";
+
+  // 合并滚动事件的等待时间
+  private static final long BATCH_DELAY_MS = 300;
+
+  // 回执有效期，有效期内不重复请求
+  private static final long RECEIPT_TTL_MS = 10 * 1000;
+
+  // 两次请求的最小间隔
+  private static final long MIN_REQUEST_INTERVAL_MS = 1000;
+
+  // 单次请求的最大消息数
+  private static final int MAX_BATCH_SIZE = 50;
+
+  // 缓存的最大消息数
+  private static final int MAX_CACHE_SIZE = 1000;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private final Map<String, V2NIMMessage> pendingMessages = new LinkedHashMap<>();
+
+  // clientId -> 最近一次获取回执的时间
+  private final Map<String, Long> receiptTimeCache =
+      new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+          return size() > MAX_CACHE_SIZE;
+        }
+      };
+
+  // 已全部已读的消息，与回执时间缓存同样按最近使用淘汰
+  private final Set<String> allReadMessages =
+      Collections.newSetFromMap(
+          new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+              return size() > MAX_CACHE_SIZE;
+            }
+          });
+
+  private long lastRequestTime;
+
+  private boolean flushScheduled;
+
+  private final Runnable flushRunnable =
+      () -> {
+        flushScheduled = false;
+        flush();
+      };
+
+  /**
+   * 提交需要刷新回执的消息
+   *
+   * @param messageBeans 消息
+   * @param force 是否忽略有效期，如断网重连后需要强制刷新
+   */
+  public void submit(List<ChatMessageBean> messageBeans, boolean force) {
+    if (messageBeans == null || messageBeans.isEmpty()) {
+      return;
+    }
+    long now = SystemClock.elapsedRealtime();
+    for (ChatMessageBean messageBean : messageBeans) {
+      if (messageBean == null || messageBean.getMessageData() == null) {
+        continue;
+      }
+      V2NIMMessage message = messageBean.getMessageData().getMessage();
+      String clientId = message.getMessageClientId();
+      if (allReadMessages.contains(clientId)) {
+        continue;
+      }
+      if (!force && isFresh(clientId, now)) {
+        continue;
+      }
+      pendingMessages.put(clientId, message);
+    }
+    scheduleFlush(BATCH_DELAY_MS);
+  }
+
+  /**
+   * 合并回执结果，包括主动获取和推送的回执
+   *
+   * @param readReceipts 回执
+   */
+  public void onReceipts(List<V2NIMTeamMessageReadReceipt> readReceipts) {
+    if (readReceipts == null) {
+      return;
+    }
+    long now = SystemClock.elapsedRealtime();
+    for (V2NIMTeamMessageReadReceipt receipt : readReceipts) {
+      String clientId = receipt.getMessageClientId();
+      receiptTimeCache.put(clientId, now);
+      pendingMessages.remove(clientId);
+      if (receipt.getUnreadCount() == 0) {
+        allReadMessages.add(clientId);
+      }
+    }
+  }
+
+  /** 释放，页面销毁时调用 */
+  public void release() {
+    handler.removeCallbacks(flushRunnable);
+    flushScheduled = false;
+    pendingMessages.clear();
+    receiptTimeCache.clear();
+    allReadMessages.clear();
+  }
+
+  private boolean isFresh(String clientId, long now) {
+    Long time = receiptTimeCache.get(clientId);
+    return time != null && now - time < RECEIPT_TTL_MS;
+  }
+
+  private void scheduleFlush(long delay) {
+    if (flushScheduled || pendingMessages.isEmpty()) {
+      return;
+    }
+    long sinceLast = SystemClock.elapsedRealtime() - lastRequestTime;
+    long wait = Math.max(delay, MIN_REQUEST_INTERVAL_MS - sinceLast);
+    flushScheduled = true;
+    handler.postDelayed(flushRunnable, wait);
+  }
+
+  private void flush() {
+    if (pendingMessages.isEmpty()) {
+      return;
+    }
+    long now = SystemClock.elapsedRealtime();
+    List<V2NIMMessage> messages = new ArrayList<>();
+    Iterator<Map.Entry<String, V2NIMMessage>> iterator = pendingMessages.entrySet().iterator();
+    while (iterator.hasNext() && messages.size() < MAX_BATCH_SIZE) {
+      Map.Entry<String, V2NIMMessage> entry = iterator.next();
+      iterator.remove();
+      messages.add(entry.getValue());
+      // 请求发出即视为已获取，避免结果返回前重复请求
+      receiptTimeCache.put(entry.getKey(), now);
+    }
+    lastRequestTime = now;
+    ALog.d(LIB_TAG, TAG, "flush:" + messages.size() + ",pending:" + pendingMessages.size());
+    ChatRepo.getTeamMessageReceipts(messages);
+    scheduleFlush(MIN_REQUEST_INTERVAL_MS);
+  }
+}
@@ -311,6 +311,9 @@ public class FunChatView extends LinearLayout implements IChatView, AitTextChang
     if (config != null) {
       binding.messageView.setMessageProperties(config.messageProperties);
       binding.chatBottomInputLayout.setInputProperties(config.inputProperties);
+      if (config.messageWindowSize != null) {
+        binding.messageView.setMessageWindowSize(config.messageWindowSize);
+      }
     }
   }
 
@@ -16,9 +16,7 @@ import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.databinding.FunChatMessageTipViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
-import com.netease.yunxin.kit.chatkit.utils.MessageExtensionHelper;
 import com.netease.yunxin.kit.corekit.im2.IMKitClient;
-import java.util.Map;
 
 /** view holder for Text message */
 public class ChatTipsMessageViewHolder extends FunChatBaseMessageViewHolder {
@@ -83,11 +81,9 @@ public class ChatTipsMessageViewHolder extends FunChatBaseMessageViewHolder {
             parent.getContext(), message.getMessageData().getMessage());
     if (content == null || content.isEmpty()) {
       // create team tip
-      Map<String, Object> extension =
-          MessageExtensionHelper.parseJsonStringToMap(
-              message.getMessageData().getMessage().getServerExtension());
-      if (extension != null && extension.get(KEY_TEAM_CREATED_TIP) != null) {
-        content = extension.get(KEY_TEAM_CREATED_TIP).toString();
+      Object createdTip = message.getExtension().getServerValue(KEY_TEAM_CREATED_TIP);
+      if (createdTip != null) {
+        content = createdTip.toString();
       }
     }
     if (content != null && !content.isEmpty()) {
@@ -4,28 +4,17 @@
 
 package com.netease.yunxin.kit.chatkit.ui.model;
 
-import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
-import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_EDIT_TAG;
-import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_TAG;
-import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_TIME_TAG;
-
 import android.text.TextUtils;
-import com.netease.nimlib.sdk.v2.conversation.enums.V2NIMConversationType;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessage;
 import com.netease.nimlib.sdk.v2.message.V2NIMMessagePin;
 import com.netease.nimlib.sdk.v2.message.V2NIMMessageRefer;
-import com.netease.nimlib.sdk.v2.message.V2NIMMessageReferBuilder;
 import com.netease.nimlib.sdk.v2.message.config.V2NIMMessageAIConfig;
 import com.netease.nimlib.sdk.v2.message.enums.V2NIMMessageAIStatus;
 import com.netease.nimlib.sdk.v2.message.enums.V2NIMMessageType;
-import com.netease.nimlib.sdk.v2.utils.V2NIMConversationIdUtil;
-import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.model.CustomAttachment;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.model.MessagePinInfo;
-import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
-import com.netease.yunxin.kit.chatkit.utils.MessageExtensionHelper;
 import java.io.Serializable;
-import java.util.Map;
 import java.util.Objects;
 
 /** this bean for UI show message， only IMMessageInfo will store in db */
@@ -38,28 +27,7 @@ public class ChatMessageBean implements Serializable {
     if (messageData == null) {
       return;
     }
-    Map<String, Object> localExtensionMap =
-        MessageExtensionHelper.parseJsonStringToMap(messageData.getMessage().getLocalExtension());
-
-    if (localExtensionMap != null && localExtensionMap.containsKey(KEY_REVOKE_TAG)) {
-      Object revokeLocal = localExtensionMap.get(KEY_REVOKE_TAG);
-      Object revokeEdit = localExtensionMap.get(KEY_REVOKE_EDIT_TAG);
-      Object revokeTime = localExtensionMap.get(KEY_REVOKE_TIME_TAG);
-      if (revokeLocal instanceof Boolean) {
-        isRevoked = (Boolean) revokeLocal;
-      }
-
-      if (revokeEdit instanceof Boolean) {
-        revokeMsgEdit = (Boolean) revokeEdit;
-      }
-
-      if (revokeTime instanceof Integer) {
-        revokeMsgTime = (Integer) revokeTime;
-      } else if (revokeTime instanceof Long) {
-        revokeMsgTime = (Long) revokeTime;
-      }
-    }
-
+    initRevokeInfo();
     initReplyMessage();
   }
 
@@ -88,6 +56,9 @@ public class ChatMessageBean implements Serializable {
   //语音转文字结果，默认是空
   private String voiceToText;
 
+  // 扩展字段解析结果
+  private transient MessageExtension extension;
+
   public void setVoiceToText(String voiceToText) {
     this.voiceToText = voiceToText;
   }
@@ -121,29 +92,7 @@ public class ChatMessageBean implements Serializable {
     if (messageData == null) {
       return;
     }
-    Map<String, Object> localExtensionMap =
-        MessageExtensionHelper.parseJsonStringToMap(messageData.getMessage().getLocalExtension());
-
-    if (localExtensionMap != null && localExtensionMap.containsKey(KEY_REVOKE_TAG)) {
-      Object revokeLocal = localExtensionMap.get(KEY_REVOKE_TAG);
-      Object revokeEdit = localExtensionMap.get(KEY_REVOKE_EDIT_TAG);
-      Object revokeTime = localExtensionMap.get(KEY_REVOKE_TIME_TAG);
-
-      if (revokeLocal instanceof Boolean) {
-        isRevoked = (Boolean) revokeLocal;
-      }
-
-      if (revokeEdit instanceof Boolean) {
-        revokeMsgEdit = (Boolean) revokeEdit;
-      }
-
-      if (revokeTime instanceof Integer) {
-        revokeMsgTime = (Integer) revokeTime;
-      } else if (revokeTime instanceof Long) {
-        revokeMsgTime = (Long) revokeTime;
-      }
-    }
-
+    initRevokeInfo();
     initReplyMessage();
   }
 
@@ -163,6 +112,41 @@ public class ChatMessageBean implements Serializable {
     replyMessage = msg;
   }
 
+  /**
+   * 消息扩展字段的解析结果，扩展字段变化后重新解析
+   *
+   * @return 解析结果，不可修改
+   */
+  public MessageExtension getExtension() {
+    V2NIMMessage message = messageData == null ? null : messageData.getMessage();
+    MessageExtension current = extension;
+    if (current == null || !current.matches(message)) {
+      current = MessageExtension.of(message);
+      extension = current;
+    }
+    return current;
+  }
+
+  private void initRevokeInfo() {
+    MessageExtension messageExtension = getExtension();
+    if (messageExtension.hasRevokeInfo()) {
+      Boolean revokeLocal = messageExtension.getRevoked();
+      Boolean revokeEdit = messageExtension.getRevokeEdit();
+      Long revokeTime = messageExtension.getRevokeTime();
+      if (revokeLocal != null) {
+        isRevoked = revokeLocal;
+      }
+
+      if (revokeEdit != null) {
+        revokeMsgEdit = revokeEdit;
+      }
+
+      if (revokeTime != null) {
+        revokeMsgTime = revokeTime;
+      }
+    }
+  }
+
   private void initReplyMessage() {
     if (messageData != null) {
       // 优先取threadReply
@@ -170,56 +154,12 @@ public class ChatMessageBean implements Serializable {
         replyMessageRefer = messageData.getMessage().getThreadReply();
         hasReply = true;
       }
-      Map<String, Object> serverExtensionMap =
-          MessageExtensionHelper.parseJsonStringToMap(
-              messageData.getMessage().getServerExtension());
-      hasReply =
-          serverExtensionMap != null
-              && serverExtensionMap.containsKey(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY);
-      if (serverExtensionMap != null
-          && serverExtensionMap.containsKey(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY)) {
-        Object replyInfo = serverExtensionMap.get(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY);
-        if (replyInfo instanceof Map) {
-          String clientId = "";
-          String senderId = "";
-          String serverId = "";
-          long time = 0;
-          String conversationId = "";
-          String receiveId = "";
-          V2NIMConversationType conversationType =
-              V2NIMConversationType.V2NIM_CONVERSATION_TYPE_P2P;
-          try {
-            Map<String, Object> replyMap = (Map<String, Object>) replyInfo;
-            if (replyMap.containsKey(ChatKitUIConstant.REPLY_UUID_KEY)) {
-              clientId = (String) replyMap.get(ChatKitUIConstant.REPLY_UUID_KEY);
-              senderId = (String) replyMap.get(ChatKitUIConstant.REPLY_FROM_KEY);
-              serverId = (String) replyMap.get(ChatKitUIConstant.REPLY_SERVER_ID_KEY);
-              time = (long) replyMap.get(ChatKitUIConstant.REPLY_TIME_KEY);
-              conversationId = (String) replyMap.get(ChatKitUIConstant.REPLY_TO_KEY);
-              receiveId =
-                  replyMap.get(ChatKitUIConstant.REPLY_RECEIVE_ID_KEY) == null
-                      ? V2NIMConversationIdUtil.conversationTargetId(conversationId)
-                      : (String) replyMap.get(ChatKitUIConstant.REPLY_RECEIVE_ID_KEY);
-              conversationType = V2NIMConversationIdUtil.conversationType(conversationId);
-            }
-          } catch (Exception e) {
-            ALog.e(
-                LIB_TAG,
-                "V2ChatMessageBean",
-                "getReplyUUid,error message"
-                    + (messageData == null
-                        ? "null"
-                        : messageData.getMessage().getMessageClientId()));
-          }
-          replyMessageRefer =
-              V2NIMMessageReferBuilder.builder()
-                  .withMessageClientId(clientId)
-                  .withSenderId(senderId)
-                  .withReceiverId(receiveId)
-                  .withConversationType(conversationType)
-                  .withMessageServerId(serverId)
-                  .withCreateTime(time)
-                  .build();
+      MessageExtension messageExtension = getExtension();
+      hasReply = messageExtension.hasReply();
+      if (hasReply) {
+        V2NIMMessageRefer refer = messageExtension.getReplyRefer();
+        if (refer != null) {
+          replyMessageRefer = refer;
         }
       }
     }
@@ -0,0 +1,290 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.model;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_CONTENT_TAG;
+import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_EDIT_TAG;
+import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_RICH_CONTENT_TAG;
+import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_TAG;
+import static com.netease.yunxin.kit.corekit.im2.utils.RouterConstant.KEY_REVOKE_TIME_TAG;
+
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import com.netease.nimlib.sdk.v2.conversation.enums.V2NIMConversationType;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessage;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessageRefer;
+import com.netease.nimlib.sdk.v2.message.V2NIMMessageReferBuilder;
+import com.netease.nimlib.sdk.v2.utils.V2NIMConversationIdUtil;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
+import com.netease.yunxin.kit.chatkit.ui.model.ait.AtContactsModel;
+import com.netease.yunxin.kit.chatkit.utils.MessageExtensionHelper;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * 消息扩展字段解析结果，服务端扩展和本地扩展分别在首次使用时解析一次
+ *
+ * <p>通过 {@link #of(V2NIMMessage)} 获取，按 messageClientId 缓存，扩展字段内容变化后重新解析。返回的结果为共享对象，不可修改，需要修改时使用
+ * {@link #copyServerExtension()}、{@link #copyLocalExtension()}。
+ */
+public final class MessageExtension {
+
+  private static final String TAG = "MessageExtension";
+
+  // 语音消息是否已播放，保存在本地扩展
+  public static final String KEY_AUDIO_READ = "audioMessageHaveRead";
+
+  // 最多缓存的消息数量
+  private static final int MAX_CACHE_SIZE = 500;
+
+  private static final LruCache<String, MessageExtension> cache = new LruCache<>(MAX_CACHE_SIZE);
+
+  private final String serverExtension;
+  private final String localExtension;
+
+  private Map<String, Object> serverMap;
+  private Map<String, Object> localMap;
+
+  private boolean replyParsed;
+  private V2NIMMessageRefer replyRefer;
+
+  private boolean aitParsed;
+  private AtContactsModel aitModel;
+
+  private MessageExtension(String serverExtension, String localExtension) {
+    this.serverExtension = serverExtension;
+    this.localExtension = localExtension;
+  }
+
+  /**
+   * 获取消息的扩展字段解析结果
+   *
+   * @param message 消息体
+   */
+  @NonNull
+  public static MessageExtension of(@Nullable V2NIMMessage message) {
+    if (message == null) {
+      return new MessageExtension(null, null);
+    }
+    String serverExtension = message.getServerExtension();
+    String localExtension = message.getLocalExtension();
+    String clientId = message.getMessageClientId();
+    if (TextUtils.isEmpty(clientId)) {
+      return new MessageExtension(serverExtension, localExtension);
+    }
+    MessageExtension extension = cache.get(clientId);
+    if (extension == null || !extension.matches(serverExtension, localExtension)) {
+      extension = new MessageExtension(serverExtension, localExtension);
+      cache.put(clientId, extension);
+    }
+    return extension;
+  }
+
+  /** 扩展字段是否与消息当前的扩展字段一致 */
+  public boolean matches(@Nullable V2NIMMessage message) {
+    return message != null
+        && matches(message.getServerExtension(), message.getLocalExtension());
+  }
+
+  private boolean matches(String serverExtension, String localExtension) {
+    return TextUtils.equals(this.serverExtension, serverExtension)
+        && TextUtils.equals(this.localExtension, localExtension);
+  }
+
+  /** 服务端扩展，不可修改 */
+  @NonNull
+  public synchronized Map<String, Object> getServerExtension() {
+    if (serverMap == null) {
+      serverMap = parse(serverExtension);
+    }
+    return serverMap;
+  }
+
+  /** 本地扩展，不可修改 */
+  @NonNull
+  public synchronized Map<String, Object> getLocalExtension() {
+    if (localMap == null) {
+      localMap = parse(localExtension);
+    }
+    return localMap;
+  }
+
+  /** 服务端扩展的副本，无扩展时返回null */
+  @Nullable
+  public Map<String, Object> copyServerExtension() {
+    Map<String, Object> map = getServerExtension();
+    return map.isEmpty() ? null : new HashMap<>(map);
+  }
+
+  /** 本地扩展的副本，无扩展时返回null */
+  @Nullable
+  public Map<String, Object> copyLocalExtension() {
+    Map<String, Object> map = getLocalExtension();
+    return map.isEmpty() ? null : new HashMap<>(map);
+  }
+
+  @Nullable
+  public Object getServerValue(String key) {
+    return getServerExtension().get(key);
+  }
+
+  @Nullable
+  public Object getLocalValue(String key) {
+    return getLocalExtension().get(key);
+  }
+
+  /** 服务端扩展中是否包含回复信息 */
+  public boolean hasReply() {
+    return getServerExtension().containsKey(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY);
+  }
+
+  /** 服务端扩展中的被回复消息 */
+  @Nullable
+  public synchronized V2NIMMessageRefer getReplyRefer() {
+    if (!replyParsed) {
+      replyParsed = true;
+      replyRefer = parseReply(getServerValue(ChatKitUIConstant.REPLY_REMOTE_EXTENSION_KEY));
+    }
+    return replyRefer;
+  }
+
+  /** 服务端扩展中的@信息，共享对象不可修改，需要修改时使用 {@link #newAitModel()} */
+  @Nullable
+  public synchronized AtContactsModel getAitModel() {
+    if (!aitParsed) {
+      aitParsed = true;
+      aitModel = newAitModel();
+    }
+    return aitModel;
+  }
+
+  /** 根据服务端扩展中的@信息创建新的对象 */
+  @Nullable
+  public AtContactsModel newAitModel() {
+    Object aitData = getServerValue(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
+    if (aitData instanceof Map) {
+      return AtContactsModel.parseFromJson(new JSONObject((Map) aitData));
+    }
+    return null;
+  }
+
+  /** 合并转发消息中的发送者昵称 */
+  @Nullable
+  public String getMergeNick() {
+    Object nick = getServerValue(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_NICK);
+    return nick == null ? null : nick.toString();
+  }
+
+  /** 合并转发消息中的发送者头像 */
+  @Nullable
+  public String getMergeAvatar() {
+    Object avatar = getServerValue(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_AVATAR);
+    return avatar == null ? null : avatar.toString();
+  }
+
+  /** 本地扩展中是否有撤回信息 */
+  public boolean hasRevokeInfo() {
+    return getLocalExtension().containsKey(KEY_REVOKE_TAG);
+  }
+
+  /** 本地扩展中的撤回标记，没有时返回null */
+  @Nullable
+  public Boolean getRevoked() {
+    Object revoked = getLocalValue(KEY_REVOKE_TAG);
+    return revoked instanceof Boolean ? (Boolean) revoked : null;
+  }
+
+  /** 本地扩展中的撤回后是否可编辑，没有时返回null */
+  @Nullable
+  public Boolean getRevokeEdit() {
+    Object revokeEdit = getLocalValue(KEY_REVOKE_EDIT_TAG);
+    return revokeEdit instanceof Boolean ? (Boolean) revokeEdit : null;
+  }
+
+  /** 本地扩展中的撤回时间，没有时返回null */
+  @Nullable
+  public Long getRevokeTime() {
+    Object revokeTime = getLocalValue(KEY_REVOKE_TIME_TAG);
+    if (revokeTime instanceof Integer || revokeTime instanceof Long) {
+      return ((Number) revokeTime).longValue();
+    }
+    return null;
+  }
+
+  /** 本地扩展中撤回前的文本内容 */
+  @Nullable
+  public String getRevokeContent() {
+    Object content = getLocalValue(KEY_REVOKE_CONTENT_TAG);
+    return content instanceof String ? (String) content : null;
+  }
+
+  /** 本地扩展中撤回前的富文本内容 */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public Map<String, String> getRevokeRichContent() {
+    Object content = getLocalValue(KEY_REVOKE_RICH_CONTENT_TAG);
+    return content instanceof Map ? (Map<String, String>) content : null;
+  }
+
+  /** 本地扩展中语音消息是否已播放，没有时返回null */
+  @Nullable
+  public Boolean getAudioRead() {
+    Object read = getLocalValue(KEY_AUDIO_READ);
+    return read instanceof Boolean ? (Boolean) read : null;
+  }
+
+  private static Map<String, Object> parse(String extension) {
+    if (TextUtils.isEmpty(extension)) {
+      return Collections.emptyMap();
+    }
+    Map<String, Object> map = MessageExtensionHelper.parseJsonStringToMap(extension);
+    return map == null ? Collections.emptyMap() : Collections.unmodifiableMap(map);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V2NIMMessageRefer parseReply(Object replyInfo) {
+    if (!(replyInfo instanceof Map)) {
+      return null;
+    }
+    String clientId = "";
+    String senderId = "";
+    String serverId = "";
+    long time = 0;
+    String conversationId = "";
+    String receiveId = "";
+    V2NIMConversationType conversationType = V2NIMConversationType.V2NIM_CONVERSATION_TYPE_P2P;
+    try {
+      Map<String, Object> replyMap = (Map<String, Object>) replyInfo;
+      if (replyMap.containsKey(ChatKitUIConstant.REPLY_UUID_KEY)) {
+        clientId = (String) replyMap.get(ChatKitUIConstant.REPLY_UUID_KEY);
+        senderId = (String) replyMap.get(ChatKitUIConstant.REPLY_FROM_KEY);
+        serverId = (String) replyMap.get(ChatKitUIConstant.REPLY_SERVER_ID_KEY);
+        time = ((Number) replyMap.get(ChatKitUIConstant.REPLY_TIME_KEY)).longValue();
+        conversationId = (String) replyMap.get(ChatKitUIConstant.REPLY_TO_KEY);
+        receiveId =
+            replyMap.get(ChatKitUIConstant.REPLY_RECEIVE_ID_KEY) == null
+                ? V2NIMConversationIdUtil.conversationTargetId(conversationId)
+                : (String) replyMap.get(ChatKitUIConstant.REPLY_RECEIVE_ID_KEY);
+        conversationType = V2NIMConversationIdUtil.conversationType(conversationId);
+      }
+    } catch (Exception e) {
+      ALog.e(LIB_TAG, TAG, "parseReply error:" + e);
+    }
+    return V2NIMMessageReferBuilder.builder()
+        .withMessageClientId(clientId)
+        .withSenderId(senderId)
+        .withReceiverId(receiveId)
+        .withConversationType(conversationType)
+        .withMessageServerId(serverId)
+        .withCreateTime(time)
+        .build();
+  }
+}
@@ -212,20 +212,15 @@ public class ChatTeamFragment extends NormalChatFragment {
           List<ChatMessageBean> messageList = chatView.getMessageList();
           List<ChatMessageBean> updateMessage = new ArrayList<>();
           for (V2NIMTeamMessageReadReceipt receiptInfo : listFetchResult.getData()) {
-            String msgId = receiptInfo.getMessageClientId();
-            for (ChatMessageBean messageBean : messageList) {
-              if (messageBean != null
-                  && messageBean.getMessageData() != null
-                  && TextUtils.equals(
-                      messageBean.getMessageData().getMessage().getMessageClientId(), msgId)) {
-                // 更新消息已读状态，判断已读书的变化，过滤已读数变小的case
-                if (receiptInfo.getReadCount() >= messageBean.getMessageData().getReadCount()) {
-                  messageBean.getMessageData().setReadCount(receiptInfo.getReadCount());
-                  messageBean.getMessageData().setUnReadCount(receiptInfo.getUnreadCount());
-                }
-                updateMessage.add(messageBean);
-                break;
+            ChatMessageBean messageBean =
+                chatView.getMessageListView().searchMessage(receiptInfo.getMessageClientId());
+            if (messageBean != null && messageBean.getMessageData() != null) {
+              // 更新消息已读状态，判断已读书的变化，过滤已读数变小的case
+              if (receiptInfo.getReadCount() >= messageBean.getMessageData().getReadCount()) {
+                messageBean.getMessageData().setReadCount(receiptInfo.getReadCount());
+                messageBean.getMessageData().setUnReadCount(receiptInfo.getUnreadCount());
               }
+              updateMessage.add(messageBean);
             }
           }
           ALog.d(LIB_TAG, TAG, "TeamMessageReceiptLiveData,observer,msgList:" + messageList.size());
@@ -321,6 +321,9 @@ public class ChatView extends LinearLayout implements IChatView, AitTextChangeLi
     if (config != null) {
       binding.messageView.setMessageProperties(config.messageProperties);
       binding.chatBottomInputLayout.setInputProperties(config.inputProperties);
+      if (config.messageWindowSize != null) {
+        binding.messageView.setMessageWindowSize(config.messageWindowSize);
+      }
     }
   }
 
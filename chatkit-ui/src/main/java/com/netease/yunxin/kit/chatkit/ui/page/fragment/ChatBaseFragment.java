@@ -1442,9 +1442,7 @@ public abstract class ChatBaseFragment extends BaseFragment {
         == V2NIMMessageType.V2NIM_MESSAGE_TYPE_VIDEO) {
       boolean isOpen = ChatUtils.watchVideo(getContext(), messageInfo);
       if (!isOpen && isReply) {
-        chatView
-            .getMessageListView()
-            .scrollToMessage(messageInfo.getMessage().getMessageClientId());
+        scrollToReplyMessage(messageInfo);
       }
     } else if (messageInfo.getMessage().getMessageType()
         == V2NIMMessageType.V2NIM_MESSAGE_TYPE_LOCATION) {
@@ -1457,9 +1455,7 @@ public abstract class ChatBaseFragment extends BaseFragment {
         == V2NIMMessageType.V2NIM_MESSAGE_TYPE_FILE) {
       boolean isOpen = ChatUtils.openFile(getContext(), messageInfo);
       if (!isOpen && isReply) {
-        chatView
-            .getMessageListView()
-            .scrollToMessage(messageInfo.getMessage().getMessageClientId());
+        scrollToReplyMessage(messageInfo);
       }
     } else if (messageInfo.getMessage().getMessageType()
         == V2NIMMessageType.V2NIM_MESSAGE_TYPE_CALL) {
@@ -1504,13 +1500,24 @@ public abstract class ChatBaseFragment extends BaseFragment {
       }
     } else {
       if (isReply) {
-        chatView
-            .getMessageListView()
-            .scrollToMessage(messageInfo.getMessage().getMessageClientId());
+        scrollToReplyMessage(messageInfo);
       }
     }
   }
 
+  /**
+   * 滚动到被回复的消息，开启消息窗口时该消息可能已被移出列表，此时以其为锚点重新加载
+   *
+   * @param messageInfo 被回复的消息
+   */
+  protected void scrollToReplyMessage(IMMessageInfo messageInfo) {
+    ChatMessageListView messageListView = chatView.getMessageListView();
+    if (!messageListView.scrollToMessage(messageInfo.getMessage().getMessageClientId())
+        && messageListView.isMessageWindowEnabled()) {
+      scrollToMessage(messageInfo);
+    }
+  }
+
   protected void startCall(int type) {
     if (conversationType == V2NIMConversationType.V2NIM_CONVERSATION_TYPE_P2P
         && viewModel instanceof ChatP2PViewModel) {
@@ -1944,6 +1951,9 @@ public abstract class ChatBaseFragment extends BaseFragment {
                 .getMessage(),
             V2NIMMessageQueryDirection.V2NIM_QUERY_DIRECTION_DESC);
       }
+    } else if (chatView.getMessageListView().isWindowTailTrimmed()) {
+      // 尾部已被消息窗口丢弃，新消息在滚动到底部重新加载尾部时获取，不打断当前浏览位置
+      ALog.d(LIB_TAG, LOG_TAG, "rec message skip append, window tail trimmed");
     } else {
       chatView.appendMessageList(listFetchResult.getData());
     }
@@ -1998,7 +2008,9 @@ public abstract class ChatBaseFragment extends BaseFragment {
   protected void onSentMessage(FetchResult<ChatMessageBean> fetchResult) {
     if (fetchResult.getType() == FetchResult.FetchType.Add) {
       ALog.d(LIB_TAG, LOG_TAG, "send message add");
-      if (chatView.getMessageListView().hasMoreNewerMessages()) {
+      // 自己发送的消息需要展示，历史定位或尾部被窗口丢弃时都重新加载最新消息
+      if (chatView.getMessageListView().hasMoreNewerMessages()
+          || chatView.getMessageListView().isWindowTailTrimmed()) {
         chatView.clearMessageList();
         chatView.getMessageListView().insertMessage(fetchResult.getData());
         if (fetchResult.getData() != null) {
@@ -2329,7 +2341,7 @@ public abstract class ChatBaseFragment extends BaseFragment {
       return;
     }
     ((ChatTeamViewModel) viewModel)
-        .refreshTeamMessageReceipt(messages.subList(firstVisible, lastVisible));
+        .refreshTeamMessageReceipt(messages.subList(firstVisible, lastVisible), true);
   }
 
   @Override
@@ -66,6 +66,8 @@ import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUtils;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
+import com.netease.yunxin.kit.chatkit.ui.common.MessageSpanCache;
+import com.netease.yunxin.kit.chatkit.ui.common.MultiForwardWriter;
 import com.netease.yunxin.kit.chatkit.ui.custom.MultiForwardAttachment;
 import com.netease.yunxin.kit.chatkit.ui.model.AnchorScrollInfo;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
@@ -77,7 +79,6 @@ import com.netease.yunxin.kit.common.ui.utils.ToastX;
 import com.netease.yunxin.kit.common.ui.viewmodel.BaseViewModel;
 import com.netease.yunxin.kit.common.ui.viewmodel.FetchResult;
 import com.netease.yunxin.kit.common.ui.viewmodel.LoadStatus;
-import com.netease.yunxin.kit.common.utils.EncryptUtils;
 import com.netease.yunxin.kit.common.utils.FileUtils;
 import com.netease.yunxin.kit.common.utils.ImageUtils;
 import com.netease.yunxin.kit.common.utils.UriUtils;
@@ -271,6 +272,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
             ArrayList<V2NIMMessageRefer> deleteList = new ArrayList<>();
             FetchResult<List<V2NIMMessageRefer>> result = new FetchResult<>(LoadStatus.Success);
             for (V2NIMMessageDeletedNotification msg : messages) {
+              MessageSpanCache.getInstance()
+                  .invalidate(msg.getMessageRefer().getMessageClientId());
               if (TextUtils.equals(msg.getMessageRefer().getConversationId(), mConversationId)) {
                 deleteList.add(msg.getMessageRefer());
               }
@@ -322,6 +325,9 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
           FetchResult<List<MessageRevokeInfo>> result = new FetchResult<>(LoadStatus.Success);
           List<MessageRevokeInfo> revokedList = new ArrayList<>();
           for (MessageRevokeNotification revokeNotification : revokeNotifications) {
+            MessageSpanCache.getInstance()
+                .invalidate(
+                    revokeNotification.getNimNotification().getMessageRefer().getMessageClientId());
             //判断不是自己撤回的，并且是当前会话的消息
             if (!TextUtils.equals(
                     revokedMessageClientId,
@@ -499,6 +505,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
     List<V2NIMMessageRefer> deleteMessageList = new ArrayList<>();
     for (ChatMessageBean message : messageBean) {
       deleteMessageList.add(message.getMessageData().getMessage());
+      MessageSpanCache.getInstance()
+          .invalidate(message.getMessageData().getMessage().getMessageClientId());
     }
     FetchResult<List<V2NIMMessageRefer>> result = new FetchResult<>(LoadStatus.Success);
     result.setData(deleteMessageList);
@@ -541,6 +549,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
                 ChatRepo.unpinMessage(messageBean.getMessageData().getMessage(), null);
               }
 
+              MessageSpanCache.getInstance()
+                  .invalidate(messageBean.getMessageData().getMessage().getMessageClientId());
               FetchResult<List<MessageRevokeInfo>> fetchResult =
                   new FetchResult<>(LoadStatus.Success);
               MessageRevokeInfo messageRevokeInfo =
@@ -848,46 +858,24 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
       iMessageList.add(message.getMessageData());
     }
 
-    //合并转发消息，序列化消息
-    String msgInfo = MessageHelper.createMultiForwardMsg(iMessageList);
     try {
 
       File localFile = SendMediaHelper.createTextFile();
-      //      保存到本地并上传到nos
-      ResourceRepo.writeLocalFileAndUploadNOS(
+      //合并转发消息，逐条序列化写入本地文件，同时计算MD5
+      MultiForwardWriter.writeToFileAsync(
           localFile,
-          msgInfo,
+          iMessageList,
           new FetchCallback<String>() {
             @Override
             public void onError(int errorCode, @Nullable String errorMsg) {
               ALog.e(
-                  LIB_TAG,
-                  TAG,
-                  "writeLocalFileAndUploadNOS onError:" + errorCode + " errorMsg:" + errorMsg);
+                  LIB_TAG, TAG, "writeToFileAsync onError:" + errorCode + " errorMsg:" + errorMsg);
             }
 
             @Override
-            public void onSuccess(@Nullable String param) {
-              if (param != null) {
-                String fileMD5 = EncryptUtils.md5(localFile);
-                MultiForwardAttachment attachment =
-                    MessageHelper.createMultiTransmitAttachment(
-                        displayName, mChatAccountId, param, iMessageList);
-                attachment.md5 = fileMD5;
-                List<RecentForward> recentForwards = new ArrayList<>();
-                for (String conversationId : conversationIds) {
-                  V2NIMMessage multiForwardMessage =
-                      V2NIMMessageCreator.createCustomMessage(displayName, attachment.toJsonStr());
-                  sendMessageStrExtension(multiForwardMessage, conversationId, null, null);
-                  String sessionId = V2NIMConversationIdUtil.conversationTargetId(conversationId);
-                  V2NIMConversationType sessionType =
-                      V2NIMConversationIdUtil.conversationType(conversationId);
-                  recentForwards.add(new RecentForward(sessionId, sessionType));
-                }
-                SettingRepo.saveRecentForward(recentForwards);
-
-                MessageHelper.sendNoteMessage(inputMsg, conversationIds, needACK);
-              }
+            public void onSuccess(@Nullable String fileMD5) {
+              uploadMultiForwardFile(
+                  localFile, fileMD5, displayName, inputMsg, conversationIds, iMessageList);
             }
           });
 
@@ -896,6 +884,47 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
     }
   }
 
+  // 上传合并转发文件到nos，成功后发送合并转发消息
+  private void uploadMultiForwardFile(
+      File localFile,
+      String fileMD5,
+      String displayName,
+      String inputMsg,
+      List<String> conversationIds,
+      List<IMMessageInfo> iMessageList) {
+    ResourceRepo.uploadFile(
+        localFile,
+        new FetchCallback<String>() {
+          @Override
+          public void onError(int errorCode, @Nullable String errorMsg) {
+            ALog.e(LIB_TAG, TAG, "uploadFile onError:" + errorCode + " errorMsg:" + errorMsg);
+          }
+
+          @Override
+          public void onSuccess(@Nullable String param) {
+            if (param != null) {
+              MultiForwardAttachment attachment =
+                  MessageHelper.createMultiTransmitAttachment(
+                      displayName, mChatAccountId, param, iMessageList);
+              attachment.md5 = fileMD5;
+              List<RecentForward> recentForwards = new ArrayList<>();
+              for (String conversationId : conversationIds) {
+                V2NIMMessage multiForwardMessage =
+                    V2NIMMessageCreator.createCustomMessage(displayName, attachment.toJsonStr());
+                sendMessageStrExtension(multiForwardMessage, conversationId, null, null);
+                String sessionId = V2NIMConversationIdUtil.conversationTargetId(conversationId);
+                V2NIMConversationType sessionType =
+                    V2NIMConversationIdUtil.conversationType(conversationId);
+                recentForwards.add(new RecentForward(sessionId, sessionType));
+              }
+              SettingRepo.saveRecentForward(recentForwards);
+
+              MessageHelper.sendNoteMessage(inputMsg, conversationIds, needACK);
+            }
+          }
+        });
+  }
+
   // 发送位置消息
   public void sendLocationMessage(ChatLocationBean locationBean) {
     ALog.d(LIB_TAG, TAG, "sendLocationMessage:" + locationBean);
@@ -1322,6 +1351,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
     for (IMMessageInfo message : messageList) {
       result.add(new ChatMessageBean(message));
     }
+    // 后台生成文本消息的表情和@高亮，列表绑定时直接使用
+    MessageSpanCache.getInstance().prefetch(result);
     return result;
   }
 
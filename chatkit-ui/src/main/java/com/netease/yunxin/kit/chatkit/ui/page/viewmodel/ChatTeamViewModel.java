@@ -26,6 +26,7 @@ import com.netease.yunxin.kit.chatkit.ui.cache.TeamChangeListener;
 import com.netease.yunxin.kit.chatkit.ui.cache.TeamUserChangedListener;
 import com.netease.yunxin.kit.chatkit.ui.cache.TeamUserManager;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamReceiptScheduler;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.chatkit.ui.model.TopStickyMessage;
 import com.netease.yunxin.kit.common.ui.viewmodel.FetchResult;
@@ -61,6 +62,9 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
   private final MutableLiveData<String> topMessagePermissionLiveData = new MutableLiveData<>();
   private boolean myDismiss = false;
 
+  //群消息已读回执刷新调度
+  private final TeamReceiptScheduler receiptScheduler = new TeamReceiptScheduler();
+
   private final TeamUserChangedListener userInfoListener =
       new TeamUserChangedListener() {
         @Override
@@ -143,6 +147,7 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
         LIB_TAG,
         TAG,
         "onTeamMessageReadReceipts:" + (readReceipts == null ? "null" : readReceipts.size()));
+    receiptScheduler.onReceipts(readReceipts);
     FetchResult<List<V2NIMTeamMessageReadReceipt>> receiptResult =
         new FetchResult<>(LoadStatus.Finish);
     receiptResult.setData(readReceipts);
@@ -195,18 +200,27 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
   }
 
   public void refreshTeamMessageReceipt(List<ChatMessageBean> messageBeans) {
+    refreshTeamMessageReceipt(messageBeans, false);
+  }
+
+  /**
+   * 刷新群消息已读回执，请求会被合并并限频
+   *
+   * @param messageBeans 消息
+   * @param force 是否忽略回执有效期强制刷新
+   */
+  public void refreshTeamMessageReceipt(List<ChatMessageBean> messageBeans, boolean force) {
     ALog.d(
         LIB_TAG,
         TAG,
-        "refreshTeamMessageReceipt:" + (messageBeans == null ? "null" : messageBeans.size()));
+        "refreshTeamMessageReceipt:"
+            + (messageBeans == null ? "null" : messageBeans.size())
+            + " force:"
+            + force);
     if (messageBeans == null || messageBeans.size() < 1) {
       return;
     }
-    List<V2NIMMessage> messages = new ArrayList<>();
-    for (ChatMessageBean messageBean : messageBeans) {
-      messages.add(messageBean.getMessageData().getMessage());
-    }
-    ChatRepo.getTeamMessageReceipts(messages);
+    receiptScheduler.submit(messageBeans, force);
   }
 
   /** team info change live data */
@@ -501,6 +515,7 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
   @Override
   protected void onCleared() {
     super.onCleared();
+    receiptScheduler.release();
     TeamUserManager.getInstance().clear();
   }
 }
@@ -8,7 +8,7 @@ import android.content.Context;
 import android.text.Editable;
 import android.text.TextUtils;
 import android.text.TextWatcher;
-import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
 import com.netease.nimlib.sdk.v2.team.enums.V2NIMTeamMemberRole;
 import com.netease.nimlib.sdk.v2.team.model.V2NIMTeam;
 import com.netease.nimlib.sdk.v2.team.model.V2NIMTeamMember;
@@ -16,12 +16,12 @@ import com.netease.yunxin.kit.chatkit.IMKitConfigCenter;
 import com.netease.yunxin.kit.chatkit.manager.AIUserManager;
 import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
 import com.netease.yunxin.kit.chatkit.ui.R;
+import com.netease.yunxin.kit.chatkit.ui.cache.TeamMemberPageListener;
 import com.netease.yunxin.kit.chatkit.ui.cache.TeamUserManager;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUtils;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AitBlock;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AitUserInfo;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AtContactsModel;
-import com.netease.yunxin.kit.corekit.im2.extend.FetchCallback;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -66,6 +66,9 @@ public class AitManager implements TextWatcher {
   //是否展示群成员
   private boolean showTeamMember = true;
 
+  // 当前@列表的群成员分页加载监听
+  private TeamMemberPageListener memberPageListener;
+
   public AitManager(Context context, String teamId) {
     this.mContext = context;
     this.tid = teamId;
@@ -253,22 +256,32 @@ public class AitManager implements TextWatcher {
       }
       return;
     }
-    //拉取所有成员并展示
-    TeamUserManager.getInstance()
-        .getAllTeamMembers(
-            false,
-            new FetchCallback<List<TeamMemberWithUserInfo>>() {
-              @Override
-              public void onError(int errorCode, @Nullable String errorMsg) {}
-
-              @Override
-              public void onSuccess(@Nullable List<TeamMemberWithUserInfo> data) {
-                if (data != null && dialog.isShowing()) {
-                  aitUsers.addAll(AitHelper.convertTeamMemberToAitUserInfo(data));
-                  dialog.setData(aitUsers, true, canAtAll());
-                }
-              }
-            });
+    //分页拉取所有成员，第一页到达后先展示，之后的页追加到列表
+    TeamUserManager.getInstance().removeTeamMemberPageListener(memberPageListener);
+    memberPageListener =
+        new TeamMemberPageListener() {
+          private boolean firstPage = true;
+
+          @Override
+          public void onPage(
+              @NonNull List<TeamMemberWithUserInfo> page, int loadedCount, boolean finished) {
+            if (!dialog.isShowing()) {
+              TeamUserManager.getInstance().removeTeamMemberPageListener(this);
+              return;
+            }
+            if (firstPage) {
+              firstPage = false;
+              aitUsers.addAll(AitHelper.convertTeamMemberToAitUserInfo(page));
+              dialog.setData(aitUsers, true, canAtAll());
+            } else if (!page.isEmpty()) {
+              dialog.addData(AitHelper.convertTeamMemberToAitUserInfo(page));
+            }
+          }
+
+          @Override
+          public void onError(int errorCode, String errorMsg) {}
+        };
+    TeamUserManager.getInstance().getAllTeamMembersPaged(false, memberPageListener);
   }
 
   // 插入@成员
@@ -23,8 +23,9 @@ import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
 import com.netease.yunxin.kit.chatkit.ui.common.AitDBHelper;
-import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
+import com.netease.yunxin.kit.chatkit.ui.common.AitWriteQueue;
 import com.netease.yunxin.kit.chatkit.ui.impl.MessageObserverImpl;
+import com.netease.yunxin.kit.chatkit.ui.model.MessageExtension;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AtContactsModel;
 import com.netease.yunxin.kit.corekit.event.EventCenter;
 import com.netease.yunxin.kit.corekit.im2.IMKitClient;
@@ -33,9 +34,10 @@ import com.netease.yunxin.kit.corekit.im2.custom.AitInfo;
 import com.netease.yunxin.kit.corekit.im2.utils.CoroutineUtils;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
 
 /** 用于@功能服务类，用于管理@信息，包括接收到的@信息，本地保存的@信息，以及发送@信息事件 */
 public class AitService {
@@ -43,9 +45,10 @@ public class AitService {
   private static final String TAG = "AitService";
   private static AitService instance;
   private final Map<String, AitInfo> aitInfoMapCache = new HashMap<>();
-  private final CopyOnWriteArrayList<AitInfo> updateList = new CopyOnWriteArrayList<>();
-  private final CopyOnWriteArrayList<AitInfo> insertList = new CopyOnWriteArrayList<>();
-  private final CopyOnWriteArrayList<AitInfo> deleteList = new CopyOnWriteArrayList<>();
+  // 从数据库按数量加载的会话，缓存中只有加载之后新增的消息ID，其余消息ID只在数据库中
+  private final Set<String> countOnlyConversations = new HashSet<>();
+  // 数据库写入队列，按会话合并后批量写入
+  private AitWriteQueue writeQueue;
   private Context mContext;
   private boolean hasRegister;
 
@@ -65,6 +68,8 @@ public class AitService {
     if (NIMUtil.isMainProcess(context) && IMKitConfigCenter.getEnableAtMessage()) {
       ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "init");
       mContext = context;
+      writeQueue = new AitWriteQueue(context);
+      writeQueue.setOnAitClearedListener(this::onAitCleared);
       // 监听登录状态
       IMKitClient.addLoginDetailListener(
           new V2NIMLoginDetailListener() {
@@ -80,24 +85,27 @@ public class AitService {
                   hasRegister = true;
                 }
                 ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "AuthServiceObserver:LOGINED");
+                String account = IMKitClient.account();
+                // 只加载每个会话的@消息数量，消息ID在需要时从数据库查询
                 CoroutineUtils.run(
-                    new CoroutineUtils.CoroutineCallback<List<AitInfo>>() {
+                    new CoroutineUtils.CoroutineCallback<Map<String, Integer>>() {
                       @Override
-                      public void runMain(List<AitInfo> params) {
-                        if (params != null) {
+                      public void runMain(Map<String, Integer> params) {
+                        if (params != null && TextUtils.equals(account, IMKitClient.account())) {
                           List<AitInfo> aitInfoList = new ArrayList<>();
-                          for (AitInfo aitInfo : params) {
-                            if (TextUtils.equals(aitInfo.getAccountId(), IMKitClient.account())
-                                || TextUtils.equals(
-                                    AtContactsModel.ACCOUNT_ALL, aitInfo.getAccountId())) {
-                              if (!aitInfoMapCache.containsKey(aitInfo.getConversationId())) {
-                                aitInfoMapCache.put(aitInfo.getConversationId(), aitInfo);
-                                ALog.d(TAG, "init,load,add cache:" + aitInfo.getConversationId());
-                              }
-                              aitInfoList.add(aitInfo);
-                              ALog.d(TAG, "init,load:" + aitInfo.getConversationId());
+                          for (String conversationId : params.keySet()) {
+                            AitInfo aitInfo = aitInfoMapCache.get(conversationId);
+                            if (aitInfo == null) {
+                              aitInfo = new AitInfo();
+                              aitInfo.setConversationId(conversationId);
+                              aitInfo.setAccountId(account);
+                              aitInfoMapCache.put(conversationId, aitInfo);
+                              ALog.d(TAG, "init,load,add cache:" + conversationId);
                             }
+                            countOnlyConversations.add(conversationId);
+                            aitInfoList.add(aitInfo);
                           }
+                          ALog.d(TAG, "init,load:" + aitInfoList.size());
                           if (aitInfoList.size() > 0) {
                             sendAitEvent(aitInfoList, AitEvent.AitEventType.Load);
                           }
@@ -105,10 +113,9 @@ public class AitService {
                       }
 
                       @Override
-                      public List<AitInfo> runIO() {
+                      public Map<String, Integer> runIO() {
                         AitDBHelper.getInstance(context).openWrite();
-                        List<AitInfo> result = AitDBHelper.getInstance(context).queryAll();
-                        return result;
+                        return AitDBHelper.getInstance(context).queryAitCount(account);
                       }
                     });
               } else if (status == V2NIMConnectStatus.V2NIM_CONNECT_STATUS_DISCONNECTED) {
@@ -146,6 +153,7 @@ public class AitService {
     }
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "clearAitInfo:" + conversationId);
     AitInfo aitInfo = aitInfoMapCache.remove(conversationId);
+    countOnlyConversations.remove(conversationId);
     if (aitInfo == null) {
       aitInfo = new AitInfo();
       aitInfo.setConversationId(conversationId);
@@ -153,8 +161,26 @@ public class AitService {
     List<AitInfo> aitInfoList = new ArrayList<>();
     aitInfoList.add(aitInfo);
     sendAitEvent(aitInfoList, AitEvent.AitEventType.Clear);
-    deleteList.add(aitInfo);
-    CoroutineUtils.runIO(deleteCoroutine);
+    writeQueue.clear(IMKitClient.account(), conversationId);
+  }
+
+  // 数据库中会话的@消息已全部删除
+  private void onAitCleared(List<String> conversationIds) {
+    List<AitInfo> notifyDelete = new ArrayList<>();
+    for (String conversationId : conversationIds) {
+      AitInfo aitInfo = aitInfoMapCache.get(conversationId);
+      // 删除期间又收到新的@消息时保留
+      if (aitInfo != null
+          && countOnlyConversations.contains(conversationId)
+          && !aitInfo.hasMsgUid()) {
+        aitInfoMapCache.remove(conversationId);
+        countOnlyConversations.remove(conversationId);
+        notifyDelete.add(aitInfo);
+      }
+    }
+    if (notifyDelete.size() > 0) {
+      sendAitEvent(notifyDelete, AitEvent.AitEventType.Clear);
+    }
   }
 
   // 发送加载@信息事件
@@ -242,7 +268,7 @@ public class AitService {
           messageInfo.getMessage().getConversationId(), ChatRepo.getConversationId())) {
         continue;
       }
-      AtContactsModel aitModel = MessageHelper.getAitBlockFromMsg(messageInfo.getMessage());
+      AtContactsModel aitModel = MessageExtension.of(messageInfo.getMessage()).getAitModel();
       if (aitModel != null) {
         List<String> aitAccount = aitModel.getAtTeamMember();
         for (String account : aitAccount) {
@@ -285,14 +311,14 @@ public class AitService {
         AitInfo cacheAitInfo = aitInfoMapCache.get(conversationId);
         if (cacheAitInfo != null) {
           cacheAitInfo.addMsgUid(newAitInfo.getMsgUidList());
-          updateList.add(cacheAitInfo);
+          writeQueue.add(IMKitClient.account(), conversationId, newAitInfo.getMsgUidList());
           ALog.d(
               ChatKitUIConstant.LIB_TAG,
               TAG,
               "updateAitInfo,updateList" + cacheAitInfo.getConversationId());
         }
       } else {
-        insertList.add(newAitInfo);
+        writeQueue.add(IMKitClient.account(), conversationId, newAitInfo.getMsgUidList());
         aitInfoMapCache.put(conversationId, newAitInfo);
         ALog.d(
             ChatKitUIConstant.LIB_TAG,
@@ -300,7 +326,6 @@ public class AitService {
             "updateAitInfo,insertList" + newAitInfo.getConversationId());
       }
     }
-    CoroutineUtils.runIO(updateCoroutine);
   }
 
   // 删除@信息
@@ -323,12 +348,15 @@ public class AitService {
               ChatKitUIConstant.LIB_TAG,
               TAG,
               "removeAitInfo,updateList" + cacheAitInfo.getConversationId());
-          if (!cacheAitInfo.hasMsgUid()) {
-            deleteList.add(cacheAitInfo);
+          if (countOnlyConversations.contains(conversationId)) {
+            // 消息ID可能只在数据库中，删除后由数据库判断会话是否还有@消息
+            writeQueue.remove(IMKitClient.account(), conversationId, newAitInfo.getMsgUidList());
+          } else if (!cacheAitInfo.hasMsgUid()) {
+            writeQueue.clear(IMKitClient.account(), conversationId);
             notifyDelete.add(cacheAitInfo);
             aitInfoMapCache.remove(conversationId);
           } else if (hasRemove) {
-            updateList.add(cacheAitInfo);
+            writeQueue.remove(IMKitClient.account(), conversationId, newAitInfo.getMsgUidList());
           }
         }
       }
@@ -340,69 +368,18 @@ public class AitService {
     if (notifyDelete.size() > 0) {
       sendAitEvent(notifyDelete, AitEvent.AitEventType.Clear);
     }
-    if (updateList.size() > 0) {
-      CoroutineUtils.runIO(updateCoroutine);
-    }
-    if (deleteList.size() > 0) {
-      CoroutineUtils.runIO(deleteCoroutine);
-    }
-  }
-
-  // 删除本地数据库中@信息
-  private void deleteAit() {
-    if (mContext == null || !IMKitConfigCenter.getEnableAtMessage()) {
-      return;
-    }
-
-    AitDBHelper.getInstance(mContext).openWrite();
-    List<String> conversationList = new ArrayList<>();
-    for (AitInfo info : deleteList) {
-      conversationList.add(info.getConversationId());
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "deleteAit:" + info.getConversationId());
-    }
-    AitDBHelper.getInstance(mContext)
-        .deleteWithConversationId(conversationList.toArray(new String[0]));
-    deleteList.clear();
   }
 
-  // 更新本地数据库@信息
+  // 立即写入等待中的@信息
   public void updateAit() {
-    AitDBHelper.getInstance(mContext).openWrite();
-    for (AitInfo info : updateList) {
-      long updateResult = AitDBHelper.getInstance(mContext).update(info);
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "updateAit,update:" + updateResult);
-    }
-    for (AitInfo insertInfo : insertList) {
-      long result = AitDBHelper.getInstance(mContext).insert(insertInfo);
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "updateAit,insert:" + result);
+    if (writeQueue != null) {
+      writeQueue.flush();
     }
-    insertList.clear();
-    updateList.clear();
   }
 
-  // 更新本地数据库@信息
-  private final CoroutineUtils.CoroutineCallback<Void> updateCoroutine =
-      new CoroutineUtils.CoroutineCallback<Void>() {
-        @Override
-        public Void runIO() {
-          updateAit();
-          return null;
-        }
-
-        @Override
-        public void runMain(Void param) {}
-      };
-
-  // 删除本地数据库中@信息
-  private final CoroutineUtils.CoroutineCallback<Void> deleteCoroutine =
-      new CoroutineUtils.CoroutineCallback<Void>() {
-        @Override
-        public Void runIO() {
-          deleteAit();
-          return null;
-        }
-
-        @Override
-        public void runMain(Void param) {}
-      };
+  // @信息数据库写入统计，包括批次耗时和写入行数
+  @Nullable
+  public AitWriteQueue.Metrics getWriteMetrics() {
+    return writeQueue != null ? writeQueue.getMetrics() : null;
+  }
 }
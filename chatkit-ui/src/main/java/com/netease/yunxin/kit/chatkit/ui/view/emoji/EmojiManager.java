@@ -10,12 +10,18 @@ import android.content.res.XmlResourceParser;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import androidx.annotation.NonNull;
 import androidx.collection.LruCache;
+import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.ui.R;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,19 +30,29 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 public class EmojiManager {
 
+  private static final String TAG = "EmojiManager";
+
   private static final String EMOJI_DIR = "chatkit/emoji/";
 
-  // max cache size
-  private static final int CACHE_MAX_SIZE = 1024;
+  // bitmap cache budget in bytes
+  private static final int CACHE_MAX_BYTES = 4 * 1024 * 1024;
+
+  // max atlas sheet width and height in pixels
+  private static final int ATLAS_MAX_SIZE = 2048;
 
   private static Pattern pattern;
 
+  // 所有表情文本构建的字典树，替代正则匹配
+  private static volatile EmojiMatcher matcher;
+
   // default entries
   private static final List<Entry> defaultEntries = new ArrayList<>();
   // text to entry
@@ -44,6 +60,13 @@ public class EmojiManager {
   // asset bitmap cache, key: asset path
   private static LruCache<String, Bitmap> drawableCache;
 
+  // pack default emoji into atlas sheets at init
+  private static boolean atlasEnabled = false;
+  // asset path to atlas region, published once the atlas is built
+  private static volatile Map<String, AtlasRegion> atlasRegions;
+
+  private static final Executor decodeExecutor = Executors.newSingleThreadExecutor();
+
   private static WeakReference<Context> sContext;
 
   public static void init(Context context) {
@@ -54,18 +77,36 @@ public class EmojiManager {
 
     pattern = makePattern();
 
+    matcher = EmojiMatcher.build(text2entry.keySet());
+
+    // evicted bitmaps are not recycled, drawables on screen may still draw them
     drawableCache =
-        new LruCache<String, Bitmap>(CACHE_MAX_SIZE) {
+        new LruCache<String, Bitmap>(CACHE_MAX_BYTES) {
           @Override
-          protected void entryRemoved(
-              boolean evicted, @NonNull String key, @NonNull Bitmap oldValue, Bitmap newValue) {
-            if (oldValue != newValue) oldValue.recycle();
+          protected int sizeOf(@NonNull String key, @NonNull Bitmap value) {
+            return value.getAllocationByteCount();
           }
         };
+
+    if (atlasEnabled && atlasRegions == null) {
+      Context appContext = context.getApplicationContext();
+      List<Entry> entries = new ArrayList<>(defaultEntries);
+      decodeExecutor.execute(() -> atlasRegions = buildAtlas(appContext, entries));
+    }
+  }
+
+  /**
+   * Enable atlas mode, must be called before {@link #init(Context)}. Default emoji are decoded in
+   * background at init and packed into a few sprite sheets at the device density, drawables are
+   * regions of the sheets. Message text and the emoji picker get drawables from this class, so
+   * they use the atlas once it is built.
+   */
+  public static void setAtlasEnabled(boolean enabled) {
+    atlasEnabled = enabled;
   }
 
   public static Context getContext() {
-    return sContext.get();
+    return sContext == null ? null : sContext.get();
   }
 
   private static class Entry {
@@ -96,17 +137,34 @@ public class EmojiManager {
     return pattern;
   }
 
+  /** 表情匹配器，未初始化时返回null */
+  public static EmojiMatcher getMatcher() {
+    return matcher;
+  }
+
   public static Drawable getDrawable(Context context, String text) {
     Entry entry = text2entry.get(text);
     if (entry == null) {
       return null;
     }
 
+    Map<String, AtlasRegion> regions = atlasRegions;
+    AtlasRegion region = regions != null ? regions.get(entry.assetPath) : null;
+    if (region != null) {
+      return new AtlasDrawable(region);
+    }
+
+    if (context == null) {
+      context = getContext();
+    }
+    if (context == null) {
+      return null;
+    }
     Bitmap cache = drawableCache.get(entry.assetPath);
     if (cache == null) {
       cache = loadAssetBitmap(context, entry.assetPath);
     }
-    return new BitmapDrawable(context.getResources(), cache);
+    return cache == null ? null : new BitmapDrawable(context.getResources(), cache);
   }
 
   public static Drawable getEmoteDrawable(Context context, String text, float scale) {
@@ -130,6 +188,14 @@ public class EmojiManager {
   }
 
   private static Bitmap loadAssetBitmap(Context context, String assetPath) {
+    Bitmap bitmap = decodeAssetBitmap(context, assetPath);
+    if (bitmap != null) {
+      drawableCache.put(assetPath, bitmap);
+    }
+    return bitmap;
+  }
+
+  private static Bitmap decodeAssetBitmap(Context context, String assetPath) {
     InputStream is = null;
     try {
       Resources resources = context.getResources();
@@ -138,11 +204,7 @@ public class EmojiManager {
       options.inScreenDensity = resources.getDisplayMetrics().densityDpi;
       options.inTargetDensity = resources.getDisplayMetrics().densityDpi;
       is = context.getAssets().open(assetPath);
-      Bitmap bitmap = BitmapFactory.decodeStream(is, new Rect(), options);
-      if (bitmap != null) {
-        drawableCache.put(assetPath, bitmap);
-      }
-      return bitmap;
+      return BitmapFactory.decodeStream(is, new Rect(), options);
     } catch (Exception e) {
       e.printStackTrace();
     } finally {
@@ -157,6 +219,56 @@ public class EmojiManager {
     return null;
   }
 
+  // decode entries and pack them into sheets, grid layout with the largest emoji as cell size
+  private static Map<String, AtlasRegion> buildAtlas(Context context, List<Entry> entries) {
+    long start = SystemClock.elapsedRealtime();
+    List<Entry> decodedEntries = new ArrayList<>(entries.size());
+    List<Bitmap> bitmaps = new ArrayList<>(entries.size());
+    int cellWidth = 0;
+    int cellHeight = 0;
+    for (Entry entry : entries) {
+      Bitmap bitmap = decodeAssetBitmap(context, entry.assetPath);
+      if (bitmap != null) {
+        decodedEntries.add(entry);
+        bitmaps.add(bitmap);
+        cellWidth = Math.max(cellWidth, bitmap.getWidth());
+        cellHeight = Math.max(cellHeight, bitmap.getHeight());
+      }
+    }
+    Map<String, AtlasRegion> regions = new HashMap<>();
+    if (bitmaps.isEmpty() || cellWidth > ATLAS_MAX_SIZE || cellHeight > ATLAS_MAX_SIZE) {
+      return regions;
+    }
+    int columns = Math.min(ATLAS_MAX_SIZE / cellWidth, bitmaps.size());
+    int rowsPerSheet = ATLAS_MAX_SIZE / cellHeight;
+    int perSheet = columns * rowsPerSheet;
+    Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    for (int sheetStart = 0; sheetStart < bitmaps.size(); sheetStart += perSheet) {
+      int count = Math.min(perSheet, bitmaps.size() - sheetStart);
+      int rows = (count + columns - 1) / columns;
+      Bitmap sheet =
+          Bitmap.createBitmap(columns * cellWidth, rows * cellHeight, Bitmap.Config.ARGB_8888);
+      sheet.setDensity(bitmaps.get(sheetStart).getDensity());
+      Canvas canvas = new Canvas(sheet);
+      for (int index = 0; index < count; index++) {
+        Bitmap bitmap = bitmaps.get(sheetStart + index);
+        int left = (index % columns) * cellWidth;
+        int top = (index / columns) * cellHeight;
+        canvas.drawBitmap(bitmap, left, top, paint);
+        Rect rect = new Rect(left, top, left + bitmap.getWidth(), top + bitmap.getHeight());
+        regions.put(decodedEntries.get(sheetStart + index).assetPath, new AtlasRegion(sheet, rect));
+        bitmap.recycle();
+      }
+    }
+    ALog.d(
+        TAG,
+        "buildAtlas count:"
+            + regions.size()
+            + ",cost:"
+            + (SystemClock.elapsedRealtime() - start));
+    return regions;
+  }
+
   private static void load(Context context) {
     new EntryLoader().load(context);
   }
@@ -194,4 +306,54 @@ public class EmojiManager {
       }
     }
   }
+
+  private static final class AtlasRegion {
+    final Bitmap sheet;
+    final Rect rect;
+
+    AtlasRegion(Bitmap sheet, Rect rect) {
+      this.sheet = sheet;
+      this.rect = rect;
+    }
+  }
+
+  // draws one region of an atlas sheet, intrinsic size is the region size
+  private static final class AtlasDrawable extends Drawable {
+    private final AtlasRegion region;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    AtlasDrawable(AtlasRegion region) {
+      this.region = region;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+      canvas.drawBitmap(region.sheet, region.rect, getBounds(), paint);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+      return region.rect.width();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+      return region.rect.height();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+      paint.setAlpha(alpha);
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+      paint.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+      return PixelFormat.TRANSLUCENT;
+    }
+  }
 }
@@ -0,0 +1,172 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.emoji;
+
+import androidx.annotation.NonNull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 表情文本匹配，将所有表情文本（如[大笑]）构建为字典树
+ *
+ * <p>从左到右单次扫描，每个位置沿字典树匹配最长的表情文本，匹配成功后跳过该表情继续扫描。字典树构建后不可修改，扫描过程不分配对象，可在多线程中使用。
+ */
+public final class EmojiMatcher {
+
+  /** 匹配结果回调 */
+  public interface OnMatchListener {
+    /**
+     * @param start 表情在文本中的开始位置
+     * @param end 表情在文本中的结束位置（不包含）
+     * @param emoji 表情文本，与 chat_emoji 中的 Tag 相同
+     */
+    void onMatch(int start, int end, @NonNull String emoji);
+  }
+
+  // 节点的子节点字符，升序，用于二分查找
+  private final char[][] childChars;
+  // 节点的子节点序号，与 childChars 一一对应
+  private final int[][] childNodes;
+  // 节点对应的表情文本，非表情结尾为null
+  private final String[] terminals;
+
+  private EmojiMatcher(char[][] childChars, int[][] childNodes, String[] terminals) {
+    this.childChars = childChars;
+    this.childNodes = childNodes;
+    this.terminals = terminals;
+  }
+
+  /**
+   * 根据表情文本构建
+   *
+   * @param emojiList 表情文本
+   */
+  @NonNull
+  public static EmojiMatcher build(@NonNull Collection<String> emojiList) {
+    BuildNode root = new BuildNode();
+    int nodeCount = 1;
+    for (String emoji : emojiList) {
+      if (emoji == null || emoji.isEmpty()) {
+        continue;
+      }
+      BuildNode node = root;
+      for (int index = 0; index < emoji.length(); index++) {
+        char c = emoji.charAt(index);
+        BuildNode child = node.children.get(c);
+        if (child == null) {
+          child = new BuildNode();
+          node.children.put(c, child);
+          nodeCount++;
+        }
+        node = child;
+      }
+      node.terminal = emoji;
+    }
+    char[][] childChars = new char[nodeCount][];
+    int[][] childNodes = new int[nodeCount][];
+    String[] terminals = new String[nodeCount];
+    // 按广度优先编号，root 为 0
+    BuildNode[] queue = new BuildNode[nodeCount];
+    queue[0] = root;
+    int tail = 1;
+    for (int head = 0; head < tail; head++) {
+      BuildNode node = queue[head];
+      terminals[head] = node.terminal;
+      char[] chars = new char[node.children.size()];
+      int[] nodes = new int[node.children.size()];
+      int index = 0;
+      for (Map.Entry<Character, BuildNode> entry : node.children.entrySet()) {
+        chars[index] = entry.getKey();
+        nodes[index] = tail;
+        queue[tail++] = entry.getValue();
+        index++;
+      }
+      childChars[head] = chars;
+      childNodes[head] = nodes;
+    }
+    return new EmojiMatcher(childChars, childNodes, terminals);
+  }
+
+  /**
+   * 查找文本中的所有表情，按出现顺序回调，匹配结果互不重叠
+   *
+   * @param text 文本
+   * @param listener 匹配结果回调
+   * @return 匹配到的表情数量
+   */
+  public int match(@NonNull CharSequence text, @NonNull OnMatchListener listener) {
+    return match(text, 0, text.length(), listener);
+  }
+
+  /**
+   * 查找文本指定范围内的所有表情，按出现顺序回调，匹配结果互不重叠
+   *
+   * @param text 文本
+   * @param start 开始位置
+   * @param end 结束位置（不包含）
+   * @param listener 匹配结果回调
+   * @return 匹配到的表情数量
+   */
+  public int match(
+      @NonNull CharSequence text, int start, int end, @NonNull OnMatchListener listener) {
+    int count = 0;
+    int position = Math.max(start, 0);
+    int limit = Math.min(end, text.length());
+    while (position < limit) {
+      int node = 0;
+      int matchEnd = -1;
+      String matchEmoji = null;
+      for (int index = position; index < limit; index++) {
+        node = findChild(node, text.charAt(index));
+        if (node < 0) {
+          break;
+        }
+        if (terminals[node] != null) {
+          matchEnd = index + 1;
+          matchEmoji = terminals[node];
+        }
+      }
+      if (matchEmoji != null) {
+        listener.onMatch(position, matchEnd, matchEmoji);
+        count++;
+        position = matchEnd;
+      } else {
+        position++;
+      }
+    }
+    return count;
+  }
+
+  /** 文本中是否包含表情 */
+  public boolean containsEmoji(@NonNull CharSequence text) {
+    int length = text.length();
+    for (int position = 0; position < length; position++) {
+      int node = 0;
+      for (int index = position; index < length; index++) {
+        node = findChild(node, text.charAt(index));
+        if (node < 0) {
+          break;
+        }
+        if (terminals[node] != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private int findChild(int node, char c) {
+    int index = Arrays.binarySearch(childChars[node], c);
+    return index >= 0 ? childNodes[node][index] : -1;
+  }
+
+  private static final class BuildNode {
+    // TreeMap 保证子节点字符有序
+    final TreeMap<Character, BuildNode> children = new TreeMap<>();
+    String terminal;
+  }
+}
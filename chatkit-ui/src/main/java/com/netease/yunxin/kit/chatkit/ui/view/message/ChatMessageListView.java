@@ -4,6 +4,7 @@
 
 package com.netease.yunxin.kit.chatkit.ui.view.message;
 
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
 import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_SELECT_STATUS;
 
 import android.annotation.SuppressLint;
@@ -20,6 +21,7 @@ import com.netease.nimlib.sdk.v2.message.V2NIMMessage;
 import com.netease.nimlib.sdk.v2.message.V2NIMMessagePin;
 import com.netease.nimlib.sdk.v2.message.V2NIMMessageRefer;
 import com.netease.nimlib.sdk.v2.team.model.V2NIMTeam;
+import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.ui.IChatFactory;
 import com.netease.yunxin.kit.chatkit.ui.factory.ChatPopActionFactory;
@@ -57,6 +59,12 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
 
   private boolean hasMoreNewerMessages;
 
+  //尾部较新的消息是否已被消息窗口丢弃，与定位到历史消息不同，列表仍连续到丢弃的位置
+  private boolean windowTailTrimmed;
+
+  //消息列表最多保留的消息条数，小于等于0表示不限制
+  private int messageWindowSize;
+
   public ChatMessageListView(@NonNull Context context) {
     super(context);
     initView(null);
@@ -175,12 +183,15 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   @Override
   public void clearMessageList() {
     messageAdapter.clearMessageList();
+    windowTailTrimmed = false;
   }
 
   @Override
   public void addMessageListForward(List<ChatMessageBean> messageList) {
     if (messageAdapter != null) {
+      ChatMessageBean lastVisible = getVisibleMessage(false);
       messageAdapter.forwardMessages(messageList);
+      trimWindowEnd(lastVisible);
     }
   }
 
@@ -198,7 +209,9 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   @Override
   public void appendMessageList(List<ChatMessageBean> messageList, boolean needToScrollEnd) {
     if (messageAdapter != null) {
+      ChatMessageBean firstVisible = needToScrollEnd ? null : getVisibleMessage(true);
       messageAdapter.appendMessages(messageList);
+      trimWindowStart(firstVisible);
       if (needToScrollEnd) {
         scrollToEnd();
       }
@@ -209,6 +222,7 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   public void appendMessage(ChatMessageBean message) {
     if (messageAdapter != null) {
       messageAdapter.appendMessage(message);
+      trimWindowStart(null);
       scrollToEnd();
     }
   }
@@ -271,9 +285,13 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
         messageAdapter.updateMessage(message, null);
         return;
       }
+      ChatMessageBean firstVisible = getVisibleMessage(true);
       int index = messageAdapter.insertMessageSortByTime(message);
       if (index == -1) {
+        trimWindowStart(null);
         scrollToEnd();
+      } else {
+        trimWindowStart(firstVisible);
       }
     }
   }
@@ -398,7 +416,7 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   protected void onSizeChanged(int w, int h, int oldw, int oldh) {
     if (Math.abs(oldh - h)
         > BarUtils.getStatusBarHeight(getContext()) + BarUtils.getNavBarHeight(getContext())) {
-      if (hasMoreNewerMessages) {
+      if (hasNewerMessages()) {
         scrollBy(0, oldh - h);
       } else {
         scrollToEnd();
@@ -417,7 +435,7 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
         int lastPosition = layoutManager.findLastCompletelyVisibleItemPosition();
         if (firstPosition == 0 && hasMoreForwardMessages) {
           loadHandler.loadMoreForward(messageAdapter.getFirstMessage());
-        } else if (isLastItemVisibleCompleted() && hasMoreNewerMessages) {
+        } else if (isLastItemVisibleCompleted() && hasNewerMessages()) {
           loadHandler.loadMoreBackground(messageAdapter.getLastMessage());
         }
       }
@@ -435,6 +453,8 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   @Override
   public void setHasMoreNewerMessages(boolean hasMoreNewerMessages) {
     this.hasMoreNewerMessages = hasMoreNewerMessages;
+    //加载较新消息后由查询结果决定是否还有更新的消息，丢弃的尾部已重新加载
+    this.windowTailTrimmed = false;
   }
 
   @Override
@@ -463,11 +483,38 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
     }
   }
 
+  /**
+   * 设置消息窗口大小，加载新分页后超出部分从远离可视区域的一端丢弃
+   *
+   * @param windowSize 最多保留的消息条数，小于等于0表示不限制
+   */
+  public void setMessageWindowSize(int windowSize) {
+    this.messageWindowSize = Math.max(windowSize, 0);
+  }
+
+  public boolean isMessageWindowEnabled() {
+    return messageWindowSize > 0;
+  }
+
   @Override
   public boolean hasMoreNewerMessages() {
     return hasMoreNewerMessages;
   }
 
+  /**
+   * 尾部较新的消息是否已被消息窗口丢弃，此时收到的新消息不追加，滚动到底部时重新加载
+   *
+   * @return 是否已丢弃尾部
+   */
+  public boolean isWindowTailTrimmed() {
+    return windowTailTrimmed;
+  }
+
+  //列表末尾之后是否还有消息，包括历史定位和窗口丢弃两种情况
+  private boolean hasNewerMessages() {
+    return hasMoreNewerMessages || windowTailTrimmed;
+  }
+
   @Override
   public boolean hasMoreForwardMessages() {
     return hasMoreForwardMessages;
@@ -515,7 +562,7 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
     }
     int firstPosition = linearLayoutManager.findFirstVisibleItemPosition();
     int count = linearLayoutManager.getChildCount();
-    return firstPosition + count >= linearLayoutManager.getItemCount() - 1 && !hasMoreNewerMessages;
+    return firstPosition + count >= linearLayoutManager.getItemCount() - 1 && !hasNewerMessages();
   }
 
   private boolean isLastItemVisibleCompleted() {
@@ -529,6 +576,71 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
     return lastPosition >= firstPosition + childCount - 1;
   }
 
+  @Nullable
+  private ChatMessageBean getVisibleMessage(boolean first) {
+    LinearLayoutManager layoutManager = (LinearLayoutManager) getLayoutManager();
+    if (layoutManager == null || messageAdapter == null) {
+      return null;
+    }
+    int position =
+        first
+            ? layoutManager.findFirstVisibleItemPosition()
+            : layoutManager.findLastVisibleItemPosition();
+    List<ChatMessageBean> messageList = messageAdapter.getMessageList();
+    if (position < 0 || position >= messageList.size()) {
+      return null;
+    }
+    return messageList.get(position);
+  }
+
+  /**
+   * 超出消息窗口时从头部丢弃较早的消息，不会丢弃 anchor 及其之后的消息
+   *
+   * @param anchor 需要保留的首条消息，为空则不限制
+   */
+  private void trimWindowStart(@Nullable ChatMessageBean anchor) {
+    if (messageWindowSize <= 0 || messageAdapter == null) {
+      return;
+    }
+    int overflow = messageAdapter.getItemCount() - messageWindowSize;
+    if (overflow <= 0) {
+      return;
+    }
+    int anchorPosition =
+        anchor == null ? -1 : messageAdapter.searchMessagePosition(anchor.getMsgClientId());
+    int removeCount = anchorPosition < 0 ? overflow : Math.min(overflow, anchorPosition);
+    if (removeCount > 0) {
+      ALog.d(LIB_TAG, TAG, "trimWindowStart:" + removeCount);
+      messageAdapter.removeMessagesFromStart(removeCount);
+      hasMoreForwardMessages = true;
+    }
+  }
+
+  /**
+   * 超出消息窗口时从尾部丢弃较新的消息，不会丢弃 anchor 及其之前的消息
+   *
+   * @param anchor 需要保留的末条消息，为空则不限制
+   */
+  private void trimWindowEnd(@Nullable ChatMessageBean anchor) {
+    if (messageWindowSize <= 0 || messageAdapter == null) {
+      return;
+    }
+    int itemCount = messageAdapter.getItemCount();
+    int overflow = itemCount - messageWindowSize;
+    if (overflow <= 0) {
+      return;
+    }
+    int anchorPosition =
+        anchor == null ? -1 : messageAdapter.searchMessagePosition(anchor.getMsgClientId());
+    int removeCount =
+        anchorPosition < 0 ? overflow : Math.min(overflow, itemCount - 1 - anchorPosition);
+    if (removeCount > 0) {
+      ALog.d(LIB_TAG, TAG, "trimWindowEnd:" + removeCount);
+      messageAdapter.removeMessagesFromEnd(removeCount);
+      windowTailTrimmed = true;
+    }
+  }
+
   public ArrayList<ChatMessageBean> filterMessagesByType(int typeValue) {
     ArrayList<ChatMessageBean> mediaMsgList = new ArrayList<>();
     for (ChatMessageBean msg : messageAdapter.getMessageList()) {
@@ -34,7 +34,6 @@ import com.netease.yunxin.kit.chatkit.ui.textSelectionHelper.SelectableTextHelpe
 import com.netease.yunxin.kit.chatkit.ui.view.message.MessageProperties;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.CommonBaseMessageViewHolder;
 import com.netease.yunxin.kit.corekit.im2.model.IMMessageProgress;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -65,8 +64,8 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     viewHolderFactory = ChatViewHolderDefaultFactory.getInstance();
   }
 
-  private final List<ChatMessageBean> messageList = new ArrayList<>();
-  private final Map<String, ChatMessageBean> messagesMap = new HashMap<>();
+  private final ChatMessageStore messageStore = new ChatMessageStore();
+  private final List<ChatMessageBean> messageList = messageStore.asList();
 
   public void setItemClickListener(IMessageItemClickListener itemClickListener) {
     this.itemClickListener = itemClickListener;
@@ -169,10 +168,7 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   public void appendMessages(List<ChatMessageBean> messages) {
     removeSameMessage(messages);
     int pos = messageList.size();
-    messageList.addAll(messages);
-    for (ChatMessageBean messageBean : messages) {
-      messagesMap.put(messageBean.getMsgClientId(), messageBean);
-    }
+    messageStore.addAll(pos, messages);
     loadReplyInfo(messages);
     notifyItemRangeInserted(pos, messages.size());
     if (pos + messages.size() < messageList.size()) {
@@ -183,25 +179,19 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
 
   private void loadReplyInfo(List<ChatMessageBean> messages) {
     for (ChatMessageBean messageBean : messages) {
-      if (messageBean.hasReply()
-          && messageBean.getReplyMessageRefer() != null
-          && messageBean.getReplyMessage() == null
-          && messagesMap.containsKey(messageBean.getReplyMessageRefer().getMessageClientId())) {
-        messageBean.setReplyMessage(
-            messagesMap
-                .get(messageBean.getReplyMessageRefer().getMessageClientId())
-                .getMessageData());
-      }
+      loadReplyInfo(messageBean);
     }
   }
 
   private void loadReplyInfo(ChatMessageBean message) {
     if (message.hasReply()
         && message.getReplyMessageRefer() != null
-        && message.getReplyMessage() == null
-        && messagesMap.containsKey(message.getReplyMessageRefer().getMessageClientId())) {
-      message.setReplyMessage(
-          messagesMap.get(message.getReplyMessageRefer().getMessageClientId()).getMessageData());
+        && message.getReplyMessage() == null) {
+      ChatMessageBean replyBean =
+          messageStore.find(message.getReplyMessageRefer().getMessageClientId());
+      if (replyBean != null) {
+        message.setReplyMessage(replyBean.getMessageData());
+      }
     }
   }
 
@@ -210,15 +200,9 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
       return;
     }
     for (ChatMessageBean bean : message) {
-      int index = -1;
-      for (int j = 0; j < messageList.size(); j++) {
-        if (bean.isSameMessage(messageList.get(j))) {
-          index = j;
-          break;
-        }
-      }
+      int index = messageStore.indexOf(bean);
       if (index > -1) {
-        messageList.remove(index);
+        messageStore.removeAt(index);
         notifyItemRemoved(index);
       }
     }
@@ -227,11 +211,10 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   public void appendMessage(ChatMessageBean message) {
     int pos = messageList.size();
     int deletePos = getMessageIndex(message);
-    messageList.add(message);
-    messagesMap.put(message.getMsgClientId(), message);
+    messageStore.add(message);
     loadReplyInfo(message);
     if (deletePos >= 0) {
-      messageList.remove(deletePos);
+      messageStore.removeAt(deletePos);
       notifyItemRangeChanged(deletePos, pos - deletePos);
     } else {
       notifyItemInserted(pos);
@@ -240,8 +223,7 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
 
   public void clearMessageList() {
     int size = messageList.size();
-    messageList.clear();
-    messagesMap.clear();
+    messageStore.clear();
     notifyItemRangeRemoved(0, size);
   }
 
@@ -354,61 +336,56 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   }
 
   public void pinMsg(String uuid, V2NIMMessagePin pinOption) {
-    int index = -1;
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(
-          messageList.get(i).getMessageData().getMessage().getMessageClientId(), uuid)) {
-        index = i;
-        break;
-      }
-    }
+    int index = messageStore.indexOf(uuid);
     if (index != -1) {
       messageList.get(index).setPinAccid(pinOption);
-      updateMessage(messageList.get(index), PAYLOAD_SIGNAL);
+      notifyItemChanged(index, PAYLOAD_SIGNAL);
     }
   }
 
   public void updateMessagePin(Map<String, V2NIMMessagePin> pinOptionMap) {
     ALog.d(LIB_TAG, TAG, "updateMessagePin");
+    // 先清除不在 pin 列表中的标记，只需检查已 pin 的消息
     for (int i = 0; i < messageList.size(); i++) {
       IMMessageInfo messageInfo = messageList.get(i).getMessageData();
-      String uuId = messageInfo.getMessage().getMessageClientId();
-      if (pinOptionMap != null && pinOptionMap.containsKey(uuId)) {
-        V2NIMMessagePin pin = pinOptionMap.get(uuId);
-        if (pin != null) {
-          messageInfo.setPinOption(new MessagePinInfo(pin));
-        } else {
-          messageInfo.setPinOption(null);
-        }
-        notifyItemChanged(i, PAYLOAD_SIGNAL);
-      } else if (messageInfo.getPinOption() != null
-          && (pinOptionMap == null || !pinOptionMap.containsKey(uuId))) {
+      if (messageInfo.getPinOption() != null
+          && (pinOptionMap == null
+              || !pinOptionMap.containsKey(messageInfo.getMessage().getMessageClientId()))) {
         messageInfo.setPinOption(null);
         notifyItemChanged(i, PAYLOAD_SIGNAL);
       }
     }
+    if (pinOptionMap == null) {
+      return;
+    }
+    for (Map.Entry<String, V2NIMMessagePin> entry : pinOptionMap.entrySet()) {
+      int index = messageStore.indexOf(entry.getKey());
+      if (index < 0) {
+        continue;
+      }
+      IMMessageInfo messageInfo = messageList.get(index).getMessageData();
+      V2NIMMessagePin pin = entry.getValue();
+      if (pin != null) {
+        messageInfo.setPinOption(new MessagePinInfo(pin));
+      } else {
+        messageInfo.setPinOption(null);
+      }
+      notifyItemChanged(index, PAYLOAD_SIGNAL);
+    }
   }
 
   public void removeMessagePin(String uuid) {
-    int index = -1;
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(
-          messageList.get(i).getMessageData().getMessage().getMessageClientId(), uuid)) {
-        index = i;
-        break;
-      }
-    }
+    int index = messageStore.indexOf(uuid);
     if (index != -1) {
       messageList.get(index).setPinAccid(null);
-      updateMessage(messageList.get(index), PAYLOAD_SIGNAL);
+      notifyItemChanged(index, PAYLOAD_SIGNAL);
     }
   }
 
   public void updateMessage(ChatMessageBean message, Object payload) {
     int pos = getMessageIndex(message);
     if (pos >= 0) {
-      messageList.set(pos, message);
-      messagesMap.put(message.getMsgClientId(), message);
+      messageStore.set(pos, message);
       notifyItemChanged(pos, payload);
     }
   }
@@ -420,28 +397,14 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
    * @return 插入的位置
    */
   public int insertMessageSortByTime(ChatMessageBean message) {
-    int index = -1;
     if (message == null) {
-      return index;
-    }
-
-    for (int i = 0; i < messageList.size(); i++) {
-      if (message.getMessageData().getMessage().getCreateTime()
-          < messageList.get(i).getMessageData().getMessage().getCreateTime()) {
-        index = i;
-        break;
-      }
+      return -1;
     }
-    messagesMap.put(message.getMsgClientId(), message);
+    int index = messageStore.insertSortByTime(message);
     loadReplyInfo(message);
-    if (index >= 0) {
-      messageList.add(index, message);
-      notifyItemInserted(index);
-    } else {
-      messageList.add(message);
-      notifyItemInserted(messageList.size() - 1);
-    }
-    return index;
+    notifyItemInserted(index);
+    // 插入到末尾时保持原有返回值语义
+    return index == messageList.size() - 1 ? -1 : index;
   }
 
   /**
@@ -453,17 +416,8 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     if (clientId == null) {
       return;
     }
-    int index = -1;
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(
-          clientId, messageList.get(i).getMessageData().getMessage().getMessageClientId())) {
-        index = i;
-        break;
-      }
-    }
+    int index = messageStore.remove(clientId);
     if (index >= 0) {
-      messageList.remove(index);
-      messagesMap.remove(clientId);
       notifyItemRemoved(index);
     }
   }
@@ -479,23 +433,12 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   }
 
   private int getMessageIndex(ChatMessageBean message) {
-    if (message == null) {
-      return -1;
-    }
-    for (int index = 0; index < messageList.size(); index++) {
-      if (message.isSameMessage(messageList.get(index))) {
-        return index;
-      }
-    }
-    return -1;
+    return messageStore.indexOf(message);
   }
 
   public void forwardMessages(List<ChatMessageBean> message) {
     removeSameMessage(message);
-    messageList.addAll(0, message);
-    for (ChatMessageBean messageBean : message) {
-      messagesMap.put(messageBean.getMsgClientId(), messageBean);
-    }
+    messageStore.addAll(0, message);
     loadReplyInfo(message);
     notifyItemRangeInserted(0, message.size());
     if (messageList.size() > message.size()) {
@@ -503,6 +446,39 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     }
   }
 
+  /**
+   * 从列表头部移除消息，用于消息窗口向后滑动时释放较早的消息
+   *
+   * @param count 移除数量
+   */
+  public void removeMessagesFromStart(int count) {
+    count = Math.min(count, messageList.size());
+    if (count <= 0) {
+      return;
+    }
+    messageStore.removeRange(0, count);
+    notifyItemRangeRemoved(0, count);
+    if (!messageList.isEmpty()) {
+      //刷新消息之间的时间是否需要展示
+      notifyItemChanged(0);
+    }
+  }
+
+  /**
+   * 从列表尾部移除消息，用于消息窗口向前滑动时释放较新的消息
+   *
+   * @param count 移除数量
+   */
+  public void removeMessagesFromEnd(int count) {
+    int size = messageList.size();
+    count = Math.min(count, size);
+    if (count <= 0) {
+      return;
+    }
+    messageStore.removeRange(size - count, size);
+    notifyItemRangeRemoved(size - count, count);
+  }
+
   public ChatMessageBean getFirstMessage() {
     if (messageList.isEmpty()) {
       return null;
@@ -518,33 +494,20 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   }
 
   public void removeMessage(ChatMessageBean message) {
-    int pos = messageList.indexOf(message);
-    if (pos >= 0) {
-      messageList.remove(message);
-      messagesMap.remove(message.getMsgClientId());
+    int pos = messageStore.indexOf(message);
+    if (pos >= 0 && message.equals(messageList.get(pos))) {
+      messageStore.removeAt(pos);
       notifyItemRemoved(pos);
     }
     clearReply(message.getMsgClientId());
   }
 
   public ChatMessageBean searchMessage(String messageId) {
-    for (int i = messageList.size() - 1; i >= 0; i--) {
-      if (TextUtils.equals(
-          messageId, messageList.get(i).getMessageData().getMessage().getMessageClientId())) {
-        return messageList.get(i);
-      }
-    }
-    return null;
+    return messageStore.find(messageId);
   }
 
   public int searchMessagePosition(String messageId) {
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(
-          messageId, messageList.get(i).getMessageData().getMessage().getMessageClientId())) {
-        return i;
-      }
-    }
-    return -1;
+    return messageStore.indexOf(messageId);
   }
 
   public List<ChatMessageBean> getMessageList() {
@@ -0,0 +1,214 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.message.adapter;
+
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消息列表存储，列表按消息 createTime 升序排列。
+ *
+ * <p>clientId 索引与列表保持同步，查找消息为 O(1)；定位消息位置时先按 createTime 二分，
+ * 再在相同时间的消息中比对，为 O(log n)。消息发送成功后 createTime 可能被服务端时间修正，
+ * 此时局部顺序不再严格有序，二分未命中时退化为线性查找，保证结果正确。
+ */
+class ChatMessageStore {
+
+  private final List<ChatMessageBean> messageList = new ArrayList<>();
+  private final List<ChatMessageBean> readOnlyList = Collections.unmodifiableList(messageList);
+  private final Map<String, ChatMessageBean> messagesMap = new HashMap<>();
+
+  int size() {
+    return messageList.size();
+  }
+
+  boolean isEmpty() {
+    return messageList.isEmpty();
+  }
+
+  ChatMessageBean get(int position) {
+    return messageList.get(position);
+  }
+
+  /** 只读视图，随存储内容变化 */
+  List<ChatMessageBean> asList() {
+    return readOnlyList;
+  }
+
+  @Nullable
+  ChatMessageBean find(String clientId) {
+    if (clientId == null) {
+      return null;
+    }
+    return messagesMap.get(clientId);
+  }
+
+  boolean contains(String clientId) {
+    return clientId != null && messagesMap.containsKey(clientId);
+  }
+
+  /**
+   * 查找与 message 为同一条消息（{@link ChatMessageBean#isSameMessage}）的位置
+   *
+   * @return 位置，不存在返回-1
+   */
+  int indexOf(ChatMessageBean message) {
+    if (message == null) {
+      return -1;
+    }
+    ChatMessageBean origin = messagesMap.get(message.getMsgClientId());
+    if (origin == null || !message.isSameMessage(origin)) {
+      return -1;
+    }
+    return positionOf(origin);
+  }
+
+  /**
+   * 根据 clientId 查找位置
+   *
+   * @return 位置，不存在返回-1
+   */
+  int indexOf(String clientId) {
+    ChatMessageBean origin = find(clientId);
+    if (origin == null) {
+      return -1;
+    }
+    return positionOf(origin);
+  }
+
+  /** 在末尾追加消息 */
+  void add(ChatMessageBean message) {
+    messageList.add(message);
+    messagesMap.put(message.getMsgClientId(), message);
+  }
+
+  /** 在指定位置批量插入消息 */
+  void addAll(int position, List<ChatMessageBean> messages) {
+    messageList.addAll(position, messages);
+    for (ChatMessageBean messageBean : messages) {
+      messagesMap.put(messageBean.getMsgClientId(), messageBean);
+    }
+  }
+
+  /**
+   * 按 createTime 插入消息，相同时间的消息插入到其后
+   *
+   * @return 插入的位置
+   */
+  int insertSortByTime(ChatMessageBean message) {
+    long time = createTime(message);
+    int low = 0;
+    int high = messageList.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (createTime(messageList.get(mid)) <= time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    messageList.add(low, message);
+    messagesMap.put(message.getMsgClientId(), message);
+    return low;
+  }
+
+  /** 替换指定位置的消息 */
+  void set(int position, ChatMessageBean message) {
+    ChatMessageBean old = messageList.set(position, message);
+    if (old != null && !TextUtils.equals(old.getMsgClientId(), message.getMsgClientId())) {
+      messagesMap.remove(old.getMsgClientId());
+    }
+    messagesMap.put(message.getMsgClientId(), message);
+  }
+
+  /** 删除指定位置的消息 */
+  ChatMessageBean removeAt(int position) {
+    ChatMessageBean removed = messageList.remove(position);
+    if (removed != null && messagesMap.get(removed.getMsgClientId()) == removed) {
+      messagesMap.remove(removed.getMsgClientId());
+    }
+    return removed;
+  }
+
+  /** 删除 [fromIndex, toIndex) 区间的消息 */
+  void removeRange(int fromIndex, int toIndex) {
+    List<ChatMessageBean> subList = messageList.subList(fromIndex, toIndex);
+    for (ChatMessageBean removed : subList) {
+      if (messagesMap.get(removed.getMsgClientId()) == removed) {
+        messagesMap.remove(removed.getMsgClientId());
+      }
+    }
+    subList.clear();
+  }
+
+  /**
+   * 根据 clientId 删除消息
+   *
+   * @return 删除的位置，不存在返回-1
+   */
+  int remove(String clientId) {
+    int index = indexOf(clientId);
+    if (index >= 0) {
+      removeAt(index);
+    }
+    return index;
+  }
+
+  void clear() {
+    messageList.clear();
+    messagesMap.clear();
+  }
+
+  private int positionOf(ChatMessageBean target) {
+    int size = messageList.size();
+    if (size == 0) {
+      return -1;
+    }
+    // 新消息最常被查找，优先检查末尾
+    if (messageList.get(size - 1) == target) {
+      return size - 1;
+    }
+    long time = createTime(target);
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (createTime(messageList.get(mid)) < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int index = low; index < size; index++) {
+      ChatMessageBean bean = messageList.get(index);
+      if (bean == target) {
+        return index;
+      }
+      if (createTime(bean) != time) {
+        break;
+      }
+    }
+    for (int index = 0; index < size; index++) {
+      if (messageList.get(index) == target) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  // 排序使用的消息时间
+  long createTime(ChatMessageBean bean) {
+    if (bean == null || bean.getMessageData() == null) {
+      return 0;
+    }
+    return bean.getMessageData().getMessage().getCreateTime();
+  }
+}
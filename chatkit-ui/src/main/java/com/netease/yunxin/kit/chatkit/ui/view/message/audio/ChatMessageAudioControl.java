@@ -15,8 +15,8 @@ import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import com.netease.yunxin.kit.chatkit.ui.model.MessageExtension;
 import com.netease.yunxin.kit.chatkit.ui.view.message.adapter.ChatMessageAdapter;
-import com.netease.yunxin.kit.chatkit.utils.MessageExtensionHelper;
 import com.netease.yunxin.kit.common.utils.FileUtils;
 import com.netease.yunxin.kit.common.utils.storage.StorageUtil;
 import com.netease.yunxin.kit.corekit.im2.audioplayer.BaseAudioControl;
@@ -31,7 +31,7 @@ import org.json.JSONObject;
 public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
   private static ChatMessageAudioControl mChatMessageAudioControl = null;
 
-  private static final String READ_KEY = "audioMessageHaveRead";
+  private static final String READ_KEY = MessageExtension.KEY_AUDIO_READ;
 
   private boolean mIsNeedPlayNext = false;
 
@@ -267,15 +267,8 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
         || message.getMessage().isSelf()) {
       return false;
     }
-    Map<String, Object> localExtensionMap =
-        MessageExtensionHelper.parseJsonStringToMap(message.getMessage().getLocalExtension());
-    if (localExtensionMap != null) {
-      Object object = localExtensionMap.get(READ_KEY);
-      if (object instanceof Boolean) {
-        return !((Boolean) object);
-      }
-    }
-    return false;
+    Boolean read = MessageExtension.of(message.getMessage()).getAudioRead();
+    return read != null && !read;
   }
 
   public void setAudioMessageHaveRead(IMMessageInfo message) {
@@ -284,7 +277,7 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
       return;
     }
     Map<String, Object> localExtensionMap =
-        MessageExtensionHelper.parseJsonStringToMap(message.getMessage().getLocalExtension());
+        MessageExtension.of(message.getMessage()).copyLocalExtension();
     if (localExtensionMap == null) {
       localExtensionMap = new HashMap<>();
     }
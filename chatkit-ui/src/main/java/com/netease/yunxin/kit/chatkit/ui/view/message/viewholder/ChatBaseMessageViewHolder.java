@@ -22,6 +22,7 @@ import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
 import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import com.netease.yunxin.kit.chatkit.ui.model.MessageExtension;
 import com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.ChatMessageViewHolderUIOptions;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.CommonUIOption;
@@ -29,7 +30,6 @@ import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.CommonU
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.MessageStatusUIOption;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.SignalUIOption;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.UserInfoUIOption;
-import com.netease.yunxin.kit.chatkit.utils.MessageExtensionHelper;
 import com.netease.yunxin.kit.common.ui.utils.AppLanguageConfig;
 import com.netease.yunxin.kit.common.ui.utils.AvatarColor;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
@@ -39,7 +39,6 @@ import com.netease.yunxin.kit.corekit.im2.provider.V2MessageProvider;
 import com.netease.yunxin.kit.corekit.im2.utils.TimeFormatLocalUtils;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 /** base message view holder for chat message item */
 public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHolder {
@@ -392,16 +391,12 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
     String avatar = null;
     String avatarName = fromAccount;
     if (isForwardMsg()) {
-      Map<String, Object> remoteExt =
-          MessageExtensionHelper.parseJsonStringToMap(
-              message.getMessageData().getMessage().getServerExtension());
-      if (remoteExt != null) {
-        if (remoteExt.containsKey(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_NICK)) {
-          avatarName = remoteExt.get(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_NICK).toString();
-        }
-        if (remoteExt.containsKey(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_AVATAR)) {
-          avatar = remoteExt.get(ChatKitUIConstant.KEY_MERGE_REMOTE_EXTENSION_AVATAR).toString();
-        }
+      MessageExtension extension = message.getExtension();
+      if (extension.getMergeNick() != null) {
+        avatarName = extension.getMergeNick();
+      }
+      if (extension.getMergeAvatar() != null) {
+        avatar = extension.getMergeAvatar();
       }
       baseViewBinding.otherUsername.setVisibility(View.VISIBLE);
       baseViewBinding.otherUsername.setText(avatarName);
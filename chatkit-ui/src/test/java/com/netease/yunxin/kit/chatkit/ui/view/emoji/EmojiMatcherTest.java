@@ -0,0 +1,195 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.emoji;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+/** EmojiMatcher 匹配结果，以及与正则匹配方式在聊天文本上的结果对比 */
+public class EmojiMatcherTest {
+
+  // 与 EmojiManager 默认表情正则相同
+  private static final Pattern EMOJI_PATTERN = Pattern.compile("\\[[^\\[]{1,20}\\]");
+
+  private static final String EMOJI_XML = "src/main/res/xml/chat_emoji.xml";
+
+  private static final String[] DEFAULT_TAGS = {
+    "[大笑]", "[开心]", "[色]", "[酷]", "[奸笑]", "[亲]", "[伸舌头]", "[眯眼]", "[可爱]", "[鬼脸]",
+    "[偷笑]", "[喜悦]", "[狂喜]", "[惊讶]", "[流泪]", "[流汗]", "[天使]", "[笑哭]", "[尴尬]", "[惊恐]",
+    "[大哭]", "[烦躁]", "[恐怖]", "[两眼冒星]", "[害羞]", "[睡着]", "[冒星]", "[口罩]", "[OK]", "[好吧]"
+  };
+
+  private static final String[] WORDS = {
+    "好的", "收到", "明天上午十点开会", "哈哈哈", "ok", "see you", "这个方案我再看看", "辛苦了",
+    "[图片]", "价格[含税]", "1+1=2", "@张三 ", "http://example.com/a?b=1", "  ", "\n", "[", "嗯"
+  };
+
+  private final Set<String> tags = loadTags();
+  private final EmojiMatcher matcher = EmojiMatcher.build(tags);
+
+  @Test
+  public void match_prefersLongestEmoji() {
+    EmojiMatcher prefixMatcher = EmojiMatcher.build(Arrays.asList(":)", ":))", ":)))"));
+    assertEquals(
+        Arrays.asList("0-4::)))", "5-7::)", "8-11::))"), find(prefixMatcher, ":))) :) :))"));
+    // 最长匹配不成立时回退到已匹配的较短表情
+    assertEquals(Arrays.asList("0-3::))", "3-5::)"), find(prefixMatcher, ":)):)"));
+  }
+
+  @Test
+  public void match_adjacentTags() {
+    assertEquals(
+        Arrays.asList("0-4:[大笑]", "4-8:[开心]", "8-11:[色]", "11-15:[OK]"),
+        find(matcher, "[大笑][开心][色][OK]"));
+    assertEquals(Arrays.asList("2-5:[酷]", "5-8:[酷]"), find(matcher, "好的[酷][酷]"));
+  }
+
+  @Test
+  public void match_skipsUnknownTags() {
+    assertEquals(Arrays.asList("4-8:[大笑]"), find(matcher, "[xx][大笑][未知表情]"));
+    assertEquals(Arrays.asList("1-5:[大笑]"), find(matcher, "[[大笑]"));
+    assertEquals(Arrays.asList("4-7:[色]"), find(matcher, "[大笑 [色]"));
+    assertTrue(find(matcher, "[大笑").isEmpty());
+    assertTrue(find(matcher, "[oK] [OKK]").isEmpty());
+    assertFalse(matcher.containsEmoji("[xx] 价格[含税]"));
+    assertTrue(matcher.containsEmoji("价格[含税][OK]"));
+  }
+
+  @Test
+  public void match_findsTagBeforeStrayBracket() {
+    // 正则贪婪匹配到后面的]，整体不是表情，表情被漏掉
+    String text = "[大笑] 好的]";
+    assertTrue(findByRegex(text).isEmpty());
+    assertEquals(Arrays.asList("0-4:[大笑]"), find(matcher, text));
+  }
+
+  @Test
+  public void match_inRange() {
+    String text = "[大笑][开心][色]";
+    List<String> result = new ArrayList<>();
+    int count = matcher.match(text, 2, 9, (start, end, emoji) -> result.add(start + "-" + end));
+    // 范围内只完整包含 [开心]
+    assertEquals(1, count);
+    assertEquals(Arrays.asList("4-8"), result);
+  }
+
+  @Test
+  public void match_agreesWithRegexOnChatText() {
+    List<String> messages = buildMessages(5000, new Random(3));
+    int emojiCount = 0;
+    for (String message : messages) {
+      List<String> expected = findByRegex(message);
+      assertEquals(message, expected, find(matcher, message));
+      emojiCount += expected.size();
+    }
+    assertTrue(emojiCount > 0);
+  }
+
+  @Test
+  public void match_countEqualsRegexOnLargeText() {
+    List<String> messages = buildMessages(20000, new Random(5));
+    assertEquals(countByRegex(messages), countByMatcher(messages));
+  }
+
+  private int countByMatcher(List<String> messages) {
+    int count = 0;
+    for (String message : messages) {
+      count += matcher.match(message, (start, end, emoji) -> {});
+    }
+    return count;
+  }
+
+  // 与 MessageHelper 中正则匹配方式相同：正则找到候选文本后按表情文本查找
+  private int countByRegex(List<String> messages) {
+    int count = 0;
+    for (String message : messages) {
+      Matcher regexMatcher = EMOJI_PATTERN.matcher(message);
+      while (regexMatcher.find()) {
+        if (tags.contains(message.substring(regexMatcher.start(), regexMatcher.end()))) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private List<String> findByRegex(String text) {
+    List<String> result = new ArrayList<>();
+    Matcher regexMatcher = EMOJI_PATTERN.matcher(text);
+    while (regexMatcher.find()) {
+      String emoji = text.substring(regexMatcher.start(), regexMatcher.end());
+      if (tags.contains(emoji)) {
+        result.add(regexMatcher.start() + "-" + regexMatcher.end() + ":" + emoji);
+      }
+    }
+    return result;
+  }
+
+  private static List<String> find(EmojiMatcher emojiMatcher, String text) {
+    List<String> result = new ArrayList<>();
+    int count =
+        emojiMatcher.match(
+            text, (start, end, emoji) -> result.add(start + "-" + end + ":" + emoji));
+    assertEquals(count, result.size());
+    return result;
+  }
+
+  // 模拟聊天文本：普通文字、表情、未知的方括号文本混合，不含单独的]
+  private List<String> buildMessages(int count, Random random) {
+    List<String> tagList = new ArrayList<>(tags);
+    List<String> messages = new ArrayList<>(count);
+    for (int index = 0; index < count; index++) {
+      StringBuilder builder = new StringBuilder();
+      int parts = 1 + random.nextInt(12);
+      for (int part = 0; part < parts; part++) {
+        int type = random.nextInt(10);
+        if (type < 3) {
+          builder.append(tagList.get(random.nextInt(tagList.size())));
+        } else if (type == 3) {
+          builder.append("[未知").append(random.nextInt(100)).append(']');
+        } else {
+          builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+      }
+      messages.add(builder.toString());
+    }
+    return messages;
+  }
+
+  // 读取组件内置的全部表情文本，读取失败时使用部分默认表情
+  private static Set<String> loadTags() {
+    Set<String> result = new LinkedHashSet<>();
+    File file = new File(EMOJI_XML);
+    if (file.exists()) {
+      try {
+        String xml = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Matcher tagMatcher = Pattern.compile("Tag=\"([^\"]+)\"").matcher(xml);
+        while (tagMatcher.find()) {
+          result.add(tagMatcher.group(1));
+        }
+      } catch (Exception e) {
+        result.clear();
+      }
+    }
+    if (result.isEmpty()) {
+      result.addAll(Arrays.asList(DEFAULT_TAGS));
+    }
+    return result;
+  }
+}
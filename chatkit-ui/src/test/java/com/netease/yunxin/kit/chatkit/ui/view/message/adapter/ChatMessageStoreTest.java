@@ -0,0 +1,129 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.message.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/** ChatMessageStore 排序插入与位置查找，覆盖1万条以上消息和大量相同 createTime 的情况 */
+public class ChatMessageStoreTest {
+
+  private static final int MESSAGE_COUNT = 12000;
+
+  @Test
+  public void insertSortByTime_keepsTimeOrderWithDuplicates() {
+    TestStore store = new TestStore();
+    Random random = new Random(1);
+    List<TestBean> inserted = new ArrayList<>();
+    for (int index = 0; index < MESSAGE_COUNT; index++) {
+      // 时间范围远小于消息数，大量消息时间相同
+      TestBean bean = new TestBean("msg" + index, random.nextInt(2000));
+      store.insertSortByTime(bean);
+      inserted.add(bean);
+    }
+    assertEquals(MESSAGE_COUNT, store.size());
+    for (int index = 1; index < store.size(); index++) {
+      TestBean previous = (TestBean) store.get(index - 1);
+      TestBean current = (TestBean) store.get(index);
+      assertTrue(previous.time <= current.time);
+      if (previous.time == current.time) {
+        // 相同时间按插入顺序排列
+        assertTrue(previous.sequence < current.sequence);
+      }
+    }
+    for (TestBean bean : inserted) {
+      assertEquals(linearIndexOf(store, bean), store.indexOf(bean.id));
+    }
+  }
+
+  @Test
+  public void indexOf_fallsBackToLinearWhenTimeCorrected() {
+    TestStore store = new TestStore();
+    for (int index = 0; index < MESSAGE_COUNT; index++) {
+      store.add(new TestBean("msg" + index, index / 10));
+    }
+    // 模拟发送成功后服务端修正时间，局部顺序不再有序
+    TestBean corrected = (TestBean) store.get(MESSAGE_COUNT / 2);
+    corrected.time = MESSAGE_COUNT;
+    TestBean early = (TestBean) store.get(MESSAGE_COUNT - 5);
+    early.time = 0;
+    assertEquals(MESSAGE_COUNT / 2, store.indexOf(corrected.id));
+    assertEquals(MESSAGE_COUNT - 5, store.indexOf(early.id));
+    for (int index = 0; index < store.size(); index += 97) {
+      assertEquals(index, store.indexOf(store.get(index).getMsgClientId()));
+    }
+  }
+
+  @Test
+  public void removeRange_keepsIndexInSync() {
+    TestStore store = new TestStore();
+    for (int index = 0; index < MESSAGE_COUNT; index++) {
+      store.add(new TestBean("msg" + index, index / 3));
+    }
+    store.removeRange(0, 2000);
+    assertEquals(-1, store.indexOf("msg0"));
+    assertEquals(-1, store.indexOf("msg1999"));
+    assertEquals(0, store.indexOf("msg2000"));
+    assertEquals(MESSAGE_COUNT - 2001, store.indexOf("msg" + (MESSAGE_COUNT - 1)));
+    assertEquals(7000, store.remove("msg9000"));
+    assertEquals(-1, store.indexOf("msg9000"));
+    assertEquals(7000, store.indexOf("msg9001"));
+  }
+
+  @Test
+  public void indexOf_matchesLinearScanAfterRandomInserts() {
+    int count = 20000;
+    TestStore store = new TestStore();
+    Random random = new Random(7);
+    for (int index = 0; index < count; index++) {
+      store.insertSortByTime(new TestBean("msg" + index, random.nextInt(count / 4)));
+    }
+    for (int index = 0; index < 2000; index++) {
+      String id = "msg" + random.nextInt(count);
+      assertEquals(linearIndexOf(store, (TestBean) store.find(id)), store.indexOf(id));
+    }
+  }
+
+  private static int linearIndexOf(ChatMessageStore store, TestBean bean) {
+    for (int index = 0; index < store.size(); index++) {
+      if (store.get(index) == bean) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  // 按测试数据中的时间排序，不依赖 SDK 消息对象
+  private static class TestStore extends ChatMessageStore {
+    @Override
+    long createTime(ChatMessageBean bean) {
+      return ((TestBean) bean).time;
+    }
+  }
+
+  private static class TestBean extends ChatMessageBean {
+    private static int nextSequence;
+
+    final String id;
+    final int sequence = nextSequence++;
+    long time;
+
+    TestBean(String id, long time) {
+      this.id = id;
+      this.time = time;
+    }
+
+    @Override
+    public String getMsgClientId() {
+      return id;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
 import com.netease.yunxin.kit.contactkit.ui.databinding.FunFriendContactViewHolderBinding;
 import com.netease.yunxin.kit.contactkit.ui.model.BaseContactBean;
@@ -58,8 +59,13 @@ public class FunContactViewHolder extends BaseContactViewHolder {
       binding.rbSelector.setVisibility(View.GONE);
       binding.rootView.setOnClickListener(
           v -> {
+            // 好友列表按差异刷新，未变化的条目不会重新绑定，点击时取当前位置
+            int currentPosition = getBindingAdapterPosition();
+            if (currentPosition == RecyclerView.NO_POSITION) {
+              return;
+            }
             if (actions != null && actions.getContactListener(bean.viewType) != null) {
-              actions.getContactListener(bean.viewType).onClick(position, bean);
+              actions.getContactListener(bean.viewType).onClick(currentPosition, bean);
             }
           });
     }
@@ -9,6 +9,9 @@ public abstract class IndexPinyinBean extends IndexBean {
 
   private String indexPinyin;
 
+  //precomputed key for sorting, group of index tag + pinyin
+  private transient String sortKey;
+
   public String getIndexPinyin() {
     return indexPinyin;
   }
@@ -18,6 +21,15 @@ public abstract class IndexPinyinBean extends IndexBean {
     return this;
   }
 
+  public String getSortKey() {
+    return sortKey;
+  }
+
+  public IndexPinyinBean setSortKey(String sortKey) {
+    this.sortKey = sortKey;
+    return this;
+  }
+
   //is need to translate as pinyin
   public boolean isNeedToPinyin() {
     return false;
@@ -5,6 +5,7 @@
 package com.netease.yunxin.kit.contactkit.ui.indexbar.helper;
 
 import android.text.TextUtils;
+import android.util.LruCache;
 import com.github.promeg.pinyinhelper.Pinyin;
 import com.netease.yunxin.kit.contactkit.ui.indexbar.bean.IndexPinyinBean;
 import java.util.Collections;
@@ -12,6 +13,50 @@ import java.util.Comparator;
 import java.util.List;
 
 public class IndexBarDataHelperImpl implements IIndexBarDataHelper {
+
+  private static final String TAG_OTHER = "#";
+
+  //sort key group: A-Z first, then "#" starts with digit, then other "#"
+  private static final char GROUP_LETTER = '0';
+  private static final char GROUP_DIGIT = '1';
+  private static final char GROUP_OTHER = '2';
+
+  private static final int PINYIN_CACHE_SIZE = 8192;
+
+  //display name -> pinyin
+  private static final LruCache<String, String> pinyinCache = new LruCache<>(PINYIN_CACHE_SIZE);
+
+  //beans without pinyin have no sort key and stay before others, in their original order
+  private static final Comparator<IndexPinyinBean> SORT_KEY_COMPARATOR =
+      (lhs, rhs) -> {
+        String lhsKey = lhs.getSortKey();
+        String rhsKey = rhs.getSortKey();
+        if (lhsKey == null) {
+          return rhsKey == null ? 0 : -1;
+        }
+        if (rhsKey == null) {
+          return 1;
+        }
+        return lhsKey.compareTo(rhsKey);
+      };
+
+  /** Chinese Character -> upper case Pinyin, cached by target */
+  public static String getPinyin(String target) {
+    if (TextUtils.isEmpty(target)) {
+      return "";
+    }
+    String pinyin = pinyinCache.get(target);
+    if (pinyin == null) {
+      StringBuilder pySb = new StringBuilder(target.length() * 2);
+      for (int i = 0; i < target.length(); i++) {
+        pySb.append(Pinyin.toPinyin(target.charAt(i)));
+      }
+      pinyin = pySb.toString().toUpperCase();
+      pinyinCache.put(target, pinyin);
+    }
+    return pinyin;
+  }
+
   /** if need Chinese Character -> Pinyin */
   @Override
   public IIndexBarDataHelper convert(List<? extends IndexPinyinBean> data) {
@@ -20,15 +65,7 @@ public class IndexBarDataHelperImpl implements IIndexBarDataHelper {
     }
     int size = data.size();
     for (int i = 0; i < size; i++) {
-      IndexPinyinBean indexPinyinBean = data.get(i);
-      StringBuilder pySb = new StringBuilder();
-      if (indexPinyinBean.isNeedToPinyin()) {
-        String target = indexPinyinBean.getTarget();
-        for (int i1 = 0; i1 < target.length(); i1++) {
-          pySb.append(Pinyin.toPinyin(target.charAt(i1)).toUpperCase());
-        }
-        indexPinyinBean.setIndexPinyin(pySb.toString()); //设置城市名全拼音
-      }
+      convert(data.get(i));
     }
     return this;
   }
@@ -41,20 +78,7 @@ public class IndexBarDataHelperImpl implements IIndexBarDataHelper {
     }
     int size = dataList.size();
     for (int i = 0; i < size; i++) {
-      IndexPinyinBean indexPinyinBean = dataList.get(i);
-      if (indexPinyinBean.isNeedToPinyin()) {
-        //以下代码设置城市拼音首字母
-        if (TextUtils.isEmpty(indexPinyinBean.getIndexPinyin())) {
-          indexPinyinBean.setIndexTag("#");
-          continue;
-        }
-        String tagString = indexPinyinBean.getIndexPinyin().substring(0, 1);
-        if (tagString.matches("[A-Z]")) { //如果是A-Z字母开头
-          indexPinyinBean.setIndexTag(tagString);
-        } else { //特殊字母这里统一用#处理
-          indexPinyinBean.setIndexTag("#");
-        }
-      }
+      fillIndexTag(dataList.get(i));
     }
     return this;
   }
@@ -67,37 +91,7 @@ public class IndexBarDataHelperImpl implements IIndexBarDataHelper {
     convert(data);
     fillIndexTag(data);
     //对数据源进行排序
-    Collections.sort(
-        data,
-        (Comparator<IndexPinyinBean>)
-            (lhs, rhs) -> {
-              if (!lhs.isNeedToPinyin()) {
-                return 0;
-              } else if (!rhs.isNeedToPinyin()) {
-                return 0;
-              } else if (lhs.getIndexTag().equals("#") && !rhs.getIndexTag().equals("#")) {
-                return 1;
-              } else if (!lhs.getIndexTag().equals("#") && rhs.getIndexTag().equals("#")) {
-                return -1;
-              } else {
-                String lhsIndexTag = lhs.getIndexTag();
-                String rhsIndexTag = rhs.getIndexTag();
-                if (lhsIndexTag.equals("#") && rhsIndexTag.equals("#")) {
-                  String lhsFirst = lhs.getIndexPinyin().substring(0, 1);
-                  String rhsFirst = rhs.getIndexPinyin().substring(0, 1);
-                  if (TextUtils.isDigitsOnly(lhsFirst) && !TextUtils.isDigitsOnly(rhsFirst)) {
-                    return -1;
-                  } else if (!TextUtils.isDigitsOnly(lhsFirst)
-                      && TextUtils.isDigitsOnly(rhsFirst)) {
-                    return 1;
-                  } else {
-                    return lhs.getIndexPinyin().compareTo(rhs.getIndexPinyin());
-                  }
-                } else {
-                  return lhs.getIndexPinyin().compareTo(rhs.getIndexPinyin());
-                }
-              }
-            });
+    Collections.sort(data, SORT_KEY_COMPARATOR);
     return this;
   }
 
@@ -117,4 +111,96 @@ public class IndexBarDataHelperImpl implements IIndexBarDataHelper {
     }
     return this;
   }
+
+  /**
+   * 插入到已排序的数据中，保持有序，二分查找插入位置
+   *
+   * @param sortedData 已通过 {@link #sortSourceData} 排序的数据
+   * @param bean 插入的数据
+   * @return 插入的位置
+   */
+  public <T extends IndexPinyinBean> int insertSorted(List<T> sortedData, T bean) {
+    convert(bean);
+    fillIndexTag(bean);
+    int low = 0;
+    int high = sortedData.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (SORT_KEY_COMPARATOR.compare(bean, sortedData.get(mid)) >= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    sortedData.add(low, bean);
+    return low;
+  }
+
+  /**
+   * 从已排序的数据中删除，按排序键二分查找，找不到时（如名称已变化）按 equals 查找
+   *
+   * @param sortedData 已通过 {@link #sortSourceData} 排序的数据
+   * @param bean 删除的数据
+   * @return 删除的位置，不存在返回-1
+   */
+  public <T extends IndexPinyinBean> int removeSorted(List<T> sortedData, T bean) {
+    if (bean.getSortKey() == null) {
+      convert(bean);
+      fillIndexTag(bean);
+    }
+    int low = 0;
+    int high = sortedData.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (SORT_KEY_COMPARATOR.compare(bean, sortedData.get(mid)) > 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int i = low; i < sortedData.size(); i++) {
+      T item = sortedData.get(i);
+      if (item.equals(bean)) {
+        sortedData.remove(i);
+        return i;
+      }
+      if (SORT_KEY_COMPARATOR.compare(bean, item) != 0) {
+        break;
+      }
+    }
+    int index = sortedData.indexOf(bean);
+    if (index >= 0) {
+      sortedData.remove(index);
+    }
+    return index;
+  }
+
+  private void convert(IndexPinyinBean indexPinyinBean) {
+    if (indexPinyinBean.isNeedToPinyin()) {
+      indexPinyinBean.setIndexPinyin(getPinyin(indexPinyinBean.getTarget())); //设置全拼音
+    }
+  }
+
+  private void fillIndexTag(IndexPinyinBean indexPinyinBean) {
+    if (!indexPinyinBean.isNeedToPinyin()) {
+      indexPinyinBean.setSortKey(null);
+      return;
+    }
+    String indexPinyin = indexPinyinBean.getIndexPinyin();
+    if (TextUtils.isEmpty(indexPinyin)) {
+      indexPinyinBean.setIndexTag(TAG_OTHER);
+      indexPinyinBean.setSortKey(String.valueOf(GROUP_OTHER));
+      return;
+    }
+    char first = indexPinyin.charAt(0);
+    char group;
+    if (first >= 'A' && first <= 'Z') { //如果是A-Z字母开头
+      indexPinyinBean.setIndexTag(String.valueOf(first));
+      group = GROUP_LETTER;
+    } else { //特殊字母这里统一用#处理
+      indexPinyinBean.setIndexTag(TAG_OTHER);
+      group = Character.isDigit(first) ? GROUP_DIGIT : GROUP_OTHER;
+    }
+    indexPinyinBean.setSortKey(group + indexPinyin);
+  }
 }
@@ -0,0 +1,311 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.contactkit.ui.selector;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.github.promeg.pinyinhelper.Pinyin;
+import com.netease.nimlib.sdk.search.model.RecordHitInfo;
+import com.netease.yunxin.kit.chatkit.model.HitType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 选择器本地搜索索引，数据加载完成后通过 {@link #setData(List)} 整体构建
+ *
+ * <p>索引展示名称、其他文本（昵称、账号等）以及名称的全拼和首字母，均转为小写。搜索在后台线程执行，输入停顿 {@link #DEBOUNCE_MILLIS}
+ * 后开始，新的搜索会取消未完成的搜索；关键字在上一次关键字基础上追加输入时，只在上一次的结果中查找。结果在主线程回调，按数据原有顺序排列，命中展示名称或其拼音时返回名称中的高亮区间。
+ *
+ * @param <T> 数据类型
+ */
+public class SelectorSearchIndex<T> {
+
+  // 输入停顿多久后开始搜索
+  public static final long DEBOUNCE_MILLIS = 100;
+
+  // 搜索过程中每处理多少条检查一次是否已取消
+  private static final int CANCEL_CHECK_INTERVAL = 256;
+
+  private static final ScheduledExecutorService searchExecutor =
+      Executors.newSingleThreadScheduledExecutor();
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  /** 索引字段提供 */
+  public interface Indexer<T> {
+    /** 展示名称，命中时返回在该名称中的高亮区间 */
+    @Nullable
+    String getName(@NonNull T item);
+
+    /** 展示名称命中时的类型 */
+    @NonNull
+    HitType getNameHitType(@NonNull T item);
+
+    /** 其他可搜索的文本，如昵称、账号，命中时不高亮 */
+    @Nullable
+    List<String> getExtraText(@NonNull T item);
+  }
+
+  /** 搜索结果回调，主线程 */
+  public interface SearchCallback<T> {
+    void onResult(@NonNull String query, @NonNull List<Hit<T>> result);
+  }
+
+  /** 搜索命中结果 */
+  public static final class Hit<T> {
+    public final T item;
+    public final HitType hitType;
+    // 展示名称中的高亮区间，命中其他文本时为null
+    @Nullable public final RecordHitInfo hitInfo;
+
+    Hit(T item, HitType hitType, @Nullable RecordHitInfo hitInfo) {
+      this.item = item;
+      this.hitType = hitType;
+      this.hitInfo = hitInfo;
+    }
+  }
+
+  private final Indexer<T> indexer;
+
+  // 索引快照，只在搜索线程中替换
+  private List<Entry<T>> entries = Collections.emptyList();
+
+  // 上一次搜索，用于追加输入时缩小范围，只在搜索线程中访问
+  private List<Entry<T>> lastEntries;
+  private String lastQuery;
+  private List<Entry<T>> lastMatches;
+
+  // 每次搜索或取消时递增，旧的搜索发现不一致时放弃
+  private volatile int generation;
+
+  private Future<?> pendingSearch;
+
+  public SelectorSearchIndex(@NonNull Indexer<T> indexer) {
+    this.indexer = indexer;
+  }
+
+  /**
+   * 设置全部数据，在搜索线程中构建索引
+   *
+   * @param data 数据，调用后修改不影响索引
+   */
+  public void setData(@Nullable List<T> data) {
+    List<T> copy = data == null ? new ArrayList<>() : new ArrayList<>(data);
+    searchExecutor.execute(
+        () -> {
+          List<Entry<T>> newEntries = new ArrayList<>(copy.size());
+          for (T item : copy) {
+            if (item != null) {
+              newEntries.add(buildEntry(item));
+            }
+          }
+          entries = newEntries;
+        });
+  }
+
+  /**
+   * 搜索，取消未完成的搜索
+   *
+   * @param query 关键字
+   * @param callback 主线程回调，被取消的搜索不回调
+   */
+  public void search(@NonNull String query, @NonNull SearchCallback<T> callback) {
+    int searchGeneration = cancel();
+    String normalizedQuery = lowerCase(query.trim());
+    if (normalizedQuery.isEmpty()) {
+      return;
+    }
+    pendingSearch =
+        searchExecutor.schedule(
+            () -> {
+              List<Hit<T>> result = doSearch(normalizedQuery, searchGeneration);
+              if (result == null) {
+                return;
+              }
+              mainHandler.post(
+                  () -> {
+                    if (generation == searchGeneration) {
+                      callback.onResult(query, result);
+                    }
+                  });
+            },
+            DEBOUNCE_MILLIS,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 取消未完成的搜索
+   *
+   * @return 取消后的搜索序号
+   */
+  public int cancel() {
+    int searchGeneration = ++generation;
+    if (pendingSearch != null) {
+      pendingSearch.cancel(false);
+      pendingSearch = null;
+    }
+    return searchGeneration;
+  }
+
+  /** 取消搜索并清空索引 */
+  public void release() {
+    cancel();
+    searchExecutor.execute(
+        () -> {
+          entries = Collections.emptyList();
+          lastEntries = null;
+          lastQuery = null;
+          lastMatches = null;
+        });
+  }
+
+  // 搜索线程执行，被取消时返回null
+  @Nullable
+  private List<Hit<T>> doSearch(String query, int searchGeneration) {
+    List<Entry<T>> snapshot = entries;
+    List<Entry<T>> candidates = snapshot;
+    if (lastEntries == snapshot && lastQuery != null && query.startsWith(lastQuery)) {
+      candidates = lastMatches;
+    }
+    List<Entry<T>> matches = new ArrayList<>();
+    List<Hit<T>> result = new ArrayList<>();
+    for (int index = 0; index < candidates.size(); index++) {
+      if (index % CANCEL_CHECK_INTERVAL == 0 && generation != searchGeneration) {
+        return null;
+      }
+      Entry<T> entry = candidates.get(index);
+      Hit<T> hit = entry.match(query);
+      if (hit != null) {
+        matches.add(entry);
+        result.add(hit);
+      }
+    }
+    lastEntries = snapshot;
+    lastQuery = query;
+    lastMatches = matches;
+    return result;
+  }
+
+  private Entry<T> buildEntry(T item) {
+    String name = indexer.getName(item);
+    List<String> extraText = indexer.getExtraText(item);
+    String[] extra;
+    if (extraText == null || extraText.isEmpty()) {
+      extra = new String[0];
+    } else {
+      List<String> extraList = new ArrayList<>(extraText.size());
+      for (String text : extraText) {
+        if (!TextUtils.isEmpty(text) && !TextUtils.equals(text, name)) {
+          extraList.add(lowerCase(text));
+        }
+      }
+      extra = extraList.toArray(new String[0]);
+    }
+    return new Entry<>(item, name, indexer.getNameHitType(item), extra);
+  }
+
+  // 逐字符转小写，保证长度不变，命中区间可直接对应原文
+  private static String lowerCase(String text) {
+    char[] chars = text.toCharArray();
+    for (int index = 0; index < chars.length; index++) {
+      chars[index] = Character.toLowerCase(chars[index]);
+    }
+    return new String(chars);
+  }
+
+  private static final class Entry<T> {
+    final T item;
+    final HitType nameHitType;
+    // 小写的展示名称
+    final String name;
+    // 名称全拼，名称不含汉字时为null
+    final String pinyin;
+    // 名称中每个字符在全拼中的开始位置，最后一位为全拼长度
+    final int[] pinyinOffsets;
+    // 名称首字母，与名称字符一一对应
+    final String initials;
+    final String[] extra;
+
+    Entry(T item, @Nullable String name, HitType nameHitType, String[] extra) {
+      this.item = item;
+      this.nameHitType = nameHitType;
+      this.extra = extra;
+      this.name = name == null ? "" : lowerCase(name);
+      boolean hasChinese = false;
+      for (int index = 0; index < this.name.length(); index++) {
+        if (Pinyin.isChinese(this.name.charAt(index))) {
+          hasChinese = true;
+          break;
+        }
+      }
+      if (hasChinese) {
+        StringBuilder pinyinBuilder = new StringBuilder(this.name.length() * 3);
+        char[] initialChars = new char[this.name.length()];
+        pinyinOffsets = new int[this.name.length() + 1];
+        for (int index = 0; index < this.name.length(); index++) {
+          char c = this.name.charAt(index);
+          pinyinOffsets[index] = pinyinBuilder.length();
+          String piece = Pinyin.isChinese(c) ? lowerCase(Pinyin.toPinyin(c)) : String.valueOf(c);
+          pinyinBuilder.append(piece);
+          initialChars[index] = piece.isEmpty() ? c : piece.charAt(0);
+        }
+        pinyinOffsets[this.name.length()] = pinyinBuilder.length();
+        pinyin = pinyinBuilder.toString();
+        initials = new String(initialChars);
+      } else {
+        pinyin = null;
+        pinyinOffsets = null;
+        initials = null;
+      }
+    }
+
+    @Nullable
+    Hit<T> match(String query) {
+      int start = name.indexOf(query);
+      if (start >= 0) {
+        return new Hit<>(item, nameHitType, new RecordHitInfo(start, start + query.length()));
+      }
+      if (initials != null) {
+        start = initials.indexOf(query);
+        if (start >= 0) {
+          return new Hit<>(item, nameHitType, new RecordHitInfo(start, start + query.length()));
+        }
+      }
+      if (pinyin != null) {
+        start = pinyin.indexOf(query);
+        if (start >= 0) {
+          return new Hit<>(item, nameHitType, toNameRange(start, start + query.length()));
+        }
+      }
+      for (String text : extra) {
+        if (text.contains(query)) {
+          return new Hit<>(item, HitType.None, null);
+        }
+      }
+      return null;
+    }
+
+    // 全拼中的区间转换为名称中包含它的字符区间
+    private RecordHitInfo toNameRange(int pinyinStart, int pinyinEnd) {
+      int start = 0;
+      while (start + 1 < pinyinOffsets.length - 1 && pinyinOffsets[start + 1] <= pinyinStart) {
+        start++;
+      }
+      int end = start + 1;
+      while (end < pinyinOffsets.length - 1 && pinyinOffsets[end] < pinyinEnd) {
+        end++;
+      }
+      return new RecordHitInfo(start, end);
+    }
+  }
+}
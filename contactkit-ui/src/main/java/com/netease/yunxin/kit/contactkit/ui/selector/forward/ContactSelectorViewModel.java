@@ -8,6 +8,7 @@ import static com.netease.yunxin.kit.contactkit.ui.ContactConstant.LIB_TAG;
 import static com.netease.yunxin.kit.contactkit.ui.ContactUIConfig.DEFAULT_SESSION_MAX_SELECT_COUNT;
 
 import android.text.TextUtils;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.MutableLiveData;
 import com.netease.nimlib.sdk.v2.conversation.enums.V2NIMConversationType;
@@ -16,13 +17,10 @@ import com.netease.nimlib.sdk.v2.conversation.result.V2NIMConversationResult;
 import com.netease.nimlib.sdk.v2.team.model.V2NIMTeam;
 import com.netease.nimlib.sdk.v2.utils.V2NIMConversationIdUtil;
 import com.netease.yunxin.kit.alog.ALog;
-import com.netease.yunxin.kit.chatkit.model.ConversationSearchInfo;
-import com.netease.yunxin.kit.chatkit.model.FriendSearchInfo;
+import com.netease.yunxin.kit.chatkit.model.HitType;
 import com.netease.yunxin.kit.chatkit.model.RecentForward;
-import com.netease.yunxin.kit.chatkit.model.TeamSearchInfo;
 import com.netease.yunxin.kit.chatkit.repo.ContactRepo;
 import com.netease.yunxin.kit.chatkit.repo.ConversationRepo;
-import com.netease.yunxin.kit.chatkit.repo.SearchRepo;
 import com.netease.yunxin.kit.chatkit.repo.SettingRepo;
 import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
 import com.netease.yunxin.kit.common.ui.viewmodel.BaseViewModel;
@@ -33,13 +31,17 @@ import com.netease.yunxin.kit.contactkit.ui.indexbar.helper.IndexBarDataHelperIm
 import com.netease.yunxin.kit.contactkit.ui.model.ContactFriendBean;
 import com.netease.yunxin.kit.contactkit.ui.model.SelectableBean;
 import com.netease.yunxin.kit.contactkit.ui.model.SelectedViewBean;
+import com.netease.yunxin.kit.contactkit.ui.selector.SelectorSearchIndex;
 import com.netease.yunxin.kit.corekit.im2.extend.FetchCallback;
 import com.netease.yunxin.kit.corekit.im2.model.UserWithFriend;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** 联系人选择器 ViewModel */
@@ -62,6 +64,8 @@ public class ContactSelectorViewModel extends BaseViewModel {
       new FetchResult<>(LoadStatus.Finish);
   //所有群组数据
   private final List<SelectableBean<V2NIMTeam>> allTeamList = new ArrayList<>();
+  //群ID对应的群组数据
+  private final Map<String, SelectableBean<V2NIMTeam>> teamMap = new HashMap<>();
 
   //好友列表数据
   private final MutableLiveData<FetchResult<List<ContactFriendBean>>> friendListLiveData =
@@ -71,6 +75,8 @@ public class ContactSelectorViewModel extends BaseViewModel {
 
   //所有好友数据
   private final List<ContactFriendBean> allFriendList = new ArrayList<>();
+  //账号对应的好友数据
+  private final Map<String, ContactFriendBean> friendMap = new HashMap<>();
 
   // 群列表数据
   private final MutableLiveData<FetchResult<List<SelectableBean<V2NIMConversation>>>>
@@ -79,6 +85,8 @@ public class ContactSelectorViewModel extends BaseViewModel {
       new FetchResult<>(LoadStatus.Finish);
   //所有会话数据
   private final List<SelectableBean<V2NIMConversation>> allConversationList = new ArrayList<>();
+  //会话ID对应的会话数据
+  private final Map<String, SelectableBean<V2NIMConversation>> conversationMap = new HashMap<>();
 
   //最近转发数据
   private final MutableLiveData<FetchResult<List<SelectableBean<RecentForward>>>>
@@ -88,11 +96,15 @@ public class ContactSelectorViewModel extends BaseViewModel {
 
   //所有最近转发数据
   final List<RecentForward> allRecentForwardList = new ArrayList<>();
+  //会话ID对应的最近转发数据
+  private final Map<String, RecentForward> recentForwardMap = new HashMap<>();
 
   //选中的数据
   private final MutableLiveData<List<SelectedViewBean>> selectedLiveData = new MutableLiveData<>();
 
   private final List<SelectedViewBean> selectedList = new ArrayList<>();
+  //选中的会话ID，与selectedList一致，用于判断是否选中
+  private final Set<String> selectedIdSet = new HashSet<>();
 
   //搜索关键字
   private String searchKey;
@@ -124,6 +136,72 @@ public class ContactSelectorViewModel extends BaseViewModel {
   private final FetchResult<List<SelectableBean<V2NIMConversation>>> searchConversationResult =
       new FetchResult<>(LoadStatus.Finish);
 
+  //本地搜索索引，数据加载完成后构建
+  private final SelectorSearchIndex<ContactFriendBean> friendSearchIndex =
+      new SelectorSearchIndex<>(
+          new SelectorSearchIndex.Indexer<ContactFriendBean>() {
+            @Override
+            public String getName(@NonNull ContactFriendBean item) {
+              return item.data.getName();
+            }
+
+            @NonNull
+            @Override
+            public HitType getNameHitType(@NonNull ContactFriendBean item) {
+              return TextUtils.isEmpty(item.data.getAlias()) ? HitType.UserName : HitType.Alias;
+            }
+
+            @Override
+            public List<String> getExtraText(@NonNull ContactFriendBean item) {
+              String nick =
+                  item.data.getUserInfo() == null ? null : item.data.getUserInfo().getName();
+              return Arrays.asList(nick, item.data.getAccount());
+            }
+          });
+
+  private final SelectorSearchIndex<SelectableBean<V2NIMTeam>> teamSearchIndex =
+      new SelectorSearchIndex<>(
+          new SelectorSearchIndex.Indexer<SelectableBean<V2NIMTeam>>() {
+            @Override
+            public String getName(@NonNull SelectableBean<V2NIMTeam> item) {
+              return item.data.getName();
+            }
+
+            @NonNull
+            @Override
+            public HitType getNameHitType(@NonNull SelectableBean<V2NIMTeam> item) {
+              return HitType.None;
+            }
+
+            @Override
+            public List<String> getExtraText(@NonNull SelectableBean<V2NIMTeam> item) {
+              return Collections.singletonList(item.data.getTeamId());
+            }
+          });
+
+  private final SelectorSearchIndex<SelectableBean<V2NIMConversation>> conversationSearchIndex =
+      new SelectorSearchIndex<>(
+          new SelectorSearchIndex.Indexer<SelectableBean<V2NIMConversation>>() {
+            @Override
+            public String getName(@NonNull SelectableBean<V2NIMConversation> item) {
+              return item.data.getName() == null
+                  ? V2NIMConversationIdUtil.conversationTargetId(item.data.getConversationId())
+                  : item.data.getName();
+            }
+
+            @NonNull
+            @Override
+            public HitType getNameHitType(@NonNull SelectableBean<V2NIMConversation> item) {
+              return HitType.None;
+            }
+
+            @Override
+            public List<String> getExtraText(@NonNull SelectableBean<V2NIMConversation> item) {
+              return Collections.singletonList(
+                  V2NIMConversationIdUtil.conversationTargetId(item.data.getConversationId()));
+            }
+          });
+
   /** 加载联系人 */
   public void loadFriends() {
     ContactRepo.getContactList(
@@ -150,7 +228,11 @@ public class ContactSelectorViewModel extends BaseViewModel {
               }
             }
             allFriendList.addAll(selectableFriend);
+            for (ContactFriendBean contactFriend : selectableFriend) {
+              friendMap.put(contactFriend.data.getAccount(), contactFriend);
+            }
             sortFriendList();
+            friendSearchIndex.setData(allFriendList);
             friendListResult.setData(allFriendList);
             friendListLiveData.postValue(friendListResult);
             searchFriend();
@@ -190,7 +272,8 @@ public class ContactSelectorViewModel extends BaseViewModel {
                 SelectableBean<V2NIMTeam> teamBean = new SelectableBean<>(teamInfo);
                 teamBeanList.add(teamBean);
               }
-              allTeamList.addAll(teamBeanList);
+              addTeamList(teamBeanList);
+              teamSearchIndex.setData(allTeamList);
             }
             //拉取会话列表
             queryConversationList();
@@ -240,9 +323,11 @@ public class ContactSelectorViewModel extends BaseViewModel {
                 if (!selectableConversation.contains(selectableBean)) {
                   selectableConversation.add(selectableBean);
                   allConversationList.add(selectableBean);
+                  conversationMap.put(conversation.getConversationId(), selectableBean);
                 }
               }
               conversationListResult.setData(allConversationList);
+              conversationSearchIndex.setData(allConversationList);
             } else {
               conversationListResult.setData(null);
               conversationListResult.setStatus(LoadStatus.Error);
@@ -252,34 +337,27 @@ public class ContactSelectorViewModel extends BaseViewModel {
         });
   }
 
+  //缓存群组数据
+  private void addTeamList(List<SelectableBean<V2NIMTeam>> teamBeanList) {
+    allTeamList.addAll(teamBeanList);
+    for (SelectableBean<V2NIMTeam> teamBean : teamBeanList) {
+      teamMap.put(teamBean.data.getTeamId(), teamBean);
+    }
+  }
+
   //根据ID查找群
   private SelectableBean<V2NIMTeam> findTeamById(String tid) {
-    for (SelectableBean<V2NIMTeam> team : allTeamList) {
-      if (team.data.getTeamId().equals(tid)) {
-        return team;
-      }
-    }
-    return null;
+    return teamMap.get(tid);
   }
 
   //根据ID查找会话
   private SelectableBean<V2NIMConversation> findConversationById(String conversationId) {
-    for (SelectableBean<V2NIMConversation> conversation : allConversationList) {
-      if (conversation.data.getConversationId().equals(conversationId)) {
-        return conversation;
-      }
-    }
-    return null;
+    return conversationMap.get(conversationId);
   }
 
   //根据ID查找好友
   private ContactFriendBean findFriendById(String accId) {
-    for (ContactFriendBean friend : allFriendList) {
-      if (friend.data.getAccount().equals(accId)) {
-        return friend;
-      }
-    }
-    return null;
+    return friendMap.get(accId);
   }
 
   /** 加载群组列表 */
@@ -287,6 +365,7 @@ public class ContactSelectorViewModel extends BaseViewModel {
     ALog.d(LIB_TAG, TAG, "getTeamList");
     if (!allTeamList.isEmpty()) {
       Collections.sort(allTeamList, teamComparator);
+      teamSearchIndex.setData(allTeamList);
       teamListResult.setData(allTeamList);
       teamListResult.setStatus(LoadStatus.Success);
       teamListLiveData.postValue(teamListResult);
@@ -316,7 +395,8 @@ public class ContactSelectorViewModel extends BaseViewModel {
                 teamBeanList.add(teamBean);
               }
               Collections.sort(teamBeanList, teamComparator);
-              allTeamList.addAll(teamBeanList);
+              addTeamList(teamBeanList);
+              teamSearchIndex.setData(allTeamList);
               teamListResult.setData(teamBeanList);
             } else {
               teamListResult.setData(null);
@@ -330,28 +410,16 @@ public class ContactSelectorViewModel extends BaseViewModel {
 
   //检查是否选中
   private boolean isTeamSelected(V2NIMTeam team) {
-    for (SelectedViewBean selected : selectedList) {
-      if (V2NIMConversationIdUtil.conversationType(selected.getTargetId())
-              == V2NIMConversationType.V2NIM_CONVERSATION_TYPE_TEAM
-          && V2NIMConversationIdUtil.conversationTargetId(selected.getTargetId())
-              .equals(team.getTeamId())) {
-        return true;
-      }
-    }
-    return false;
+    return selectedIdSet.contains(
+        V2NIMConversationIdUtil.conversationId(
+            team.getTeamId(), V2NIMConversationType.V2NIM_CONVERSATION_TYPE_TEAM));
   }
 
   //检查是否选中
   private boolean isFriendSelected(UserWithFriend friend) {
-    for (SelectedViewBean selected : selectedList) {
-      if (V2NIMConversationIdUtil.conversationType(selected.getTargetId())
-              == V2NIMConversationType.V2NIM_CONVERSATION_TYPE_P2P
-          && V2NIMConversationIdUtil.conversationTargetId(selected.getTargetId())
-              .equals(friend.getAccount())) {
-        return true;
-      }
-    }
-    return false;
+    return selectedIdSet.contains(
+        V2NIMConversationIdUtil.conversationId(
+            friend.getAccount(), V2NIMConversationType.V2NIM_CONVERSATION_TYPE_P2P));
   }
 
   /**
@@ -361,12 +429,7 @@ public class ContactSelectorViewModel extends BaseViewModel {
    * @return 是否选中
    */
   private boolean isConversationSelected(V2NIMConversation conversation) {
-    for (SelectedViewBean selected : selectedList) {
-      if (selected.getTargetId().equals(conversation.getConversationId())) {
-        return true;
-      }
-    }
-    return false;
+    return selectedIdSet.contains(conversation.getConversationId());
   }
 
   // 群组排序
@@ -406,6 +469,12 @@ public class ContactSelectorViewModel extends BaseViewModel {
             List<SelectableBean<RecentForward>> selectableRecentForward = new ArrayList<>();
             if (data != null) {
               allRecentForwardList.addAll(data);
+              for (RecentForward recentForward : data) {
+                recentForwardMap.put(
+                    V2NIMConversationIdUtil.conversationId(
+                        recentForward.getSessionId(), recentForward.getSessionType()),
+                    recentForward);
+              }
               for (RecentForward recentForward : data) {
                 selectableRecentForward.add(new SelectableBean<>(recentForward));
               }
@@ -615,14 +684,17 @@ public class ContactSelectorViewModel extends BaseViewModel {
       checkSelectTeam(sessionId, false);
     }
     checkSelectedRecentForward(sessionId, sessionType, false);
+    selectedIdSet.remove(bean.getTargetId());
     selectedList.remove(bean);
     selectedLiveData.postValue(selectedList);
   }
 
   private void onSelectedChanged(SelectedViewBean bean, boolean isSelected) {
-    if (isSelected && !selectedList.contains(bean)) {
-      selectedList.add(bean);
-    } else {
+    if (isSelected) {
+      if (selectedIdSet.add(bean.getTargetId())) {
+        selectedList.add(bean);
+      }
+    } else if (selectedIdSet.remove(bean.getTargetId())) {
       selectedList.remove(bean);
     }
     selectedLiveData.postValue(selectedList);
@@ -636,19 +708,12 @@ public class ContactSelectorViewModel extends BaseViewModel {
    */
   private void checkSelectConversation(
       String sessionId, V2NIMConversationType sessionType, boolean isSelected) {
-    SelectableBean<V2NIMConversation> selectableBean = null;
-    //遍历会话列表，查找是否有选中状态变化的会话
-    for (SelectableBean<V2NIMConversation> conversation : allConversationList) {
-      if (sessionId.equals(
-              V2NIMConversationIdUtil.conversationTargetId(conversation.data.getConversationId()))
-          && sessionType == conversation.data.getType()) {
-        selectableBean = conversation;
-        selectableBean.isSelected = isSelected;
-        break;
-      }
-    }
+    //查找是否有选中状态变化的会话
+    SelectableBean<V2NIMConversation> selectableBean =
+        conversationMap.get(V2NIMConversationIdUtil.conversationId(sessionId, sessionType));
     //如果有会话选中状态变化，则更新UI
     if (selectableBean != null) {
+      selectableBean.isSelected = isSelected;
       conversationListResult.setStatus(LoadStatus.Finish);
       conversationListResult.setData(Collections.singletonList(selectableBean));
       conversationListLiveData.postValue(conversationListResult);
@@ -661,17 +726,11 @@ public class ContactSelectorViewModel extends BaseViewModel {
    * @param teamId 群组Id
    */
   private void checkSelectTeam(String teamId, boolean isSelected) {
-    SelectableBean<V2NIMTeam> selectableBean = null;
-    //遍历群组列表，找到选中状态变化的群组
-    for (SelectableBean<V2NIMTeam> team : allTeamList) {
-      if (team.data.getTeamId().equals(teamId)) {
-        selectableBean = team;
-        selectableBean.isSelected = isSelected;
-        break;
-      }
-    }
+    //找到选中状态变化的群组
+    SelectableBean<V2NIMTeam> selectableBean = teamMap.get(teamId);
     //如果有群组选中状态变化，则更新UI
     if (selectableBean != null) {
+      selectableBean.isSelected = isSelected;
       teamListResult.setStatus(LoadStatus.Finish);
       teamListResult.setData(Collections.singletonList(selectableBean));
       teamListLiveData.postValue(teamListResult);
@@ -684,17 +743,11 @@ public class ContactSelectorViewModel extends BaseViewModel {
    * @param accId 好友Id
    */
   private void checkSelectedFriend(String accId, boolean isSelected) {
-    ContactFriendBean contactFriend = null;
-    //遍历好友列表，找到选中状态变化的好友
-    for (ContactFriendBean friend : allFriendList) {
-      if (friend.data.getAccount().equals(accId)) {
-        contactFriend = friend;
-        contactFriend.isSelected = isSelected;
-        break;
-      }
-    }
+    //找到选中状态变化的好友
+    ContactFriendBean contactFriend = friendMap.get(accId);
     //如果有好友选中状态变化，则更新UI
     if (contactFriend != null) {
+      contactFriend.isSelected = isSelected;
       friendListResult.setStatus(LoadStatus.Finish);
       friendListResult.setData(Collections.singletonList(contactFriend));
       friendListLiveData.postValue(friendListResult);
@@ -709,18 +762,13 @@ public class ContactSelectorViewModel extends BaseViewModel {
    */
   private void checkSelectedRecentForward(
       String sessionId, V2NIMConversationType sessionType, boolean isSelected) {
-    SelectableBean<RecentForward> selectableBean = null;
-    //遍历最近转发列表，找到选中状态变化的最近转发
-    for (RecentForward recentForward : allRecentForwardList) {
-      if (recentForward.getSessionId().equals(sessionId)
-          && recentForward.getSessionType() == sessionType) {
-        selectableBean = new SelectableBean<>(recentForward);
-        selectableBean.isSelected = isSelected;
-        break;
-      }
-    }
+    //找到选中状态变化的最近转发
+    RecentForward recentForward =
+        recentForwardMap.get(V2NIMConversationIdUtil.conversationId(sessionId, sessionType));
     //如果有最近转发选中状态变化，则更新UI
-    if (selectableBean != null) {
+    if (recentForward != null) {
+      SelectableBean<RecentForward> selectableBean = new SelectableBean<>(recentForward);
+      selectableBean.isSelected = isSelected;
       recentForwardListResult.setStatus(LoadStatus.Finish);
       recentForwardListResult.setData(Collections.singletonList(selectableBean));
       recentForwardListLiveData.postValue(recentForwardListResult);
@@ -767,6 +815,10 @@ public class ContactSelectorViewModel extends BaseViewModel {
 
   /** 清除搜索 */
   private void clearSearch() {
+    friendSearchIndex.cancel();
+    teamSearchIndex.cancel();
+    conversationSearchIndex.cancel();
+
     friendListResult.setStatus(LoadStatus.Success);
     friendListResult.setData(allFriendList);
     friendListLiveData.postValue(friendListResult);
@@ -789,74 +841,48 @@ public class ContactSelectorViewModel extends BaseViewModel {
     if (TextUtils.isEmpty(searchKey) || allFriendList.isEmpty()) {
       return;
     }
-    List<UserWithFriend> friends = new ArrayList<>();
-    for (ContactFriendBean friend : allFriendList) {
-      friends.add(friend.data);
-    }
-    SearchRepo.searchFriendByName(
+    friendSearchIndex.search(
         searchKey,
-        friends,
-        new FetchCallback<List<FriendSearchInfo>>() {
-          @Override
-          public void onError(int errorCode, @Nullable String errorMsg) {
-            searchConversationResult.setStatus(LoadStatus.Error);
-            searchConversationResultLiveData.postValue(searchConversationResult);
+        (query, result) -> {
+          if (!TextUtils.equals(query, searchKey)) {
+            return;
           }
-
-          @Override
-          public void onSuccess(@Nullable List<FriendSearchInfo> data) {
-            searchFriendResult.setStatus(LoadStatus.Success);
-            List<ContactFriendBean> searchFriendList = new ArrayList<>();
-            if (data != null) {
-              for (FriendSearchInfo friend : data) {
-                ContactFriendBean contactFriend = new ContactFriendBean(friend.getFriendInfo());
-                contactFriend.isSelected = isFriendSelected(friend.getFriendInfo());
-                contactFriend.hitType = friend.getHitType();
-                contactFriend.recordHitInfo = friend.getHitInfo();
-                searchFriendList.add(contactFriend);
-              }
-            }
-            searchFriendResult.setData(searchFriendList);
-            searchFriendResultLiveData.postValue(searchFriendResult);
+          searchFriendResult.setStatus(LoadStatus.Success);
+          List<ContactFriendBean> searchFriendList = new ArrayList<>(result.size());
+          for (SelectorSearchIndex.Hit<ContactFriendBean> hit : result) {
+            ContactFriendBean contactFriend = new ContactFriendBean(hit.item.data);
+            contactFriend.isSelected = isFriendSelected(hit.item.data);
+            contactFriend.hitType = hit.hitType;
+            contactFriend.recordHitInfo = hit.hitInfo;
+            searchFriendList.add(contactFriend);
           }
+          searchFriendResult.setData(searchFriendList);
+          searchFriendResultLiveData.postValue(searchFriendResult);
         });
   }
 
-  /** 搜索会话 */
+  /** 搜索群组 */
   public void searchTeam() {
     if (TextUtils.isEmpty(searchKey) || allTeamList.isEmpty()) {
       return;
     }
-    List<V2NIMTeam> teams = new ArrayList<>();
-    for (SelectableBean<V2NIMTeam> team : allTeamList) {
-      teams.add(team.data);
-    }
-    SearchRepo.searchTeamByName(
+    teamSearchIndex.search(
         searchKey,
-        teams,
-        new FetchCallback<List<TeamSearchInfo>>() {
-          @Override
-          public void onError(int errorCode, @Nullable String errorMsg) {
-            searchTeamResult.setStatus(LoadStatus.Error);
-            searchTeamResultLiveData.postValue(searchTeamResult);
+        (query, result) -> {
+          if (!TextUtils.equals(query, searchKey)) {
+            return;
           }
-
-          @Override
-          public void onSuccess(@Nullable List<TeamSearchInfo> data) {
-            searchTeamResult.setStatus(LoadStatus.Success);
-            List<SelectableBean<V2NIMTeam>> searchTeamList = new ArrayList<>();
-            if (data != null) {
-              for (TeamSearchInfo teamSearchInfo : data) {
-                SelectableBean<V2NIMTeam> teamBean = new SelectableBean<>(teamSearchInfo.getTeam());
-                teamBean.isSelected = isTeamSelected(teamSearchInfo.getTeam());
-                teamBean.hitType = teamSearchInfo.getHitType();
-                teamBean.recordHitInfo = teamSearchInfo.getHitInfo();
-                searchTeamList.add(teamBean);
-              }
-            }
-            searchTeamResult.setData(searchTeamList);
-            searchTeamResultLiveData.postValue(searchTeamResult);
+          searchTeamResult.setStatus(LoadStatus.Success);
+          List<SelectableBean<V2NIMTeam>> searchTeamList = new ArrayList<>(result.size());
+          for (SelectorSearchIndex.Hit<SelectableBean<V2NIMTeam>> hit : result) {
+            SelectableBean<V2NIMTeam> teamBean = new SelectableBean<>(hit.item.data);
+            teamBean.isSelected = isTeamSelected(hit.item.data);
+            teamBean.hitType = hit.hitType;
+            teamBean.recordHitInfo = hit.hitInfo;
+            searchTeamList.add(teamBean);
           }
+          searchTeamResult.setData(searchTeamList);
+          searchTeamResultLiveData.postValue(searchTeamResult);
         });
   }
 
@@ -865,43 +891,29 @@ public class ContactSelectorViewModel extends BaseViewModel {
     if (TextUtils.isEmpty(searchKey) || allConversationList.isEmpty()) {
       return;
     }
-    List<V2NIMConversation> conversations = new ArrayList<>();
-    for (SelectableBean<V2NIMConversation> conversation : allConversationList) {
-      conversations.add(conversation.data);
-    }
-    SearchRepo.searchConversationByName(
+    conversationSearchIndex.search(
         searchKey,
-        conversations,
-        new FetchCallback<List<ConversationSearchInfo>>() {
-          @Override
-          public void onError(int errorCode, @Nullable String errorMsg) {
-            searchConversationResult.setStatus(LoadStatus.Error);
-            searchConversationResultLiveData.postValue(searchConversationResult);
+        (query, result) -> {
+          if (!TextUtils.equals(query, searchKey)) {
+            return;
           }
-
-          @Override
-          public void onSuccess(@Nullable List<ConversationSearchInfo> data) {
-            searchConversationResult.setStatus(LoadStatus.Success);
-            List<SelectableBean<V2NIMConversation>> searchConversationList = new ArrayList<>();
-            if (data != null && !data.isEmpty()) {
-              for (ConversationSearchInfo conversation : data) {
-                SelectableBean<V2NIMConversation> conversationBean =
-                    new SelectableBean<>(conversation.getConversation());
-                conversationBean.isSelected =
-                    isConversationSelected(conversation.getConversation());
-                conversationBean.hitType = conversation.getHitType();
-                conversationBean.recordHitInfo = conversation.getHitInfo();
-                conversationBean.memberCount =
-                    getMemberCountByConversationId(
-                        V2NIMConversationIdUtil.conversationTargetId(
-                            conversation.getConversation().getConversationId()),
-                        conversation.getConversation().getType());
-                searchConversationList.add(conversationBean);
-              }
-            }
-            searchConversationResult.setData(searchConversationList);
-            searchConversationResultLiveData.postValue(searchConversationResult);
+          searchConversationResult.setStatus(LoadStatus.Success);
+          List<SelectableBean<V2NIMConversation>> searchConversationList =
+              new ArrayList<>(result.size());
+          for (SelectorSearchIndex.Hit<SelectableBean<V2NIMConversation>> hit : result) {
+            V2NIMConversation conversation = hit.item.data;
+            SelectableBean<V2NIMConversation> conversationBean = new SelectableBean<>(conversation);
+            conversationBean.isSelected = isConversationSelected(conversation);
+            conversationBean.hitType = hit.hitType;
+            conversationBean.recordHitInfo = hit.hitInfo;
+            conversationBean.memberCount =
+                getMemberCountByConversationId(
+                    V2NIMConversationIdUtil.conversationTargetId(conversation.getConversationId()),
+                    conversation.getType());
+            searchConversationList.add(conversationBean);
           }
+          searchConversationResult.setData(searchConversationList);
+          searchConversationResultLiveData.postValue(searchConversationResult);
         });
   }
 
@@ -963,11 +975,19 @@ public class ContactSelectorViewModel extends BaseViewModel {
   @Override
   protected void onCleared() {
     super.onCleared();
+    friendSearchIndex.release();
+    teamSearchIndex.release();
+    conversationSearchIndex.release();
     allRecentForwardList.clear();
     allTeamList.clear();
     allFriendList.clear();
     allConversationList.clear();
+    recentForwardMap.clear();
+    teamMap.clear();
+    friendMap.clear();
+    conversationMap.clear();
     selectedList.clear();
+    selectedIdSet.clear();
     searchKey = "";
   }
 }
@@ -12,8 +12,10 @@ import com.netease.nimlib.sdk.v2.conversation.model.V2NIMConversation;
 import com.netease.yunxin.kit.contactkit.ui.model.SelectableBean;
 import com.netease.yunxin.kit.contactkit.ui.selector.BaseSelectableViewHolder;
 import com.netease.yunxin.kit.contactkit.ui.selector.SelectableListener;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class BaseConversationSelectorAdapter<R extends ViewBinding>
     extends RecyclerView.Adapter<BaseSelectableViewHolder<R>> {
@@ -22,7 +24,10 @@ public abstract class BaseConversationSelectorAdapter<R extends ViewBinding>
 
   protected abstract R provideViewBinding(@NonNull ViewGroup parent, int viewType);
 
-  protected LinkedList<SelectableBean<V2NIMConversation>> selectableBeans = new LinkedList<>();
+  protected ArrayList<SelectableBean<V2NIMConversation>> selectableBeans = new ArrayList<>();
+
+  //数据ID对应的位置，用于局部刷新
+  private final Map<String, Integer> positionMap = new HashMap<>();
 
   //是否多选模式
   protected boolean isMultiSelectMode = false;
@@ -34,8 +39,15 @@ public abstract class BaseConversationSelectorAdapter<R extends ViewBinding>
    */
   public void setData(List<SelectableBean<V2NIMConversation>> data) {
     selectableBeans.clear();
+    positionMap.clear();
     if (data != null) {
       selectableBeans.addAll(data);
+      for (int index = 0; index < selectableBeans.size(); index++) {
+        SelectableBean<V2NIMConversation> bean = selectableBeans.get(index);
+        if (bean != null) {
+          positionMap.put(bean.data.getConversationId(), index);
+        }
+      }
       notifyDataSetChanged();
     }
   }
@@ -56,8 +68,8 @@ public abstract class BaseConversationSelectorAdapter<R extends ViewBinding>
    */
   public void updateData(SelectableBean<V2NIMConversation> data) {
     if (data != null) {
-      int index = selectableBeans.indexOf(data);
-      if (index != -1) {
+      Integer index = positionMap.get(data.data.getConversationId());
+      if (index != null) {
         selectableBeans.set(index, data);
         notifyItemChanged(index);
       }
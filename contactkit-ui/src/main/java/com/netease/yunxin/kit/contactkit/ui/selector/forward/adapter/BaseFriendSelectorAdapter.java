@@ -10,15 +10,20 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewbinding.ViewBinding;
 import com.netease.yunxin.kit.contactkit.ui.model.ContactFriendBean;
 import com.netease.yunxin.kit.contactkit.ui.selector.BaseSelectableViewHolder;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class BaseFriendSelectorAdapter<R extends ViewBinding>
     extends RecyclerView.Adapter<BaseSelectableViewHolder<R>> {
 
   protected abstract R provideViewBinding(@NonNull ViewGroup parent, int viewType);
 
-  protected LinkedList<ContactFriendBean> selectableBeans = new LinkedList<>();
+  protected ArrayList<ContactFriendBean> selectableBeans = new ArrayList<>();
+
+  //数据ID对应的位置，用于局部刷新
+  private final Map<String, Integer> positionMap = new HashMap<>();
 
   protected FriendSelectorListener selectableListener;
 
@@ -35,8 +40,15 @@ public abstract class BaseFriendSelectorAdapter<R extends ViewBinding>
    */
   public void setData(List<ContactFriendBean> data) {
     selectableBeans.clear();
+    positionMap.clear();
     if (data != null) {
       selectableBeans.addAll(data);
+      for (int index = 0; index < selectableBeans.size(); index++) {
+        ContactFriendBean bean = selectableBeans.get(index);
+        if (bean != null) {
+          positionMap.put(bean.data.getAccount(), index);
+        }
+      }
       notifyDataSetChanged();
     }
   }
@@ -53,8 +65,8 @@ public abstract class BaseFriendSelectorAdapter<R extends ViewBinding>
    */
   public void updateData(ContactFriendBean data) {
     if (data != null) {
-      int index = selectableBeans.indexOf(data);
-      if (index != -1) {
+      Integer index = positionMap.get(data.data.getAccount());
+      if (index != null) {
         selectableBeans.set(index, data);
         notifyItemChanged(index);
       }
@@ -8,12 +8,15 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewbinding.ViewBinding;
+import com.netease.nimlib.sdk.v2.utils.V2NIMConversationIdUtil;
 import com.netease.yunxin.kit.chatkit.model.RecentForward;
 import com.netease.yunxin.kit.contactkit.ui.model.SelectableBean;
 import com.netease.yunxin.kit.contactkit.ui.selector.BaseSelectableViewHolder;
 import com.netease.yunxin.kit.contactkit.ui.selector.SelectableListener;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class BaseRecentForwardSelectorAdapter<R extends ViewBinding>
     extends RecyclerView.Adapter<BaseSelectableViewHolder<R>> {
@@ -22,7 +25,10 @@ public abstract class BaseRecentForwardSelectorAdapter<R extends ViewBinding>
 
   protected SelectableListener<RecentForward> selectableListener;
 
-  protected LinkedList<SelectableBean<RecentForward>> selectableBeans = new LinkedList<>();
+  protected ArrayList<SelectableBean<RecentForward>> selectableBeans = new ArrayList<>();
+
+  //数据ID对应的位置，用于局部刷新
+  private final Map<String, Integer> positionMap = new HashMap<>();
 
   //是否多选模式
   protected boolean isMultiSelectMode = false;
@@ -34,22 +40,34 @@ public abstract class BaseRecentForwardSelectorAdapter<R extends ViewBinding>
    */
   public void setData(List<SelectableBean<RecentForward>> data) {
     selectableBeans.clear();
+    positionMap.clear();
     if (data != null) {
       selectableBeans.addAll(data);
+      for (int index = 0; index < selectableBeans.size(); index++) {
+        SelectableBean<RecentForward> bean = selectableBeans.get(index);
+        if (bean != null) {
+          positionMap.put(getKey(bean), index);
+        }
+      }
       notifyDataSetChanged();
     }
   }
 
   public void updateData(SelectableBean<RecentForward> data) {
     if (data != null) {
-      int index = selectableBeans.indexOf(data);
-      if (index != -1) {
+      Integer index = positionMap.get(getKey(data));
+      if (index != null) {
         selectableBeans.set(index, data);
         notifyItemChanged(index);
       }
     }
   }
 
+  private static String getKey(SelectableBean<RecentForward> bean) {
+    return V2NIMConversationIdUtil.conversationId(
+        bean.data.getSessionId(), bean.data.getSessionType());
+  }
+
   public void setSelectableListener(SelectableListener<RecentForward> selectableListener) {
     this.selectableListener = selectableListener;
   }
@@ -12,15 +12,20 @@ import com.netease.nimlib.sdk.v2.team.model.V2NIMTeam;
 import com.netease.yunxin.kit.contactkit.ui.model.SelectableBean;
 import com.netease.yunxin.kit.contactkit.ui.selector.BaseSelectableViewHolder;
 import com.netease.yunxin.kit.contactkit.ui.selector.SelectableListener;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class BaseTeamSelectorAdapter<R extends ViewBinding>
     extends RecyclerView.Adapter<BaseSelectableViewHolder<R>> {
 
   protected abstract R provideViewBinding(@NonNull ViewGroup parent, int viewType);
 
-  protected LinkedList<SelectableBean<V2NIMTeam>> selectableBeans = new LinkedList<>();
+  protected ArrayList<SelectableBean<V2NIMTeam>> selectableBeans = new ArrayList<>();
+
+  //数据ID对应的位置，用于局部刷新
+  private final Map<String, Integer> positionMap = new HashMap<>();
 
   protected SelectableListener<V2NIMTeam> selectableListener;
 
@@ -37,8 +42,15 @@ public abstract class BaseTeamSelectorAdapter<R extends ViewBinding>
    */
   public void setData(List<SelectableBean<V2NIMTeam>> data) {
     selectableBeans.clear();
+    positionMap.clear();
     if (data != null) {
       selectableBeans.addAll(data);
+      for (int index = 0; index < selectableBeans.size(); index++) {
+        SelectableBean<V2NIMTeam> bean = selectableBeans.get(index);
+        if (bean != null) {
+          positionMap.put(bean.data.getTeamId(), index);
+        }
+      }
       notifyDataSetChanged();
     }
   }
@@ -55,8 +67,8 @@ public abstract class BaseTeamSelectorAdapter<R extends ViewBinding>
    */
   public void updateData(SelectableBean<V2NIMTeam> data) {
     if (data != null) {
-      int index = selectableBeans.indexOf(data);
-      if (index != -1) {
+      Integer index = positionMap.get(data.data.getTeamId());
+      if (index != null) {
         selectableBeans.set(index, data);
         notifyItemChanged(index);
       }
@@ -20,6 +20,8 @@ import com.netease.yunxin.kit.contactkit.ui.IContactFactory;
 import com.netease.yunxin.kit.contactkit.ui.ILoadListener;
 import com.netease.yunxin.kit.contactkit.ui.R;
 import com.netease.yunxin.kit.contactkit.ui.databinding.ContactListViewBinding;
+import com.netease.yunxin.kit.contactkit.ui.indexbar.helper.IIndexBarDataHelper;
+import com.netease.yunxin.kit.contactkit.ui.indexbar.helper.IndexBarDataHelperImpl;
 import com.netease.yunxin.kit.contactkit.ui.indexbar.suspension.SuspensionDecoration;
 import com.netease.yunxin.kit.contactkit.ui.interfaces.ContactActions;
 import com.netease.yunxin.kit.contactkit.ui.interfaces.IContactDataChanged;
@@ -161,6 +163,7 @@ public class ContactListView extends FrameLayout
     if (contactAdapter != null) {
       contactAdapter.getContactListViewAttrs().setShowSelector(show);
       contactAdapter.updateFriendData();
+      contactAdapter.notifyFriendDataChanged();
     }
   }
 
@@ -197,6 +200,7 @@ public class ContactListView extends FrameLayout
           .invalidate();
       contactAdapter.updateFriendData(contactItemBeanList);
       decoration.setData(contactAdapter.getDataList());
+      binding.contactList.invalidateItemDecorations();
     }
   }
 
@@ -217,54 +221,81 @@ public class ContactListView extends FrameLayout
         }
       }
 
+      IndexBarDataHelperImpl sortHelper = getSortHelper();
       for (ContactFriendBean friendBean : friend) {
         if (friendBean != null && friendBean.data != null) {
-          if (friendMap.containsKey(friendBean.data.getAccount())) {
-            contactAdapter.getFriendList().remove(friendMap.get(friendBean.data.getAccount()));
+          ContactFriendBean origin = friendMap.get(friendBean.data.getAccount());
+          if (sortHelper != null) {
+            if (origin != null) {
+              sortHelper.removeSorted(contactAdapter.getFriendList(), origin);
+            }
+            sortHelper.insertSorted(contactAdapter.getFriendList(), friendBean);
+          } else {
+            if (origin != null) {
+              contactAdapter.getFriendList().remove(origin);
+            }
+            contactAdapter.getFriendList().add(friendBean);
           }
-          contactAdapter.getFriendList().add(friendBean);
         }
       }
-      binding
-          .indexBar
-          .setSourceDataAlreadySorted(false)
-          .setSourceData(contactAdapter.getFriendList())
-          .invalidate();
-      contactAdapter.updateFriendData();
-      decoration.setData(contactAdapter.getDataList());
+      refreshFriendIndex(sortHelper != null);
     }
   }
 
   @Override
   public void removeFriendData(List<ContactFriendBean> friend) {
     if (contactAdapter != null) {
-      contactAdapter.getFriendList().removeAll(friend);
-      binding
-          .indexBar
-          .setSourceDataAlreadySorted(false)
-          .setSourceData(contactAdapter.getFriendList())
-          .invalidate();
-      contactAdapter.updateFriendData();
-      decoration.setData(contactAdapter.getDataList());
+      IndexBarDataHelperImpl sortHelper = getSortHelper();
+      if (sortHelper != null && friend != null) {
+        for (ContactFriendBean friendBean : friend) {
+          sortHelper.removeSorted(contactAdapter.getFriendList(), friendBean);
+        }
+      } else {
+        contactAdapter.getFriendList().removeAll(friend);
+      }
+      refreshFriendIndex(sortHelper != null);
     }
   }
 
   @Override
   public void updateFriendData(List<ContactFriendBean> friends) {
     if (contactAdapter != null) {
-      boolean result = contactAdapter.getFriendList().removeAll(friends);
-      ALog.d(LIB_TAG, TAG, "updateFriendData, contactAdapter:" + result);
-      contactAdapter.getFriendList().addAll(friends);
-      binding
-          .indexBar
-          .setSourceDataAlreadySorted(false)
-          .setSourceData(contactAdapter.getFriendList())
-          .invalidate();
-      contactAdapter.updateFriendData();
-      decoration.setData(contactAdapter.getDataList());
+      IndexBarDataHelperImpl sortHelper = getSortHelper();
+      if (sortHelper != null && friends != null) {
+        for (ContactFriendBean friendBean : friends) {
+          sortHelper.removeSorted(contactAdapter.getFriendList(), friendBean);
+          sortHelper.insertSorted(contactAdapter.getFriendList(), friendBean);
+        }
+      } else {
+        boolean result = contactAdapter.getFriendList().removeAll(friends);
+        ALog.d(LIB_TAG, TAG, "updateFriendData, contactAdapter:" + result);
+        contactAdapter.getFriendList().addAll(friends);
+      }
+      refreshFriendIndex(sortHelper != null);
     }
   }
 
+  // 默认排序时好友列表保持有序，单个好友变化按二分查找插入删除，不再整体排序
+  @Nullable
+  private IndexBarDataHelperImpl getSortHelper() {
+    IIndexBarDataHelper dataHelper = binding.indexBar.getDataHelper();
+    return dataHelper instanceof IndexBarDataHelperImpl
+        ? (IndexBarDataHelperImpl) dataHelper
+        : null;
+  }
+
+  private void refreshFriendIndex(boolean alreadySorted) {
+    binding
+        .indexBar
+        .setSourceDataAlreadySorted(alreadySorted)
+        .setSourceData(contactAdapter.getFriendList())
+        .invalidate();
+    contactAdapter.updateFriendData();
+    decoration.setData(contactAdapter.getDataList());
+    // 分组标题由 decoration 绘制，好友增删后重新计算标题位置
+    binding.contactList.invalidateItemDecorations();
+  }
+
   @Override
   public void updateContactData(BaseContactBean data) {
     if (contactAdapter != null) {
@@ -5,22 +5,23 @@
 package com.netease.yunxin.kit.contactkit.ui.view.adapter;
 
 import android.annotation.SuppressLint;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import com.netease.yunxin.kit.contactkit.ui.IContactFactory;
 import com.netease.yunxin.kit.contactkit.ui.R;
 import com.netease.yunxin.kit.contactkit.ui.interfaces.ContactActions;
 import com.netease.yunxin.kit.contactkit.ui.model.BaseContactBean;
 import com.netease.yunxin.kit.contactkit.ui.model.ContactFriendBean;
-import com.netease.yunxin.kit.contactkit.ui.model.IViewTypeConstant;
 import com.netease.yunxin.kit.contactkit.ui.view.ContactListViewAttrs;
 import com.netease.yunxin.kit.contactkit.ui.view.viewholder.BaseContactViewHolder;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 public class ContactAdapter extends RecyclerView.Adapter<BaseContactViewHolder> {
@@ -33,7 +34,7 @@ public class ContactAdapter extends RecyclerView.Adapter<BaseContactViewHolder>
 
   public ContactAdapter() {
     dataList = new ArrayList<>();
-    friendList = new LinkedList<>();
+    friendList = new ArrayList<>();
     contactListViewAttrs = new ContactListViewAttrs();
   }
 
@@ -60,44 +61,43 @@ public class ContactAdapter extends RecyclerView.Adapter<BaseContactViewHolder>
   }
 
   // 通讯录调用，添加，更新，删除 好友列表
-  @SuppressLint("NotifyDataSetChanged")
   public void updateFriendData(List<ContactFriendBean> list) {
     if (list == null || list.isEmpty()) {
       return;
     }
-
-    // 以前调用 removeAll 操作，数量级为 mn，
-    // 由于此处目的为了移除当前所有的好友数据，直接过滤源单列表，数量级缩减为 m
-    Iterator<BaseContactBean> iterator = dataList.iterator();
-    while (iterator.hasNext()) {
-      BaseContactBean item = iterator.next();
-      if (item.viewType == IViewTypeConstant.CONTACT_FRIEND) {
-        iterator.remove();
-      }
-    }
-
     friendList.clear();
     friendList.addAll(list);
-    dataList.addAll(list);
-    notifyDataSetChanged();
+    updateFriendData();
   }
 
-  // 通讯录调用，添加，删除，更新 好友
-  @SuppressLint("NotifyDataSetChanged")
+  // 通讯录调用，添加，删除，更新 好友，按账号比较差异，只刷新变化的好友
   public void updateFriendData() {
+    int indexStart = getFriendStart();
+    List<BaseContactBean> friendSection = dataList.subList(indexStart, dataList.size());
+    List<BaseContactBean> oldList = new ArrayList<>(friendSection);
+    friendSection.clear();
+    dataList.addAll(friendList);
+    DiffUtil.calculateDiff(new FriendDiffCallback(oldList, friendList), false)
+        .dispatchUpdatesTo(new OffsetUpdateCallback(indexStart));
+  }
+
+  // 好友展示配置变化，刷新所有好友
+  public void notifyFriendDataChanged() {
+    int indexStart = getFriendStart();
+    if (indexStart < dataList.size()) {
+      notifyItemRangeChanged(indexStart, dataList.size() - indexStart);
+    }
+  }
+
+  // 好友数据在头部数据之后
+  private int getFriendStart() {
     int indexStart = 0;
-    if (!dataList.isEmpty()) {
-      while (dataList.size() > indexStart
-          && dataList.get(indexStart) != null
-          && !(dataList.get(indexStart) instanceof ContactFriendBean)) {
-        indexStart++;
-      }
-      while (indexStart < dataList.size()) {
-        dataList.remove(indexStart);
-      }
+    while (dataList.size() > indexStart
+        && dataList.get(indexStart) != null
+        && !(dataList.get(indexStart) instanceof ContactFriendBean)) {
+      indexStart++;
     }
-    dataList.addAll(friendList);
-    notifyDataSetChanged();
+    return indexStart;
   }
 
   // 黑名单调用
@@ -273,4 +273,73 @@ public class ContactAdapter extends RecyclerView.Adapter<BaseContactViewHolder>
   public List<ContactFriendBean> getFriendList() {
     return friendList;
   }
+
+  // 好友差异比较，同一账号为同一好友，好友更新后为新的对象，内容按对象判断
+  private static class FriendDiffCallback extends DiffUtil.Callback {
+    private final List<BaseContactBean> oldList;
+    private final List<ContactFriendBean> newList;
+
+    FriendDiffCallback(List<BaseContactBean> oldList, List<ContactFriendBean> newList) {
+      this.oldList = oldList;
+      this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      BaseContactBean oldItem = oldList.get(oldItemPosition);
+      ContactFriendBean newItem = newList.get(newItemPosition);
+      if (!(oldItem instanceof ContactFriendBean)
+          || ((ContactFriendBean) oldItem).data == null
+          || newItem == null
+          || newItem.data == null) {
+        return oldItem == newItem;
+      }
+      return TextUtils.equals(
+          ((ContactFriendBean) oldItem).data.getAccount(), newItem.data.getAccount());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return oldList.get(oldItemPosition) == newList.get(newItemPosition);
+    }
+  }
+
+  // 差异位置加上好友数据之前的头部数量
+  private class OffsetUpdateCallback implements ListUpdateCallback {
+    private final int offset;
+
+    OffsetUpdateCallback(int offset) {
+      this.offset = offset;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      notifyItemRangeInserted(position + offset, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      notifyItemRangeRemoved(position + offset, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      notifyItemMoved(fromPosition + offset, toPosition + offset);
+    }
+
+    @Override
+    public void onChanged(int position, int count, @Nullable Object payload) {
+      notifyItemRangeChanged(position + offset, count, payload);
+    }
+  }
 }
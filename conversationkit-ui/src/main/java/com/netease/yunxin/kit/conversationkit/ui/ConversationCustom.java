@@ -24,6 +24,7 @@ public class ConversationCustom {
 
   public final float SMALL_SCALE = 0.4F;
   // 获取会话最近一条消息的内容展示
+  // ConversationUIConfig.buildBeanInBackground 为true时在后台线程调用
   public CharSequence customContentText(Context context, V2NIMConversation conversationInfo) {
     if (conversationInfo != null && context != null && conversationInfo.getLastMessage() != null) {
       V2NIMMessageType typeEnum = conversationInfo.getLastMessage().getMessageType();
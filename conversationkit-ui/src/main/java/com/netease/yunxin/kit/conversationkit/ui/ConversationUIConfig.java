@@ -69,4 +69,12 @@ public class ConversationUIConfig {
   public ConversationCustom conversationCustom;
   // 会话列表定制能力，页面加载时，回调该接口，并传入当前Fragment
   public IConversationViewLayout customLayout;
+  // 会话变化事件合并窗口，单位毫秒，窗口内同一会话的多次变化只刷新一次。为空或小于等于0时按帧合并
+  public Long eventCoalesceWindow = null;
+  // 会话列表预加载阈值，距离列表末尾小于该条数时加载下一页
+  public Integer loadMoreThreshold = null;
+  // 会话数据是否在后台线程创建。为空时只有工厂的 supportsBackgroundBuild 返回true且未设置conversationCustom时在后台线程创建；
+  // 设置为true时 IConversationFactory.CreateBean 和 ConversationCustom.customContentText 会在后台线程调用，
+  // 实现中不能访问View或只能在主线程使用的对象；设置为false时全部在主线程执行
+  public Boolean buildBeanInBackground = null;
 }
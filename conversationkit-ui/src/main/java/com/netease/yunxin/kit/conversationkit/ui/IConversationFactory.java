@@ -15,6 +15,7 @@ import com.netease.yunxin.kit.conversationkit.ui.model.ConversationBean;
  */
 public interface IConversationFactory {
   //根据会话数据，创建ViewHolder中数据类
+  //ConversationUIConfig.buildBeanInBackground 为true时在后台线程调用
   ConversationBean CreateBean(V2NIMConversation info);
 
   //Adapter获取数据对应的ViewType
@@ -22,4 +23,10 @@ public interface IConversationFactory {
 
   //创建ViewHolder
   BaseViewHolder<ConversationBean> createViewHolder(@NonNull ViewGroup parent, int viewType);
+
+  //CreateBean 是否可以在后台线程调用，ConversationUIConfig.buildBeanInBackground 未设置时使用
+  //返回true时需保证 CreateBean 不访问View或只能在主线程使用的对象
+  default boolean supportsBackgroundBuild() {
+    return false;
+  }
 }
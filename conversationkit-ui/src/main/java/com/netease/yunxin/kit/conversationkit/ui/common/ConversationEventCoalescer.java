@@ -0,0 +1,273 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.conversationkit.ui.common;
+
+import static com.netease.yunxin.kit.conversationkit.ui.common.ConversationConstant.LIB_TAG;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import androidx.annotation.NonNull;
+import com.netease.nimlib.sdk.v2.conversation.model.V2NIMConversation;
+import com.netease.yunxin.kit.alog.ALog;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 会话事件合并，主线程使用
+ *
+ * <p>一个窗口内的会话变化按 conversationId 合并，只保留最新状态；未读数、@信息和 AI 机器人变化同样只保留最新结果。
+ * 窗口结束时统一回调一次。窗口默认对齐下一帧，也可以指定固定时长。
+ */
+public class ConversationEventCoalescer {
+
+  private static final String TAG = "ConversationEventCoalescer";
+
+  // 每合并多少批次输出一次统计日志
+  private static final int METRICS_LOG_INTERVAL = 50;
+
+  /** 合并后的事件回调 */
+  public interface Callback {
+
+    /** 会话新增或变化，每个会话只回调最新状态 */
+    void onConversationsChanged(@NonNull List<V2NIMConversation> conversationList);
+
+    /** 会话删除 */
+    void onConversationsDeleted(@NonNull List<String> conversationIds);
+
+    /** 总未读数变化，只回调最新值 */
+    void onUnreadCountChanged(int unreadCount);
+
+    /**
+     * @信息变化
+     *
+     * @param addIds 新增@信息的会话，可能为空列表
+     * @param removeIds 移除@信息的会话，可能为空列表
+     */
+    void onAitChanged(@NonNull List<String> addIds, @NonNull List<String> removeIds);
+
+    /** AI 机器人信息变化 */
+    void onAIUserChanged();
+  }
+
+  private final Callback callback;
+
+  // 合并窗口，小于等于0时按帧合并
+  private final long windowMillis;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private final Map<String, V2NIMConversation> pendingChanges = new LinkedHashMap<>();
+  private final Set<String> pendingDeletes = new LinkedHashSet<>();
+  // conversationId -> 是否新增@信息
+  private final Map<String, Boolean> pendingAit = new LinkedHashMap<>();
+  private Integer pendingUnreadCount;
+  private boolean pendingAIUserChanged;
+
+  private boolean flushScheduled;
+  private boolean released;
+
+  private long receivedCount;
+  private long emittedCount;
+  private long batchCount;
+
+  private final Runnable flushRunnable = this::flush;
+  private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> flush();
+
+  /**
+   * @param windowMillis 合并窗口，单位毫秒，小于等于0时按帧合并
+   * @param callback 合并后的事件回调
+   */
+  public ConversationEventCoalescer(long windowMillis, @NonNull Callback callback) {
+    this.windowMillis = windowMillis;
+    this.callback = callback;
+  }
+
+  public void offerChanged(List<V2NIMConversation> conversationList) {
+    if (conversationList == null || conversationList.isEmpty()) {
+      return;
+    }
+    for (V2NIMConversation conversation : conversationList) {
+      if (conversation == null) {
+        continue;
+      }
+      receivedCount++;
+      String conversationId = conversation.getConversationId();
+      pendingDeletes.remove(conversationId);
+      // 先移除再添加，保持按最近变化的顺序
+      pendingChanges.remove(conversationId);
+      pendingChanges.put(conversationId, conversation);
+    }
+    scheduleFlush();
+  }
+
+  public void offerDeleted(List<String> conversationIds) {
+    if (conversationIds == null || conversationIds.isEmpty()) {
+      return;
+    }
+    for (String conversationId : conversationIds) {
+      receivedCount++;
+      pendingChanges.remove(conversationId);
+      pendingAit.remove(conversationId);
+      pendingDeletes.add(conversationId);
+    }
+    scheduleFlush();
+  }
+
+  public void offerUnreadCount(int unreadCount) {
+    receivedCount++;
+    pendingUnreadCount = unreadCount;
+    scheduleFlush();
+  }
+
+  public void offerAit(List<String> conversationIds, boolean add) {
+    if (conversationIds == null || conversationIds.isEmpty()) {
+      return;
+    }
+    for (String conversationId : conversationIds) {
+      receivedCount++;
+      pendingAit.remove(conversationId);
+      pendingAit.put(conversationId, add);
+    }
+    scheduleFlush();
+  }
+
+  public void offerAIUserChanged() {
+    receivedCount++;
+    pendingAIUserChanged = true;
+    scheduleFlush();
+  }
+
+  /** 立即输出等待中的事件 */
+  public void flush() {
+    if (flushScheduled) {
+      handler.removeCallbacks(flushRunnable);
+      Choreographer.getInstance().removeFrameCallback(frameCallback);
+      flushScheduled = false;
+    }
+    if (released) {
+      return;
+    }
+    boolean emitted = false;
+    if (!pendingChanges.isEmpty()) {
+      List<V2NIMConversation> changeList = new ArrayList<>(pendingChanges.values());
+      pendingChanges.clear();
+      emittedCount += changeList.size();
+      emitted = true;
+      callback.onConversationsChanged(changeList);
+    }
+    if (!pendingDeletes.isEmpty()) {
+      List<String> deleteList = new ArrayList<>(pendingDeletes);
+      pendingDeletes.clear();
+      emittedCount += deleteList.size();
+      emitted = true;
+      callback.onConversationsDeleted(deleteList);
+    }
+    if (!pendingAit.isEmpty()) {
+      List<String> addIds = new ArrayList<>();
+      List<String> removeIds = new ArrayList<>();
+      for (Map.Entry<String, Boolean> entry : pendingAit.entrySet()) {
+        if (entry.getValue()) {
+          addIds.add(entry.getKey());
+        } else {
+          removeIds.add(entry.getKey());
+        }
+      }
+      pendingAit.clear();
+      emittedCount += addIds.size() + removeIds.size();
+      emitted = true;
+      callback.onAitChanged(addIds, removeIds);
+    }
+    if (pendingUnreadCount != null) {
+      int unreadCount = pendingUnreadCount;
+      pendingUnreadCount = null;
+      emittedCount++;
+      emitted = true;
+      callback.onUnreadCountChanged(unreadCount);
+    }
+    if (pendingAIUserChanged) {
+      pendingAIUserChanged = false;
+      emittedCount++;
+      emitted = true;
+      callback.onAIUserChanged();
+    }
+    if (emitted) {
+      batchCount++;
+      if (batchCount % METRICS_LOG_INTERVAL == 0) {
+        ALog.d(LIB_TAG, TAG, "metrics:" + getMetrics());
+      }
+    }
+  }
+
+  /** 释放，释放后不再回调 */
+  public void release() {
+    released = true;
+    handler.removeCallbacks(flushRunnable);
+    Choreographer.getInstance().removeFrameCallback(frameCallback);
+    flushScheduled = false;
+    pendingChanges.clear();
+    pendingDeletes.clear();
+    pendingAit.clear();
+    pendingUnreadCount = null;
+    pendingAIUserChanged = false;
+    ALog.d(LIB_TAG, TAG, "release, metrics:" + getMetrics());
+  }
+
+  /** 获取合并统计 */
+  @NonNull
+  public Metrics getMetrics() {
+    return new Metrics(receivedCount, emittedCount, batchCount);
+  }
+
+  private void scheduleFlush() {
+    if (flushScheduled || released) {
+      return;
+    }
+    flushScheduled = true;
+    if (windowMillis > 0) {
+      handler.postDelayed(flushRunnable, windowMillis);
+    } else {
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  /** 合并统计 */
+  public static final class Metrics {
+    // 收到的事件数，按会话计数
+    public final long received;
+    // 输出的事件数，按会话计数
+    public final long emitted;
+    // 输出的批次数
+    public final long batches;
+
+    Metrics(long received, long emitted, long batches) {
+      this.received = received;
+      this.emitted = emitted;
+      this.batches = batches;
+    }
+
+    /** 合并比例，输出数/收到数，越小合并效果越好 */
+    public float getCoalesceRatio() {
+      return received == 0 ? 1f : (float) emitted / received;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "received="
+          + received
+          + ",emitted="
+          + emitted
+          + ",batches="
+          + batches
+          + ",ratio="
+          + getCoalesceRatio();
+    }
+  }
+}
@@ -75,4 +75,10 @@ public class FunViewHolderFactory implements IConversationFactory {
       return new FunConversationP2PViewHolder(binding);
     }
   }
+
+  @Override
+  public boolean supportsBackgroundBuild() {
+    // 子类可能重写 CreateBean，需自行声明
+    return getClass() == FunViewHolderFactory.class;
+  }
 }
@@ -4,15 +4,22 @@
 
 package com.netease.yunxin.kit.conversationkit.ui.model;
 
+import android.content.Context;
 import android.text.TextUtils;
 import com.netease.nimlib.sdk.v2.conversation.model.V2NIMConversation;
 import com.netease.nimlib.sdk.v2.utils.V2NIMConversationIdUtil;
+import com.netease.yunxin.kit.common.ui.utils.AppLanguageConfig;
 import com.netease.yunxin.kit.common.ui.viewholder.BaseBean;
+import com.netease.yunxin.kit.conversationkit.ui.common.ConversationUtils;
+import com.netease.yunxin.kit.corekit.im2.utils.TimeFormatLocalUtils;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.TimeZone;
 
 /** 会话列表数据Bean，封装会话数据，主要用于UI展示 */
 public class ConversationBean extends BaseBean {
   private static final String TAG = "ConversationBean";
+  private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
   // 会话信息
   public V2NIMConversation infoData;
   // 是否置顶
@@ -21,6 +28,13 @@ public class ConversationBean extends BaseBean {
   // 会话ID
   private String targetId = "";
 
+  // 预生成的会话内容和时间文本，后台构建时生成，绑定时直接使用
+  private CharSequence contentText;
+  private String timeText;
+  // 生成文本时的语言和日期，变化后重新生成
+  private String formatLanguage;
+  private long formatDay = -1;
+
   public ConversationBean(V2NIMConversation data) {
     infoData = data;
   }
@@ -105,6 +119,67 @@ public class ConversationBean extends BaseBean {
     return getTargetId();
   }
 
+  /**
+   * 预生成展示用的会话内容和时间文本，可在后台线程调用
+   *
+   * @param context 上下文，需与列表页面的配置（语言、深色模式等）一致
+   */
+  public void preformat(Context context) {
+    getTargetId();
+    String language = AppLanguageConfig.getInstance().getAppLanguage(context);
+    contentText = ConversationUtils.getConversationText(context, infoData);
+    timeText = formatTime(context, language);
+    formatLanguage = language;
+    formatDay = currentDay();
+  }
+
+  /**
+   * 获取会话内容，优先使用预生成的文本
+   *
+   * @param context 上下文
+   * @return 最近一条消息的展示内容
+   */
+  public CharSequence getContentText(Context context) {
+    String language = AppLanguageConfig.getInstance().getAppLanguage(context);
+    if (contentText == null || !TextUtils.equals(language, formatLanguage)) {
+      contentText = ConversationUtils.getConversationText(context, infoData);
+      timeText = null;
+      formatLanguage = language;
+    }
+    return contentText;
+  }
+
+  /**
+   * 获取会话时间文本，优先使用预生成的文本，跨天或语言变化后重新生成
+   *
+   * @param context 上下文
+   * @return 最近一条消息的时间文本
+   */
+  public String getTimeText(Context context) {
+    String language = AppLanguageConfig.getInstance().getAppLanguage(context);
+    long day = currentDay();
+    if (timeText == null || formatDay != day || !TextUtils.equals(language, formatLanguage)) {
+      if (!TextUtils.equals(language, formatLanguage)) {
+        contentText = null;
+        formatLanguage = language;
+      }
+      timeText = formatTime(context, language);
+      formatDay = day;
+    }
+    return timeText;
+  }
+
+  private String formatTime(Context context, String language) {
+    return TimeFormatLocalUtils.formatMillisecond(
+        context, getLastMsgTime(), new Locale(language));
+  }
+
+  // 本地时区的日期序号
+  private static long currentDay() {
+    long now = System.currentTimeMillis();
+    return (now + TimeZone.getDefault().getOffset(now)) / DAY_MILLIS;
+  }
+
   public boolean equals(Object o) {
     if (this == o) return true;
     if (!(o instanceof ConversationBean)) {
@@ -74,4 +74,10 @@ public class ViewHolderFactory implements IConversationFactory {
       return new ConversationP2PViewHolder(binding);
     }
   }
+
+  @Override
+  public boolean supportsBackgroundBuild() {
+    // 子类可能重写 CreateBean，需自行声明
+    return getClass() == ViewHolderFactory.class;
+  }
 }
@@ -111,6 +111,11 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
       // 设置会话排序规则
       conversationView.setComparator(conversationComparator);
       conversationView.setLoadMoreListener(this);
+      if (ConversationKitClient.getConversationUIConfig() != null
+          && ConversationKitClient.getConversationUIConfig().loadMoreThreshold != null) {
+        conversationView.setLoadMoreThreshold(
+            ConversationKitClient.getConversationUIConfig().loadMoreThreshold);
+      }
       // 设置会话点击事件
       conversationView.setItemClickListener(getViewHolderClickListener());
     }
@@ -228,6 +233,7 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
   // 初始化观察者
   protected void initData() {
     viewModel = new ViewModelProvider(this).get(ConversationViewModel.class);
+    viewModel.setFormatContext(getContext());
     conversationComparator = ConversationUtils.getConversationComparator();
     viewModel.setComparator(conversationComparator);
     if (conversationFactory != null) {
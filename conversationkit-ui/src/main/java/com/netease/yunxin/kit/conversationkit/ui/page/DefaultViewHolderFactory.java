@@ -33,4 +33,10 @@ public class DefaultViewHolderFactory implements IConversationFactory {
       public void onBindData(ConversationBean data, int position) {}
     };
   }
+
+  @Override
+  public boolean supportsBackgroundBuild() {
+    // 子类可能重写 CreateBean，需自行声明
+    return getClass() == DefaultViewHolderFactory.class;
+  }
 }
@@ -4,6 +4,9 @@
 
 package com.netease.yunxin.kit.conversationkit.ui.page.viewmodel;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -36,9 +39,12 @@ import com.netease.yunxin.kit.common.ui.utils.ToastX;
 import com.netease.yunxin.kit.common.ui.viewmodel.BaseViewModel;
 import com.netease.yunxin.kit.common.ui.viewmodel.FetchResult;
 import com.netease.yunxin.kit.common.ui.viewmodel.LoadStatus;
+import com.netease.yunxin.kit.conversationkit.ui.ConversationKitClient;
+import com.netease.yunxin.kit.conversationkit.ui.ConversationUIConfig;
 import com.netease.yunxin.kit.conversationkit.ui.IConversationFactory;
 import com.netease.yunxin.kit.conversationkit.ui.R;
 import com.netease.yunxin.kit.conversationkit.ui.common.ConversationConstant;
+import com.netease.yunxin.kit.conversationkit.ui.common.ConversationEventCoalescer;
 import com.netease.yunxin.kit.conversationkit.ui.common.ConversationUtils;
 import com.netease.yunxin.kit.conversationkit.ui.model.AIUserBean;
 import com.netease.yunxin.kit.conversationkit.ui.model.ConversationBean;
@@ -63,6 +69,9 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -101,8 +110,22 @@ public class ConversationViewModel extends BaseViewModel {
   private boolean hasMore = true;
   // 数据查询是否已经开始
   private boolean hasStart = false;
+  // 分页请求代数，列表重新加载时递增，旧的分页结果直接丢弃
+  private int pageGeneration = 0;
+  // 会话事件合并，避免短时间内大量事件逐个刷新UI
+  private final ConversationEventCoalescer eventCoalescer;
+  // 会话数据构建线程，ConversationBean 创建和展示内容预生成在该线程执行，结果按提交顺序回到主线程
+  private final ExecutorService beanExecutor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private volatile boolean isCleared = false;
+  // 预生成展示内容使用的上下文，与页面配置一致
+  private Context formatContext;
 
   public ConversationViewModel() {
+    ConversationUIConfig config = ConversationKitClient.getConversationUIConfig();
+    long coalesceWindow =
+        config != null && config.eventCoalesceWindow != null ? config.eventCoalesceWindow : 0;
+    eventCoalescer = new ConversationEventCoalescer(coalesceWindow, coalescerCallback);
     // 注册会话监听
     ConversationRepo.addConversationListener(conversationListener);
     // 注册群组监听,用于监听群解散和退出
@@ -123,24 +146,19 @@ public class ConversationViewModel extends BaseViewModel {
       new EventNotify<AitEvent>() {
         @Override
         public void onNotify(@NonNull AitEvent aitEvent) {
-          FetchResult<List<String>> result = new FetchResult<>(LoadStatus.Finish);
           ALog.d(LIB_TAG, TAG, "aitNotify");
           if (aitEvent.getAitInfoList() == null) {
             return;
           }
-          if (aitEvent.getEventType() == AitEvent.AitEventType.Arrive
-              || aitEvent.getEventType() == AitEvent.AitEventType.Load) {
-            result.setFetchType(FetchResult.FetchType.Add);
-          } else {
-            result.setFetchType(FetchResult.FetchType.Remove);
-          }
+          boolean add =
+              aitEvent.getEventType() == AitEvent.AitEventType.Arrive
+                  || aitEvent.getEventType() == AitEvent.AitEventType.Load;
           List<AitInfo> aitInfoList = aitEvent.getAitInfoList();
           List<String> sessionIdList = new ArrayList<>();
           for (AitInfo info : aitInfoList) {
             sessionIdList.add(info.getConversationId());
           }
-          result.setData(sessionIdList);
-          aitLiveData.setValue(result);
+          eventCoalescer.offerAit(sessionIdList, add);
         }
 
         @NonNull
@@ -196,7 +214,7 @@ public class ConversationViewModel extends BaseViewModel {
             for (UserWithFriend user : contactList) {
               ALog.d(LIB_TAG, TAG, "onUserProfileChanged:" + user.getAccount());
               if (TextUtils.equals(user.getAccount(), IMKitClient.account())) {
-                getAiRobotUserList();
+                eventCoalescer.offerAIUserChanged();
               }
             }
           }
@@ -243,6 +261,11 @@ public class ConversationViewModel extends BaseViewModel {
     return aiRobotLiveData;
   }
 
+  // 会话事件合并统计，包括收到的事件数、输出的事件数和合并比例
+  public ConversationEventCoalescer.Metrics getEventMetrics() {
+    return eventCoalescer.getMetrics();
+  }
+
   /** 获取未读数 */
   public void getUnreadCount() {
     int unreadCount = ConversationRepo.getTotalUnreadCount();
@@ -273,10 +296,15 @@ public class ConversationViewModel extends BaseViewModel {
    */
   private void getConversationByPage(long offSet) {
     ALog.d(LIB_TAG, TAG, "queryConversation:" + offSet);
-    if (hasStart) {
+    // 重新加载第一页时不等待进行中的分页，进行中的分页结果会被丢弃
+    if (hasStart && offSet > 0) {
       ALog.d(LIB_TAG, TAG, "queryConversation,has Started return");
       return;
     }
+    if (offSet == 0) {
+      pageGeneration++;
+    }
+    int generation = pageGeneration;
     hasStart = true;
     ConversationRepo.getConversationList(
         offSet,
@@ -285,11 +313,17 @@ public class ConversationViewModel extends BaseViewModel {
           @Override
           public void onError(int errorCode, @Nullable String errorMsg) {
             ALog.e(LIB_TAG, TAG, "queryConversation,onError:" + errorCode + "," + errorMsg);
-            hasStart = false;
+            if (generation == pageGeneration) {
+              hasStart = false;
+            }
           }
 
           @Override
           public void onSuccess(@Nullable V2NIMConversationResult data) {
+            if (generation != pageGeneration) {
+              ALog.d(LIB_TAG, TAG, "queryConversation,stale page:" + offSet);
+              return;
+            }
             ALog.d(
                 LIB_TAG,
                 TAG,
@@ -302,14 +336,22 @@ public class ConversationViewModel extends BaseViewModel {
 
             if (data != null && data.getConversationList() != null) {
               checkConversationAndRemove(data.getConversationList());
-              List<ConversationBean> resultData =
-                  createConversationBean(data.getConversationList());
-              if (comparator != null) {
-                Collections.sort(resultData, comparator);
-              }
-              result.setData(resultData);
-              hasMore = resultData.size() == PAGE_LIMIT;
-              mOffset = data.getOffset();
+              long nextOffset = data.getOffset();
+              buildBeansAsync(
+                  data.getConversationList(),
+                  true,
+                  resultData -> {
+                    if (generation != pageGeneration) {
+                      ALog.d(LIB_TAG, TAG, "queryConversation,stale page:" + offSet);
+                      return;
+                    }
+                    result.setData(resultData);
+                    hasMore = resultData.size() == PAGE_LIMIT;
+                    mOffset = nextOffset;
+                    queryLiveData.setValue(result);
+                    hasStart = false;
+                  });
+              return;
             }
             queryLiveData.setValue(result);
             hasStart = false;
@@ -458,19 +500,13 @@ public class ConversationViewModel extends BaseViewModel {
               TAG,
               "conversationListener onConversationCreated,conversation:"
                   + (conversation != null ? conversation.getConversationId() : "id is null"));
-          FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Success);
-          result.setType(FetchResult.FetchType.Add);
-          List<V2NIMConversation> data = new ArrayList<>();
-          data.add(conversation);
-          convertAndNotify(result, data);
+          eventCoalescer.offerChanged(Collections.singletonList(conversation));
         }
 
         @Override
         public void onConversationDeleted(List<String> conversationIds) {
-          FetchResult<List<String>> result = new FetchResult<>(LoadStatus.Success);
-          result.setData(conversationIds);
           ALog.d(LIB_TAG, TAG, "conversationListener onConversationDeleted,onSuccess");
-          deleteLiveData.setValue(result);
+          eventCoalescer.offerDeleted(conversationIds);
         }
 
         @Override
@@ -504,28 +540,73 @@ public class ConversationViewModel extends BaseViewModel {
                 LIB_TAG,
                 TAG,
                 "conversationListener onConversationChanged,changeList:" + changeList.size());
-            FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Success);
-            result.setType(FetchResult.FetchType.Update);
-            convertAndNotify(result, changeList);
+            eventCoalescer.offerChanged(changeList);
           }
           if (deleteList.size() > 0) {
             ALog.d(
                 LIB_TAG,
                 TAG,
                 "conversationListener onConversationChanged,deleteList:" + deleteList.size());
-            FetchResult<List<String>> result = new FetchResult<>(LoadStatus.Success);
-            result.setData(deleteList);
-            deleteLiveData.setValue(result);
+            eventCoalescer.offerDeleted(deleteList);
           }
         }
 
         @Override
         public void onTotalUnreadCountChanged(int unreadCount) {
           ALog.d(LIB_TAG, TAG, "conversationListener onTotalUnreadCountChanged:" + unreadCount);
+          eventCoalescer.offerUnreadCount(unreadCount);
+        }
+      };
+
+  // 合并后的会话事件，通知LiveData
+  private final ConversationEventCoalescer.Callback coalescerCallback =
+      new ConversationEventCoalescer.Callback() {
+        @Override
+        public void onConversationsChanged(@NonNull List<V2NIMConversation> conversationList) {
+          ALog.d(LIB_TAG, TAG, "coalescer onConversationsChanged:" + conversationList.size());
+          FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Success);
+          result.setType(FetchResult.FetchType.Update);
+          convertAndNotify(result, conversationList);
+        }
+
+        @Override
+        public void onConversationsDeleted(@NonNull List<String> conversationIds) {
+          // 等待构建中的会话先通知，避免删除后又被添加
+          runAfterPendingBeans(
+              () -> {
+                FetchResult<List<String>> result = new FetchResult<>(LoadStatus.Success);
+                result.setData(conversationIds);
+                deleteLiveData.setValue(result);
+              });
+        }
+
+        @Override
+        public void onUnreadCountChanged(int unreadCount) {
           FetchResult<Integer> result = new FetchResult<>(LoadStatus.Success);
           result.setData(unreadCount);
           unreadCountLiveData.setValue(result);
         }
+
+        @Override
+        public void onAitChanged(@NonNull List<String> addIds, @NonNull List<String> removeIds) {
+          if (!addIds.isEmpty()) {
+            FetchResult<List<String>> result = new FetchResult<>(LoadStatus.Finish);
+            result.setFetchType(FetchResult.FetchType.Add);
+            result.setData(addIds);
+            aitLiveData.setValue(result);
+          }
+          if (!removeIds.isEmpty()) {
+            FetchResult<List<String>> result = new FetchResult<>(LoadStatus.Finish);
+            result.setFetchType(FetchResult.FetchType.Remove);
+            result.setData(removeIds);
+            aitLiveData.setValue(result);
+          }
+        }
+
+        @Override
+        public void onAIUserChanged() {
+          getAiRobotUserList();
+        }
       };
 
   // 群组监听Listener
@@ -562,7 +643,7 @@ public class ConversationViewModel extends BaseViewModel {
         @Override
         public void onAIUserChanged(@NonNull List<? extends V2NIMAIUser> aiUsers) {
           ALog.d(LIB_TAG, TAG, "onAIUserChanged:" + aiUsers.size());
-          getAiRobotUserList();
+          eventCoalescer.offerAIUserChanged();
         }
       };
 
@@ -570,9 +651,13 @@ public class ConversationViewModel extends BaseViewModel {
   public void convertAndNotify(
       FetchResult<List<ConversationBean>> result, List<V2NIMConversation> conversationList) {
     if (conversationList != null) {
-      List<ConversationBean> resultData = createConversationBean(conversationList);
-      result.setData(resultData);
-      changeLiveData.setValue(result);
+      buildBeansAsync(
+          conversationList,
+          false,
+          resultData -> {
+            result.setData(resultData);
+            changeLiveData.setValue(result);
+          });
     }
   }
 
@@ -587,6 +672,105 @@ public class ConversationViewModel extends BaseViewModel {
     return resultData;
   }
 
+  /**
+   * 设置预生成展示内容使用的上下文，取其配置（语言、深色模式等）创建，不持有页面
+   *
+   * @param context 页面上下文
+   */
+  public void setFormatContext(@Nullable Context context) {
+    Context appContext = IMKitClient.getApplicationContext();
+    if (context == null || appContext == null) {
+      formatContext = appContext;
+      return;
+    }
+    formatContext =
+        appContext.createConfigurationContext(context.getResources().getConfiguration());
+  }
+
+  /**
+   * 创建会话数据并预生成展示内容，完成后在主线程回调
+   *
+   * <p>是否在后台线程创建参考 {@link ConversationUIConfig#buildBeanInBackground}，不在后台线程创建时
+   * 仍经过构建线程排队，保证回调按提交顺序执行
+   *
+   * @param data 会话信息
+   * @param sort 是否按比较器排序
+   * @param callback 主线程回调
+   */
+  private void buildBeansAsync(
+      List<V2NIMConversation> data, boolean sort, Consumer<List<ConversationBean>> callback) {
+    if (isCleared) {
+      return;
+    }
+    List<V2NIMConversation> source = new ArrayList<>(data);
+    IConversationFactory factory = conversationFactory;
+    Comparator<ConversationBean> sortComparator = sort ? comparator : null;
+    Context context = formatContext != null ? formatContext : IMKitClient.getApplicationContext();
+    boolean background = isBuildInBackground(factory);
+    beanExecutor.execute(
+        () -> {
+          List<ConversationBean> backgroundData =
+              background ? buildBeans(source, factory, context, sortComparator) : null;
+          mainHandler.post(
+              () -> {
+                if (!isCleared) {
+                  callback.accept(
+                      background
+                          ? backgroundData
+                          : buildBeans(source, factory, context, sortComparator));
+                }
+              });
+        });
+  }
+
+  // 创建会话数据并预生成展示内容
+  private static List<ConversationBean> buildBeans(
+      List<V2NIMConversation> source,
+      IConversationFactory factory,
+      Context context,
+      @Nullable Comparator<ConversationBean> sortComparator) {
+    List<ConversationBean> resultData = new ArrayList<>(source.size());
+    for (V2NIMConversation conversation : source) {
+      ConversationBean bean = factory.CreateBean(conversation);
+      if (bean == null) {
+        continue;
+      }
+      bean.preformat(context);
+      resultData.add(bean);
+    }
+    if (sortComparator != null) {
+      Collections.sort(resultData, sortComparator);
+    }
+    return resultData;
+  }
+
+  // 自定义的工厂和会话内容生成可能依赖主线程，未明确配置时只有声明支持的工厂在后台线程执行
+  private static boolean isBuildInBackground(IConversationFactory factory) {
+    ConversationUIConfig config = ConversationKitClient.getConversationUIConfig();
+    if (config != null && config.buildBeanInBackground != null) {
+      return config.buildBeanInBackground;
+    }
+    if (config != null && config.conversationCustom != null) {
+      return false;
+    }
+    return factory != null && factory.supportsBackgroundBuild();
+  }
+
+  // 在已提交的会话数据构建完成并通知后，在主线程执行
+  private void runAfterPendingBeans(Runnable action) {
+    if (isCleared) {
+      return;
+    }
+    beanExecutor.execute(
+        () ->
+            mainHandler.post(
+                () -> {
+                  if (!isCleared) {
+                    action.run();
+                  }
+                }));
+  }
+
   //工具方法，去除重复会话
   public void checkConversationAndRemove(List<V2NIMConversation> data) {
     Set<String> conversationIds = new HashSet<>();
@@ -613,6 +797,9 @@ public class ConversationViewModel extends BaseViewModel {
   protected void onCleared() {
     super.onCleared();
     ALog.d(LIB_TAG, TAG, "onCleared:");
+    eventCoalescer.release();
+    isCleared = true;
+    beanExecutor.shutdown();
     ConversationRepo.removeConversationListener(conversationListener);
     TeamRepo.removeTeamListener(teamListener);
     // 注册@信息监听,业务层逻辑
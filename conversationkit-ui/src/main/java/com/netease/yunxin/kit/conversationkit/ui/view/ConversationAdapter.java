@@ -9,7 +9,10 @@ import static com.netease.yunxin.kit.conversationkit.ui.common.ConversationConst
 import android.text.TextUtils;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.common.ui.viewholder.BaseViewHolder;
@@ -28,11 +31,10 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   private final String TAG = "ConversationAdapter";
   // 默认使用默认的viewHolder工厂,用于创建viewHolder
   private IConversationFactory viewHolderFactory = new DefaultViewHolderFactory();
-  // 会话列表数据
-  private final List<ConversationBean> conversationList = new ArrayList<>();
+  // 会话列表数据，按比较器排序，以 conversationId 建立索引
+  private final ConversationStore conversationStore = new ConversationStore();
+  private final List<ConversationBean> conversationList = conversationStore.asList();
   private final List<ConversationHeaderBean> conversationHeaderList = new ArrayList<>();
-  // 数据比较器
-  private Comparator<ConversationBean> dataComparator;
   // 点击事件监听
   private ViewHolderClickListener clickListener;
   // 是否显示
@@ -40,15 +42,41 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   // 布局管理器,用于滚动到指定位置和获取第一个可见位置
   private final LinearLayoutManager layoutManager;
 
+  // 列表变化通知，位置需加上头部数量
+  private final ListUpdateCallback contentUpdateCallback =
+      new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+          notifyItemRangeInserted(position + conversationHeaderList.size(), count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+          notifyItemRangeRemoved(position + conversationHeaderList.size(), count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+          notifyItemMoved(
+              fromPosition + conversationHeaderList.size(),
+              toPosition + conversationHeaderList.size());
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+          notifyItemRangeChanged(position + conversationHeaderList.size(), count, payload);
+        }
+      };
+
   public ConversationAdapter(LinearLayoutManager layoutManager) {
     this.layoutManager = layoutManager;
   }
 
   // 设置数据，将原有数据清空，添加新数据
   public void setData(List<ConversationBean> data) {
-    conversationList.clear();
+    conversationStore.clear();
     if (data != null) {
-      conversationList.addAll(data);
+      conversationStore.addAll(0, data);
       notifyDataSetChanged();
     }
   }
@@ -71,60 +99,82 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   /** add data to list forward */
   public void addForwardData(List<ConversationBean> data) {
     if (data != null) {
-      conversationList.addAll(0, data);
+      conversationStore.addAll(0, data);
     }
   }
 
-  // 添加数据，将新数据添加到原有数据的末尾
+  // 添加分页数据，data 需已按比较器排序，归并到原有数据中，已存在的会话忽略
   public void appendData(List<ConversationBean> data) {
-    if (data != null) {
-      for (ConversationBean bean : data) {
-        ALog.d(LIB_TAG, TAG, "appendData" + bean.getConversationId());
-        int insertIndex = searchComparatorIndex(bean, false);
-        conversationList.add(insertIndex, bean);
-        if (isShow) {
-          int listIndex = insertIndex + conversationHeaderList.size();
-          notifyItemInserted(listIndex);
-        }
+    if (data == null || data.isEmpty()) {
+      return;
+    }
+    ALog.d(LIB_TAG, TAG, "appendData:" + data.size());
+    List<Integer> insertPositions = conversationStore.mergeSorted(data);
+    if (!isShow) {
+      return;
+    }
+    // 连续的位置合并为一次通知
+    int index = 0;
+    while (index < insertPositions.size()) {
+      int start = insertPositions.get(index);
+      int count = 1;
+      while (index + count < insertPositions.size()
+          && insertPositions.get(index + count) == start + count) {
+        count++;
       }
+      notifyItemRangeInserted(start + conversationHeaderList.size(), count);
+      index += count;
     }
   }
 
-  // 更新数据
+  // 批量更新数据，所有会话更新完成后统一计算差异并通知，已存在则更新，不存在则添加
   public void update(List<ConversationBean> data) {
-    for (int i = 0; data != null && i < data.size(); i++) {
-      update(data.get(i));
+    if (data == null || data.isEmpty()) {
+      return;
     }
+    if (data.size() == 1) {
+      update(data.get(0));
+      return;
+    }
+    ALog.d(LIB_TAG, TAG, "update list:" + data.size());
+    int position = layoutManager.findFirstVisibleItemPosition();
+    List<ConversationBean> oldList = new ArrayList<>(conversationList);
+    for (ConversationBean bean : data) {
+      int removeIndex = conversationStore.indexOf(bean.getConversationId());
+      if (removeIndex > -1) {
+        conversationStore.removeAt(removeIndex);
+      }
+      conversationStore.insertSorted(bean);
+    }
+    if (isShow) {
+      DiffUtil.calculateDiff(new ConversationDiffCallback(oldList, conversationList), true)
+          .dispatchUpdatesTo(contentUpdateCallback);
+    }
+    layoutManager.scrollToPosition(position);
   }
 
   // 更新数据，如果数据已存在，则更新，不存在则添加
   public void update(ConversationBean data) {
     ALog.d(LIB_TAG, TAG, "update" + data.getConversationId());
     int position = layoutManager.findFirstVisibleItemPosition();
-    int removeIndex = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (data.equals(conversationList.get(j))) {
-        removeIndex = j;
-        break;
-      }
-    }
-    boolean addStickTop =
-        data.infoData.isStickTop()
-            && removeIndex > -1
-            && !conversationList.get(removeIndex).infoData.isStickTop();
+    int removeIndex = conversationStore.indexOf(data.getConversationId());
     ALog.d(LIB_TAG, TAG, "update, removeIndex:" + removeIndex);
     if (removeIndex > -1) {
-      conversationList.remove(removeIndex);
-      int insertIndex = searchComparatorIndex(data, addStickTop);
+      conversationStore.removeAt(removeIndex);
+      int insertIndex = conversationStore.insertSorted(data);
       ALog.d(
           LIB_TAG,
           TAG,
           "update, insertIndex:" + insertIndex + "unread:" + data.infoData.getUnreadCount());
-      conversationList.add(insertIndex, data);
-      notifyDataSetChanged();
+      if (isShow) {
+        int listIndex = insertIndex + conversationHeaderList.size();
+        if (insertIndex != removeIndex) {
+          notifyItemMoved(removeIndex + conversationHeaderList.size(), listIndex);
+        }
+        notifyItemChanged(listIndex);
+      }
     } else {
-      int insertIndex = searchComparatorIndex(data, addStickTop);
-      conversationList.add(insertIndex, data);
+      int insertIndex = conversationStore.insertSorted(data);
       if (isShow) {
         int listIndex = insertIndex + conversationHeaderList.size();
         notifyItemInserted(listIndex);
@@ -133,51 +183,23 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     layoutManager.scrollToPosition(position);
   }
 
-  private int searchComparatorIndex(ConversationBean data, boolean addStickTop) {
-    int index = conversationList.size();
-    for (int i = 0; i < conversationList.size(); i++) {
-      if (dataComparator != null && dataComparator.compare(data, conversationList.get(i)) < 1) {
-        index = i;
-        break;
-      }
-    }
-
-    return index;
-  }
-
   public void removeData(List<String> dataList) {
     if (dataList == null || dataList.size() < 1) {
       return;
     }
     for (String data : dataList) {
-      int index = -1;
-      for (int j = 0; j < conversationList.size(); j++) {
-        if (TextUtils.equals(data, conversationList.get(j).getConversationId())) {
-          index = j;
-          break;
-        }
-      }
-      if (index > -1) {
-        index = index + conversationHeaderList.size();
-        removeData(index);
-      }
+      removeData(data);
     }
   }
 
   public void removeAll() {
-    conversationList.clear();
+    conversationStore.clear();
     conversationHeaderList.clear();
     notifyDataSetChanged();
   }
 
   public void removeData(String id) {
-    int index = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (TextUtils.equals(conversationList.get(j).getConversationId(), id)) {
-        index = j;
-        break;
-      }
-    }
+    int index = conversationStore.indexOf(id);
     if (index > -1) {
       index = index + conversationHeaderList.size();
       removeData(index);
@@ -189,7 +211,7 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
       if (position < conversationHeaderList.size()) {
         conversationHeaderList.remove(position);
       } else if (position - conversationHeaderList.size() < conversationList.size()) {
-        conversationList.remove(position - conversationHeaderList.size());
+        conversationStore.removeAt(position - conversationHeaderList.size());
       }
       if (isShow) {
         notifyItemRemoved(position);
@@ -200,31 +222,24 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   // 更新@信息
   public void updateAit(List<String> idList) {
     for (String id : idList) {
-      for (int j = 0; j < conversationList.size(); j++) {
-        if (TextUtils.equals(conversationList.get(j).getConversationId(), id)) {
-          notifyItemChanged(j + conversationHeaderList.size());
-        }
+      int index = conversationStore.indexOf(id);
+      if (index > -1) {
+        notifyItemChanged(index + conversationHeaderList.size());
       }
     }
   }
 
   // 添加置顶展示
   public void addStickTop(String id) {
-    int index = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (TextUtils.equals(conversationList.get(j).getConversationId(), id)) {
-        index = j;
-        break;
-      }
-    }
+    int index = conversationStore.indexOf(id);
     if (index > -1) {
-      conversationList.get(index).setStickTop(true);
-      ConversationBean data = conversationList.remove(index);
-      int insertIndex = searchComparatorIndex(data, true);
-      conversationList.add(insertIndex, data);
+      ConversationBean data = conversationStore.removeAt(index);
+      data.setStickTop(true);
+      int insertIndex = conversationStore.insertSorted(data);
       int listIndex = insertIndex + conversationHeaderList.size();
+      int listRemoveIndex = index + conversationHeaderList.size();
       if (isShow) {
-        notifyItemMoved(index, listIndex);
+        notifyItemMoved(listRemoveIndex, listIndex);
         notifyItemChanged(listIndex);
       }
     }
@@ -232,18 +247,11 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
 
   // 移除置顶展示
   public void removeStickTop(String id) {
-    int index = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (TextUtils.equals(conversationList.get(j).getConversationId(), id)) {
-        index = j;
-        break;
-      }
-    }
+    int index = conversationStore.indexOf(id);
     if (index > -1) {
-      ConversationBean data = conversationList.remove(index);
+      ConversationBean data = conversationStore.removeAt(index);
       data.setStickTop(false);
-      int insertIndex = searchComparatorIndex(data, false);
-      conversationList.add(insertIndex, data);
+      int insertIndex = conversationStore.insertSorted(data);
       int listIndex = insertIndex + conversationHeaderList.size();
       int listRemoveIndex = index + conversationHeaderList.size();
       if (isShow) {
@@ -262,7 +270,7 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   }
 
   public void setComparator(Comparator<ConversationBean> comparator) {
-    this.dataComparator = comparator;
+    conversationStore.setComparator(comparator);
   }
 
   @NonNull
@@ -304,4 +312,37 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     }
     return null;
   }
+
+  // 会话差异比较，同一会话更新后为新的对象，内容按对象判断
+  private static class ConversationDiffCallback extends DiffUtil.Callback {
+    private final List<ConversationBean> oldList;
+    private final List<ConversationBean> newList;
+
+    ConversationDiffCallback(List<ConversationBean> oldList, List<ConversationBean> newList) {
+      this.oldList = oldList;
+      this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      return TextUtils.equals(
+          oldList.get(oldItemPosition).getConversationId(),
+          newList.get(newItemPosition).getConversationId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return oldList.get(oldItemPosition) == newList.get(newItemPosition);
+    }
+  }
 }
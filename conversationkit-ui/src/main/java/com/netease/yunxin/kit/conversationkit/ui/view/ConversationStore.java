@@ -0,0 +1,193 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.conversationkit.ui.view;
+
+import androidx.annotation.Nullable;
+import com.netease.yunxin.kit.conversationkit.ui.model.ConversationBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话列表存储，列表按比较器排序。
+ *
+ * <p>conversationId 索引与列表保持同步，查找会话为 O(1)；插入位置和已有会话的位置按比较器二分查找，为 O(log n)。
+ * 未设置比较器或列表局部无序（如通过 {@link #addAll} 直接插入）时，定位退化为线性查找，保证结果正确。
+ */
+class ConversationStore {
+
+  private final List<ConversationBean> conversationList = new ArrayList<>();
+  private final List<ConversationBean> readOnlyList =
+      Collections.unmodifiableList(conversationList);
+  private final Map<String, ConversationBean> conversationMap = new HashMap<>();
+  private Comparator<ConversationBean> comparator;
+
+  void setComparator(Comparator<ConversationBean> comparator) {
+    this.comparator = comparator;
+  }
+
+  int size() {
+    return conversationList.size();
+  }
+
+  ConversationBean get(int position) {
+    return conversationList.get(position);
+  }
+
+  /** 只读视图，随存储内容变化 */
+  List<ConversationBean> asList() {
+    return readOnlyList;
+  }
+
+  @Nullable
+  ConversationBean find(String conversationId) {
+    if (conversationId == null) {
+      return null;
+    }
+    return conversationMap.get(conversationId);
+  }
+
+  /**
+   * 根据 conversationId 查找位置
+   *
+   * @return 位置，不存在返回-1
+   */
+  int indexOf(String conversationId) {
+    ConversationBean origin = find(conversationId);
+    if (origin == null) {
+      return -1;
+    }
+    return positionOf(origin);
+  }
+
+  /** 在指定位置批量插入，不做排序 */
+  void addAll(int position, List<ConversationBean> data) {
+    conversationList.addAll(position, data);
+    for (ConversationBean bean : data) {
+      conversationMap.put(bean.getConversationId(), bean);
+    }
+  }
+
+  /**
+   * 按比较器插入，插入到第一个不小于它的会话之前，未设置比较器时插入到末尾
+   *
+   * @return 插入的位置
+   */
+  int insertSorted(ConversationBean data) {
+    int index = conversationList.size();
+    if (comparator != null) {
+      int low = 0;
+      int high = conversationList.size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (comparator.compare(data, conversationList.get(mid)) > 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      index = low;
+    }
+    conversationList.add(index, data);
+    conversationMap.put(data.getConversationId(), data);
+    return index;
+  }
+
+  /**
+   * 将已按比较器排序的会话归并到列表，为 O(n + m)，已存在的会话忽略。未设置比较器时追加到末尾
+   *
+   * @param sortedData 已排序的会话
+   * @return 新增会话在归并后列表中的位置，升序
+   */
+  List<Integer> mergeSorted(List<ConversationBean> sortedData) {
+    List<ConversationBean> newData = new ArrayList<>(sortedData.size());
+    for (ConversationBean bean : sortedData) {
+      if (!conversationMap.containsKey(bean.getConversationId())) {
+        conversationMap.put(bean.getConversationId(), bean);
+        newData.add(bean);
+      }
+    }
+    List<Integer> insertPositions = new ArrayList<>(newData.size());
+    if (newData.isEmpty()) {
+      return insertPositions;
+    }
+    // 分页数据通常都在已有数据之后，直接追加
+    if (comparator == null
+        || conversationList.isEmpty()
+        || comparator.compare(conversationList.get(conversationList.size() - 1), newData.get(0))
+            <= 0) {
+      int start = conversationList.size();
+      conversationList.addAll(newData);
+      for (int index = 0; index < newData.size(); index++) {
+        insertPositions.add(start + index);
+      }
+      return insertPositions;
+    }
+    List<ConversationBean> merged = new ArrayList<>(conversationList.size() + newData.size());
+    int oldIndex = 0;
+    int newIndex = 0;
+    while (oldIndex < conversationList.size() || newIndex < newData.size()) {
+      if (newIndex >= newData.size()
+          || (oldIndex < conversationList.size()
+              && comparator.compare(conversationList.get(oldIndex), newData.get(newIndex)) <= 0)) {
+        merged.add(conversationList.get(oldIndex++));
+      } else {
+        insertPositions.add(merged.size());
+        merged.add(newData.get(newIndex++));
+      }
+    }
+    conversationList.clear();
+    conversationList.addAll(merged);
+    return insertPositions;
+  }
+
+  /** 删除指定位置的会话 */
+  ConversationBean removeAt(int position) {
+    ConversationBean removed = conversationList.remove(position);
+    if (removed != null && conversationMap.get(removed.getConversationId()) == removed) {
+      conversationMap.remove(removed.getConversationId());
+    }
+    return removed;
+  }
+
+  void clear() {
+    conversationList.clear();
+    conversationMap.clear();
+  }
+
+  private int positionOf(ConversationBean target) {
+    int size = conversationList.size();
+    if (comparator != null && size > 0) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (comparator.compare(target, conversationList.get(mid)) > 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      for (int index = low; index < size; index++) {
+        ConversationBean bean = conversationList.get(index);
+        if (bean == target) {
+          return index;
+        }
+        if (comparator.compare(target, bean) != 0) {
+          break;
+        }
+      }
+    }
+    for (int index = 0; index < size; index++) {
+      if (conversationList.get(index) == target) {
+        return index;
+      }
+    }
+    return -1;
+  }
+}
@@ -31,7 +31,8 @@ public class ConversationView extends FrameLayout {
   private RecyclerView recyclerView;
   private ConversationAdapter adapter;
   private ILoadListener loadMoreListener;
-  private final int LOAD_MORE_DIFF = 5;
+  // 距离列表末尾多少条时预加载下一页
+  private int loadMoreThreshold = 30;
 
   public ConversationView(Context context) {
     super(context);
@@ -70,23 +71,38 @@ public class ConversationView extends FrameLayout {
           public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
             super.onScrollStateChanged(recyclerView, newState);
             if (newState == RecyclerView.SCROLL_STATE_IDLE) {
-              int position = layoutManager.findLastVisibleItemPosition();
-              if (loadMoreListener != null
-                  && loadMoreListener.hasMore()
-                  && adapter.getItemCount() < position + LOAD_MORE_DIFF) {
-                ConversationBean last = adapter.getData(adapter.getItemCount() - 1);
-                loadMoreListener.loadMore(last);
-              }
+              checkLoadMore(layoutManager);
             }
           }
 
           @Override
           public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
             super.onScrolled(recyclerView, dx, dy);
+            // 滚动过程中越过阈值即开始预加载，不必等到滚动停止
+            if (dy > 0) {
+              checkLoadMore(layoutManager);
+            }
           }
         });
   }
 
+  private void checkLoadMore(LinearLayoutManager layoutManager) {
+    int position = layoutManager.findLastVisibleItemPosition();
+    if (loadMoreListener != null
+        && loadMoreListener.hasMore()
+        && adapter.getItemCount() < position + loadMoreThreshold) {
+      ConversationBean last = adapter.getData(adapter.getItemCount() - 1);
+      loadMoreListener.loadMore(last);
+    }
+  }
+
+  // 设置预加载阈值，最后一个可见位置距离列表末尾小于该值时加载下一页
+  public void setLoadMoreThreshold(int threshold) {
+    if (threshold > 0) {
+      this.loadMoreThreshold = threshold;
+    }
+  }
+
   // 设置加载更多监听
   public void setLoadMoreListener(ILoadListener listener) {
     this.loadMoreListener = listener;
@@ -38,6 +38,10 @@ android {
     }
 
     sourceSets["main"].res.srcDirs("src/main/res","src/main/res-fun","src/main/res-normal")
+
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -50,6 +54,7 @@ dependencies {
     implementation("com.google.android.material:material:1.11.0")
     implementation("androidx.recyclerview:recyclerview:1.3.2")
     implementation("com.github.bumptech.glide:glide:4.13.1")
+    testImplementation("junit:junit:4.13.2")
 
 }
 
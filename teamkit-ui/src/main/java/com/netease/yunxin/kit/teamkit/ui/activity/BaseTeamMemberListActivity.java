@@ -168,6 +168,9 @@ public abstract class BaseTeamMemberListActivity extends BaseLocalActivity {
     adapter = getMemberListAdapter(teamTypeEnum);
     // 讨论组不展示身份标签
     adapter.setGroupIdentify(!teamGroup);
+    // 搜索过滤完成后更新空页面
+    adapter.setFilterListener(
+        (key, count) -> groupEmpty.setVisibility(count <= 0 ? View.VISIBLE : View.GONE));
     rvMemberList.setAdapter(adapter);
     adapter.setItemClickListener(
         (action, view, data, position) -> {
@@ -194,12 +197,6 @@ public abstract class BaseTeamMemberListActivity extends BaseLocalActivity {
           public void afterTextChanged(Editable s) {
             if (adapter != null) {
               adapter.filter(s);
-              int count = adapter.getItemCount();
-              if (count <= 0) {
-                groupEmpty.setVisibility(View.VISIBLE);
-              } else {
-                groupEmpty.setVisibility(View.GONE);
-              }
             }
 
             if (TextUtils.isEmpty(String.valueOf(s))) {
@@ -247,7 +244,7 @@ public abstract class BaseTeamMemberListActivity extends BaseLocalActivity {
                       resultInfo.getData(), TeamUtils.teamManagerComparator());
                 } else if (resultInfo.getType() == FetchResult.FetchType.Add
                     || resultInfo.getType() == FetchResult.FetchType.Remove) {
-                  viewModel.loadTeamMember();
+                  viewModel.loadTeamMemberPaged();
                 }
                 if (adapter.getItemCount() > 0) {
                   groupEmpty.setVisibility(View.GONE);
@@ -257,6 +254,22 @@ public abstract class BaseTeamMemberListActivity extends BaseLocalActivity {
               }
             });
 
+    // 分页加载的后续群成员观察者
+    viewModel
+        .getTeamMemberPageData()
+        .observe(
+            this,
+            resultInfo -> {
+              if (resultInfo.isSuccess() && resultInfo.getData() != null) {
+                adapter.addData(resultInfo.getData(), TeamUtils.teamManagerComparator());
+                updateCurrentMember(resultInfo.getData());
+                if (adapter.getItemCount() > 0) {
+                  groupEmpty.setVisibility(View.GONE);
+                }
+              }
+            });
+    viewModel.getTeamMemberProgressData().observe(this, this::onTeamMemberLoadProgress);
+
     // 添加或删除群成员观察者
     viewModel
         .getRemoveMembersData()
@@ -269,27 +282,42 @@ public abstract class BaseTeamMemberListActivity extends BaseLocalActivity {
                 adapter.removeData(listResultInfo.getData());
               }
             });
-    viewModel.loadTeamMember();
+    viewModel.loadTeamMemberPaged();
     viewModel.requestTeamData(teamId);
   }
 
+  /**
+   * 群成员分页加载进度，数据为已加载数量，加载中为Loading，全部加载后为Success，子类可展示加载进度
+   *
+   * @param progress 加载进度
+   */
+  protected void onTeamMemberLoadProgress(FetchResult<Integer> progress) {}
+
   public void refreshTeamMemberList(List<TeamMemberWithUserInfo> teamMemberInfoList) {
     Collections.sort(teamMemberInfoList, TeamUtils.teamManagerComparator());
     if (adapter != null) {
       adapter.setDataList(teamMemberInfoList);
     }
     if (teamWithCurrentMember != null) {
-      for (TeamMemberWithUserInfo member : teamMemberInfoList) {
-        if (TextUtils.equals(IMKitClient.account(), member.getAccountId())) {
-          teamWithCurrentMember =
-              new TeamWithCurrentMember(teamWithCurrentMember.getTeam(), member.getTeamMember());
-          break;
-        }
-      }
+      updateCurrentMember(teamMemberInfoList);
       updateItemTag();
     }
   }
 
+  // 成员列表中包含自己时更新当前成员信息
+  private void updateCurrentMember(List<TeamMemberWithUserInfo> memberList) {
+    if (teamWithCurrentMember == null) {
+      return;
+    }
+    for (TeamMemberWithUserInfo member : memberList) {
+      if (TextUtils.equals(IMKitClient.account(), member.getAccountId())) {
+        teamWithCurrentMember =
+            new TeamWithCurrentMember(teamWithCurrentMember.getTeam(), member.getTeamMember());
+        break;
+      }
+    }
+  }
+
   // 显示删除确认对话框
   private void showDeleteConfirmDialog(List<String> accounts) {
     CommonChoiceDialog dialog = new CommonChoiceDialog();
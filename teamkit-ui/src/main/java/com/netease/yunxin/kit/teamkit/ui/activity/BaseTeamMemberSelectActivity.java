@@ -131,6 +131,9 @@ public abstract class BaseTeamMemberSelectActivity extends BaseLocalActivity {
         new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false));
     adapter = getMemberListAdapter(teamTypeEnum);
     adapter.setGroupIdentify(false);
+    // 搜索过滤完成后更新空页面
+    adapter.setFilterListener(
+        (key, count) -> groupEmpty.setVisibility(count <= 0 ? View.VISIBLE : View.GONE));
     rvMemberList.setAdapter(adapter);
     ivClear.setOnClickListener(v -> etSearch.setText(null));
     tvSure.setOnClickListener(
@@ -177,12 +180,6 @@ public abstract class BaseTeamMemberSelectActivity extends BaseLocalActivity {
           public void afterTextChanged(Editable s) {
             if (adapter != null) {
               adapter.filter(s);
-              int count = adapter.getItemCount();
-              if (count <= 0) {
-                groupEmpty.setVisibility(View.VISIBLE);
-              } else {
-                groupEmpty.setVisibility(View.GONE);
-              }
             }
 
             if (TextUtils.isEmpty(String.valueOf(s))) {
@@ -215,6 +212,24 @@ public abstract class BaseTeamMemberSelectActivity extends BaseLocalActivity {
                 }
               }
             });
+    // 分页加载的后续群成员
+    viewModel
+        .getTeamMemberPageData()
+        .observe(
+            this,
+            resultInfo -> {
+              if (resultInfo.isSuccess() && resultInfo.getData() != null) {
+                List<TeamMemberWithUserInfo> memberList =
+                    new ArrayList<>(
+                        TeamUtils.filterMemberListFromInfoList(
+                            resultInfo.getData(), filterAccounts));
+                filterAIUser(memberList);
+                adapter.addData(memberList, TeamUtils.teamManagerComparator());
+                if (adapter.getItemCount() > 0) {
+                  groupEmpty.setVisibility(View.GONE);
+                }
+              }
+            });
     viewModel
         .getRemoveMembersData()
         .observe(
@@ -225,7 +240,7 @@ public abstract class BaseTeamMemberSelectActivity extends BaseLocalActivity {
                 teamMemberUpdate();
               }
             });
-    viewModel.loadTeamMember();
+    viewModel.loadTeamMemberPaged();
   }
 
   protected void loadTeamMembers(List<TeamMemberWithUserInfo> teamMemberList) {
@@ -8,15 +8,20 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.text.TextUtils;
 import android.view.View;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewbinding.ViewBinding;
 import com.netease.nimlib.sdk.v2.team.enums.V2NIMTeamMemberRole;
 import com.netease.nimlib.sdk.v2.team.enums.V2NIMTeamType;
 import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
-import com.netease.yunxin.kit.teamkit.ui.utils.FilterUtils;
+import com.netease.yunxin.kit.teamkit.ui.utils.TeamMemberFilter;
+import com.netease.yunxin.kit.teamkit.ui.utils.TeamMemberOnlineCache;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +37,8 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
   public static final String ACTION_REMOVE = "member_remove";
   public static final String ACTION_CHECK = "member_check";
   public static final String ACTION_UNCHECK = "member_uncheck";
+  // 可见区域前后额外订阅在线状态的条数
+  private static final int ONLINE_WINDOW_MARGIN = 20;
   protected final V2NIMTeamType teamTypeEnum;
   protected List<TeamMemberWithUserInfo> backupTotalData;
   // 列表选择框选中的数据
@@ -52,6 +59,74 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
   // 是否展示在线状态
   protected boolean showOnlineState = false;
 
+  // 账号对应的列表位置
+  protected final Map<String, Integer> positionIndex = new HashMap<>();
+
+  // 列表数据变化时递增，用于判断过滤结果的差异是否仍然适用
+  private int dataVersion;
+
+  // 当前过滤关键字
+  protected String filterKey;
+
+  protected final TeamMemberFilter memberFilter = new TeamMemberFilter();
+
+  // 过滤完成监听
+  protected FilterListener filterListener;
+
+  // 在线状态订阅窗口的上报方标识
+  private final String onlineWindowOwner =
+      "TeamMemberList@" + Integer.toHexString(System.identityHashCode(this));
+
+  private RecyclerView attachedRecyclerView;
+
+  // 只刷新在线状态变化的成员
+  private final TeamMemberOnlineCache.OnlineStateListener onlineStateListener =
+      accounts -> {
+        for (String account : accounts) {
+          Integer position = positionIndex.get(account);
+          if (position != null) {
+            notifyItemChanged(position);
+          }
+        }
+      };
+
+  // 滚动停止后上报可见成员
+  private final RecyclerView.OnScrollListener onlineScrollListener =
+      new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+          if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            reportVisibleAccounts();
+          }
+        }
+      };
+
+  // 列表增删后重新上报可见成员，在线状态刷新不触发
+  private final RecyclerView.AdapterDataObserver onlineDataObserver =
+      new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+          postReportVisibleAccounts();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+          postReportVisibleAccounts();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+          postReportVisibleAccounts();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+          postReportVisibleAccounts();
+        }
+      };
+
+  private final Runnable reportVisibleRunnable = this::reportVisibleAccounts;
+
   public BaseTeamMemberListAdapter(
       Context context, V2NIMTeamType teamTypeEnum, Class<R> viewBinding) {
     super(context, viewBinding);
@@ -80,7 +155,90 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
   }
 
   public void showOnlineState(boolean show) {
+    if (this.showOnlineState == show) {
+      return;
+    }
     this.showOnlineState = show;
+    if (attachedRecyclerView != null) {
+      if (show) {
+        startOnlineTracking();
+      } else {
+        stopOnlineTracking();
+      }
+    }
+  }
+
+  @Override
+  public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+    super.onAttachedToRecyclerView(recyclerView);
+    attachedRecyclerView = recyclerView;
+    if (showOnlineState) {
+      startOnlineTracking();
+    }
+  }
+
+  @Override
+  public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+    super.onDetachedFromRecyclerView(recyclerView);
+    if (showOnlineState) {
+      stopOnlineTracking();
+    }
+    attachedRecyclerView = null;
+  }
+
+  // 开始跟踪可见成员的在线状态
+  private void startOnlineTracking() {
+    TeamMemberOnlineCache.addOnlineStateListener(onlineStateListener);
+    attachedRecyclerView.addOnScrollListener(onlineScrollListener);
+    registerAdapterDataObserver(onlineDataObserver);
+    postReportVisibleAccounts();
+  }
+
+  private void stopOnlineTracking() {
+    TeamMemberOnlineCache.removeOnlineStateListener(onlineStateListener);
+    attachedRecyclerView.removeOnScrollListener(onlineScrollListener);
+    attachedRecyclerView.removeCallbacks(reportVisibleRunnable);
+    unregisterAdapterDataObserver(onlineDataObserver);
+    TeamMemberOnlineCache.removeVisibleAccounts(onlineWindowOwner);
+  }
+
+  // 等待布局完成后上报
+  private void postReportVisibleAccounts() {
+    if (attachedRecyclerView != null) {
+      attachedRecyclerView.removeCallbacks(reportVisibleRunnable);
+      attachedRecyclerView.post(reportVisibleRunnable);
+    }
+  }
+
+  // 上报可见区域及前后若干条的成员，用于订阅在线状态
+  private void reportVisibleAccounts() {
+    if (attachedRecyclerView == null
+        || !(attachedRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+      return;
+    }
+    LinearLayoutManager layoutManager =
+        (LinearLayoutManager) attachedRecyclerView.getLayoutManager();
+    int first = layoutManager.findFirstVisibleItemPosition();
+    int last = layoutManager.findLastVisibleItemPosition();
+    if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+      first = 0;
+      last = 0;
+    }
+    List<String> accounts = new ArrayList<>();
+    // 可见的成员优先
+    addAccounts(accounts, first, last);
+    addAccounts(accounts, last + 1, last + ONLINE_WINDOW_MARGIN);
+    addAccounts(accounts, first - ONLINE_WINDOW_MARGIN, first - 1);
+    TeamMemberOnlineCache.setVisibleAccounts(onlineWindowOwner, accounts);
+  }
+
+  private void addAccounts(List<String> accounts, int start, int end) {
+    for (int index = Math.max(0, start); index <= end && index < dataSource.size(); index++) {
+      TeamMemberWithUserInfo member = dataSource.get(index);
+      if (member != null) {
+        accounts.add(member.getAccountId());
+      }
+    }
   }
 
   // 获取选择框选中的数据
@@ -97,49 +255,91 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
     super.setDataList(data);
     backupTotalData = new ArrayList<>(data);
     selectData.clear();
+    onDataSourceReset();
   }
 
   @Override
   public void addData(
       List<TeamMemberWithUserInfo> dataList, Comparator<TeamMemberWithUserInfo> comparator) {
-    super.addData(dataList, comparator);
+    if (dataList == null || dataList.isEmpty()) {
+      return;
+    }
     if (backupTotalData == null) {
       backupTotalData = new ArrayList<>();
     }
-    backupTotalData.addAll(dataList);
+    Set<String> backupAccounts = new HashSet<>();
+    for (TeamMemberWithUserInfo member : backupTotalData) {
+      if (member != null) {
+        backupAccounts.add(member.getAccountId());
+      }
+    }
+    for (TeamMemberWithUserInfo user : dataList) {
+      if (user != null && backupAccounts.add(user.getAccountId())) {
+        backupTotalData.add(user);
+      }
+    }
+    if (!TextUtils.isEmpty(filterKey)) {
+      filter(filterKey);
+      return;
+    }
+    dataVersion++;
+    for (TeamMemberWithUserInfo user : dataList) {
+      if (user == null || positionIndex.containsKey(user.getAccountId())) {
+        continue;
+      }
+      int position = comparator == null ? dataSource.size() : findInsertPosition(user, comparator);
+      dataSource.add(position, user);
+      reindexFrom(position);
+      notifyItemInserted(position);
+    }
   }
 
   public void updateData(List<TeamMemberWithUserInfo> data) {
     if (data == null) {
       return;
     }
+    dataVersion++;
     for (TeamMemberWithUserInfo user : data) {
-      String userAccount = user.getAccountId();
-      for (int i = 0; i < dataSource.size(); i++) {
-        if (dataSource.get(i).getAccountId().equals(userAccount)) {
-          dataSource.set(i, user);
-          notifyItemChanged(i);
-        }
+      Integer position = positionIndex.get(user.getAccountId());
+      if (position != null) {
+        dataSource.set(position, user);
+        notifyItemChanged(position);
       }
     }
+    replaceBackupData(data);
   }
 
+  /**
+   * 更新数据并按排序规则移动到新位置，搜索过滤时保持搜索结果的顺序
+   *
+   * @param data 更新的数据
+   * @param comparator 列表的排序规则
+   */
   public void updateDataWithComparator(
       List<TeamMemberWithUserInfo> data, Comparator<TeamMemberWithUserInfo> comparator) {
-    if (comparator == null) {
+    if (comparator == null || !TextUtils.isEmpty(filterKey)) {
       this.updateData(data);
-    } else {
-      for (TeamMemberWithUserInfo user : data) {
-        String userAccount = user.getAccountId();
-        for (int i = 0; i < dataSource.size(); i++) {
-          if (dataSource.get(i).getAccountId().equals(userAccount)) {
-            dataSource.set(i, user);
-          }
-        }
+      return;
+    }
+    if (data == null) {
+      return;
+    }
+    dataVersion++;
+    for (TeamMemberWithUserInfo user : data) {
+      Integer oldPosition = positionIndex.get(user.getAccountId());
+      if (oldPosition == null) {
+        continue;
       }
-      Collections.sort(dataSource, comparator);
-      notifyDataSetChanged();
+      dataSource.remove((int) oldPosition);
+      int newPosition = findInsertPosition(user, comparator);
+      dataSource.add(newPosition, user);
+      reindexFrom(Math.min(oldPosition, newPosition));
+      if (oldPosition != newPosition) {
+        notifyItemMoved(oldPosition, newPosition);
+      }
+      notifyItemChanged(newPosition);
     }
+    replaceBackupData(data);
   }
 
   @Override
@@ -147,22 +347,27 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
     if (accountList == null || accountList.isEmpty()) {
       return;
     }
+    dataVersion++;
     for (String account : accountList) {
-      TeamMemberWithUserInfo removeData = null;
-      int removeIndex = -1;
-      for (int index = 0; index < dataSource.size(); index++) {
-        if (dataSource.get(index).getAccountId().equals(account)) {
-          removeData = dataSource.get(index);
-          removeIndex = index;
-          break;
-        }
-      }
-      if (removeData != null && removeIndex != -1) {
-        dataSource.remove(removeData);
-        selectData.remove(account);
+      selectData.remove(account);
+      Integer removeIndex = positionIndex.get(account);
+      if (removeIndex != null) {
+        dataSource.remove((int) removeIndex);
+        positionIndex.remove(account);
+        reindexFrom(removeIndex);
         notifyItemRemoved(removeIndex);
       }
     }
+    if (backupTotalData != null) {
+      Set<String> removeAccounts = new HashSet<>(accountList);
+      Iterator<TeamMemberWithUserInfo> iterator = backupTotalData.iterator();
+      while (iterator.hasNext()) {
+        TeamMemberWithUserInfo member = iterator.next();
+        if (member != null && removeAccounts.contains(member.getAccountId())) {
+          iterator.remove();
+        }
+      }
+    }
   }
 
   /**
@@ -186,55 +391,122 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
     }
     super.setDataList(data);
     backupTotalData = new ArrayList<>(data);
+    onDataSourceReset();
   }
 
+  public void setFilterListener(FilterListener filterListener) {
+    this.filterListener = filterListener;
+  }
+
+  /**
+   * 搜索过滤，在后台线程匹配名称、拼音、昵称和账号，结果通过差异刷新
+   *
+   * <p>过滤是异步的，完成后回调 {@link FilterListener}
+   *
+   * @param sequence 关键字，为空时展示全部数据
+   */
   public void filter(CharSequence sequence) {
-    if (TextUtils.isEmpty(sequence)) {
-      updateDataAndNotify(backupTotalData);
+    filterKey = sequence == null ? null : sequence.toString();
+    if (TextUtils.isEmpty(filterKey)) {
+      memberFilter.cancel();
+      if (backupTotalData != null) {
+        updateDataAndNotify(backupTotalData);
+      }
+      notifyFilterResult();
       return;
     }
-
-    List<TeamMemberWithUserInfo> filterResult =
-        FilterUtils.filter(
-            backupTotalData,
-            userInfoWithTeam -> {
-              boolean nameContains = userInfoWithTeam.getName().contains(sequence);
-              if (nameContains) {
-                userInfoWithTeam.setSearchPoint(userInfoWithTeam.getName().length());
-                return true;
-              }
-
-              boolean accIdContains = userInfoWithTeam.getAccountId().contains(sequence);
-              if (accIdContains) {
-                userInfoWithTeam.setSearchPoint(100 + userInfoWithTeam.getAccountId().length());
-                return true;
-              }
-              return false;
-            });
-    Collections.sort(
-        filterResult,
-        (o1, o2) -> {
-          if (o1 == o2) {
-            return 0;
-          }
-          if (o1 == null) {
-            return 1;
+    int filterVersion = dataVersion;
+    memberFilter.filter(
+        backupTotalData,
+        dataSource,
+        filterKey,
+        (key, result, diffResult) -> {
+          if (filterVersion != dataVersion) {
+            // 过滤期间数据已变化，结果和差异都已过时，按当前数据重新过滤
+            filter(filterKey);
+            return;
           }
-          if (o2 == null) {
-            return -1;
-          }
-          return o1.getSearchPoint() - o2.getSearchPoint();
+          dataSource.clear();
+          dataSource.addAll(result);
+          dataVersion++;
+          reindexFrom(0);
+          diffResult.dispatchUpdatesTo(this);
+          notifyFilterResult();
         });
-    updateDataAndNotify(filterResult);
   }
 
   @SuppressLint("NotifyDataSetChanged")
   protected void updateDataAndNotify(List<TeamMemberWithUserInfo> list) {
     dataSource.clear();
     dataSource.addAll(list);
+    dataVersion++;
+    reindexFrom(0);
     notifyDataSetChanged();
   }
 
+  // 数据整体替换后重建索引，搜索中则重新过滤
+  private void onDataSourceReset() {
+    dataVersion++;
+    reindexFrom(0);
+    if (!TextUtils.isEmpty(filterKey)) {
+      filter(filterKey);
+    }
+  }
+
+  // 更新从start开始的账号位置索引
+  private void reindexFrom(int start) {
+    if (start == 0) {
+      positionIndex.clear();
+    }
+    for (int index = start; index < dataSource.size(); index++) {
+      TeamMemberWithUserInfo member = dataSource.get(index);
+      if (member != null) {
+        positionIndex.put(member.getAccountId(), index);
+      }
+    }
+  }
+
+  // 在已排序的列表中二分查找插入位置，相同排序的数据插入到最后
+  private int findInsertPosition(
+      TeamMemberWithUserInfo user, Comparator<TeamMemberWithUserInfo> comparator) {
+    int low = 0;
+    int high = dataSource.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compare(user, dataSource.get(mid)) >= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  // 同步更新全部数据中的对象，保证之后的过滤使用最新数据
+  private void replaceBackupData(List<TeamMemberWithUserInfo> data) {
+    if (backupTotalData == null || backupTotalData.isEmpty()) {
+      return;
+    }
+    Map<String, TeamMemberWithUserInfo> updateMap = new HashMap<>();
+    for (TeamMemberWithUserInfo user : data) {
+      updateMap.put(user.getAccountId(), user);
+    }
+    for (int index = 0; index < backupTotalData.size(); index++) {
+      TeamMemberWithUserInfo member = backupTotalData.get(index);
+      TeamMemberWithUserInfo update =
+          member == null ? null : updateMap.get(member.getAccountId());
+      if (update != null) {
+        backupTotalData.set(index, update);
+      }
+    }
+  }
+
+  private void notifyFilterResult() {
+    if (filterListener != null) {
+      filterListener.onFilterResult(filterKey, getItemCount());
+    }
+  }
+
   // 是否展示身份标签（群主、管理员）
   protected boolean needShowRemoveTag(TeamMemberWithUserInfo data) {
     if (showRemoveTagTeamMemberType == null) {
@@ -253,4 +525,14 @@ public class BaseTeamMemberListAdapter<R extends ViewBinding>
   public static interface ItemClickListener {
     void onActionClick(String action, View view, TeamMemberWithUserInfo data, int position);
   }
+
+  public interface FilterListener {
+    /**
+     * 过滤完成，列表已刷新
+     *
+     * @param key 过滤关键字
+     * @param count 过滤后的数量
+     */
+    void onFilterResult(String key, int count);
+  }
 }
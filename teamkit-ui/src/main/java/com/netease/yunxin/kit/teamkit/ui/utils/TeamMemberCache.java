@@ -194,7 +194,7 @@ public class TeamMemberCache {
       return;
     }
     clear();
-    loadTeamMemberList(cacheTeamId);
+    loadTeamMemberList(teamId);
     TeamRepo.addTeamListener(teamListener);
     ContactRepo.addContactListener(friendListener);
     IMKitClient.addLoginDetailListener(loginDetailListener);
@@ -0,0 +1,235 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.teamkit.ui.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import androidx.recyclerview.widget.DiffUtil;
+import com.github.promeg.pinyinhelper.Pinyin;
+import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 群成员搜索过滤，在后台线程匹配并计算与当前列表的差异，结果在主线程回调
+ *
+ * <p>匹配群成员展示名称、名称的全拼和首字母、群昵称、用户昵称以及账号，不区分大小写。新的过滤会取消未完成的过滤。结果按命中字段排序：展示名称、拼音、昵称、账号，同一字段按长度从短到长。
+ */
+public class TeamMemberFilter {
+
+  // 每处理多少条检查一次是否已取消
+  private static final int CANCEL_CHECK_INTERVAL = 256;
+
+  // 不同命中字段的排序分段
+  private static final int POINT_NAME = 0;
+  private static final int POINT_PINYIN = 1000;
+  private static final int POINT_NICK = 2000;
+  private static final int POINT_ACCOUNT = 3000;
+
+  private static final int PINYIN_CACHE_SIZE = 4096;
+
+  private static final Executor filterExecutor = Executors.newSingleThreadExecutor();
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // 名称 -> {全拼, 首字母}，均为小写
+  private static final LruCache<String, String[]> pinyinCache = new LruCache<>(PINYIN_CACHE_SIZE);
+
+  // 每次过滤或取消时递增，旧的过滤发现不一致时放弃
+  private volatile int generation;
+
+  /** 过滤结果回调，主线程 */
+  public interface FilterCallback {
+    /**
+     * @param key 过滤关键字
+     * @param result 过滤结果
+     * @param diffResult 过滤前列表到过滤结果的差异
+     */
+    void onResult(
+        @NonNull String key,
+        @NonNull List<TeamMemberWithUserInfo> result,
+        @NonNull DiffUtil.DiffResult diffResult);
+  }
+
+  /**
+   * 过滤群成员，取消未完成的过滤
+   *
+   * @param source 全部群成员
+   * @param current 当前展示的列表，用于计算差异
+   * @param key 过滤关键字
+   * @param callback 主线程回调，被取消的过滤不回调
+   */
+  public void filter(
+      @Nullable List<TeamMemberWithUserInfo> source,
+      @NonNull List<TeamMemberWithUserInfo> current,
+      @NonNull String key,
+      @NonNull FilterCallback callback) {
+    int filterGeneration = ++generation;
+    List<TeamMemberWithUserInfo> sourceCopy =
+        source == null ? Collections.emptyList() : new ArrayList<>(source);
+    List<TeamMemberWithUserInfo> currentCopy = new ArrayList<>(current);
+    String lowerKey = key.toLowerCase(Locale.ROOT);
+    filterExecutor.execute(
+        () -> {
+          List<TeamMemberWithUserInfo> result = match(sourceCopy, lowerKey, filterGeneration);
+          if (result == null) {
+            return;
+          }
+          DiffUtil.DiffResult diffResult =
+              DiffUtil.calculateDiff(new MemberDiffCallback(currentCopy, result), true);
+          if (generation != filterGeneration) {
+            return;
+          }
+          mainHandler.post(
+              () -> {
+                if (generation == filterGeneration) {
+                  callback.onResult(key, result, diffResult);
+                }
+              });
+        });
+  }
+
+  /** 取消未完成的过滤 */
+  public void cancel() {
+    generation++;
+  }
+
+  // 后台线程执行，被取消时返回null
+  @Nullable
+  private List<TeamMemberWithUserInfo> match(
+      List<TeamMemberWithUserInfo> source, String key, int filterGeneration) {
+    List<TeamMemberWithUserInfo> matched = new ArrayList<>();
+    List<Integer> points = new ArrayList<>();
+    for (int index = 0; index < source.size(); index++) {
+      if (index % CANCEL_CHECK_INTERVAL == 0 && generation != filterGeneration) {
+        return null;
+      }
+      TeamMemberWithUserInfo member = source.get(index);
+      if (member == null) {
+        continue;
+      }
+      int point = matchPoint(member, key);
+      if (point >= 0) {
+        matched.add(member);
+        points.add(point);
+      }
+    }
+    Integer[] order = new Integer[matched.size()];
+    for (int index = 0; index < order.length; index++) {
+      order[index] = index;
+    }
+    // 稳定排序，同分时保持原有顺序
+    Arrays.sort(order, (o1, o2) -> Integer.compare(points.get(o1), points.get(o2)));
+    List<TeamMemberWithUserInfo> result = new ArrayList<>(order.length);
+    for (Integer index : order) {
+      result.add(matched.get(index));
+    }
+    return result;
+  }
+
+  // 命中时返回排序分值，越小越靠前，未命中返回-1
+  private static int matchPoint(TeamMemberWithUserInfo member, String key) {
+    String name = member.getName();
+    if (!TextUtils.isEmpty(name)) {
+      if (name.toLowerCase(Locale.ROOT).contains(key)) {
+        return POINT_NAME + name.length();
+      }
+      String[] pinyin = getPinyin(name);
+      if (pinyin != null && (pinyin[1].contains(key) || pinyin[0].contains(key))) {
+        return POINT_PINYIN + name.length();
+      }
+    }
+    String teamNick =
+        member.getTeamMember() == null ? null : member.getTeamMember().getTeamNick();
+    if (!TextUtils.isEmpty(teamNick) && teamNick.toLowerCase(Locale.ROOT).contains(key)) {
+      return POINT_NICK + teamNick.length();
+    }
+    String userName = member.getUserInfo() == null ? null : member.getUserInfo().getName();
+    if (!TextUtils.isEmpty(userName) && userName.toLowerCase(Locale.ROOT).contains(key)) {
+      return POINT_NICK + userName.length();
+    }
+    String account = member.getAccountId();
+    if (!TextUtils.isEmpty(account) && account.toLowerCase(Locale.ROOT).contains(key)) {
+      return POINT_ACCOUNT + account.length();
+    }
+    return -1;
+  }
+
+  // 名称不含汉字时返回null
+  @Nullable
+  private static String[] getPinyin(String name) {
+    String[] cached = pinyinCache.get(name);
+    if (cached != null) {
+      return cached.length == 0 ? null : cached;
+    }
+    boolean hasChinese = false;
+    StringBuilder full = new StringBuilder(name.length() * 3);
+    StringBuilder initials = new StringBuilder(name.length());
+    for (int index = 0; index < name.length(); index++) {
+      char c = name.charAt(index);
+      if (Pinyin.isChinese(c)) {
+        hasChinese = true;
+        String piece = Pinyin.toPinyin(c).toLowerCase(Locale.ROOT);
+        full.append(piece);
+        if (!piece.isEmpty()) {
+          initials.append(piece.charAt(0));
+        }
+      } else {
+        char lower = Character.toLowerCase(c);
+        full.append(lower);
+        initials.append(lower);
+      }
+    }
+    String[] pinyin =
+        hasChinese ? new String[] {full.toString(), initials.toString()} : new String[0];
+    pinyinCache.put(name, pinyin);
+    return hasChinese ? pinyin : null;
+  }
+
+  // 按账号判断是否同一成员，对象未替换时内容不变
+  private static class MemberDiffCallback extends DiffUtil.Callback {
+    private final List<TeamMemberWithUserInfo> oldList;
+    private final List<TeamMemberWithUserInfo> newList;
+
+    MemberDiffCallback(
+        List<TeamMemberWithUserInfo> oldList, List<TeamMemberWithUserInfo> newList) {
+      this.oldList = oldList;
+      this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      TeamMemberWithUserInfo oldItem = oldList.get(oldItemPosition);
+      TeamMemberWithUserInfo newItem = newList.get(newItemPosition);
+      return oldItem != null
+          && newItem != null
+          && TextUtils.equals(oldItem.getAccountId(), newItem.getAccountId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return oldList.get(oldItemPosition) == newList.get(newItemPosition);
+    }
+  }
+}
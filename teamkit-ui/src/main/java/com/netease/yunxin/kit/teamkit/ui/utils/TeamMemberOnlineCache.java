@@ -4,26 +4,424 @@
 
 package com.netease.yunxin.kit.teamkit.ui.utils;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.LongSupplier;
 
+/**
+ * 群成员在线状态缓存，任意线程可读写
+ *
+ * <p>在线状态变化先进入待处理队列，{@link #BATCH_DELAY_MILLIS} 内的变化在主线程合并处理，只通知状态真正变化的账号。本地调用 {@link
+ * #addOnlineAccount(String)} 和 {@link #removeOnlineAccount(String)} 立即生效，只有通知合并处理。每个账号记录更新时间，早于已记录时间的事件丢弃。
+ *
+ * <p>在线状态事件只在变化时推送，只有设置了 {@link SubscribeDelegate} 时，订阅窗口外的账号通过 {@link #updateOnlineState} 设置的状态超过 {@link
+ * #setOnlineTtl(long)} 未更新视为离线；订阅中的账号和本地设置的状态不过期，直到被更新或移除。
+ *
+ * <p>订阅窗口：各列表通过 {@link #setVisibleAccounts(String, Collection)} 上报当前可见的账号，合并后最多订阅 {@link
+ * #MAX_SUBSCRIBE_SIZE} 个，窗口变化时通过 {@link SubscribeDelegate} 订阅新增的账号、取消移出的账号，取消订阅的账号不再保留在线状态。
+ */
 public class TeamMemberOnlineCache {
 
-  private static final Set<String> onlineAccounts = new HashSet<>();
+  // 状态变化合并处理的等待时间
+  public static final long BATCH_DELAY_MILLIS = 100;
 
+  // 默认在线状态有效时间
+  public static final long DEFAULT_ONLINE_TTL_MILLIS = 5 * 60 * 1000L;
+
+  // 订阅窗口最大账号数
+  public static final int MAX_SUBSCRIBE_SIZE = 200;
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // 账号 -> 在线状态
+  private static final Map<String, OnlineState> states = new ConcurrentHashMap<>();
+
+  // 待处理的状态变化，同一账号只保留最新的一次。同时作为修改 states 的锁
+  private static final Map<String, OnlineState> pendingStates = new HashMap<>();
+
+  // 已立即生效、等待合并通知的账号
+  private static final Set<String> pendingChanged = new HashSet<>();
+
+  private static final Set<OnlineStateListener> listeners = new CopyOnWriteArraySet<>();
+
+  private static volatile long onlineTtl = DEFAULT_ONLINE_TTL_MILLIS;
+
+  private static boolean flushScheduled;
+
+  // 以下窗口相关字段只在主线程修改
+  // 上报方 -> 可见账号
+  private static final Map<String, Set<String>> visibleAccounts = new LinkedHashMap<>();
+
+  // 当前已订阅的账号，任意线程可读
+  private static final Set<String> subscribedAccounts =
+      Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  private static volatile SubscribeDelegate subscribeDelegate;
+
+  // 时钟，单元测试中替换
+  static LongSupplier clock = SystemClock::elapsedRealtime;
+
+  private static final Runnable flushRunnable = TeamMemberOnlineCache::flush;
+
+  private static final Runnable expireRunnable = TeamMemberOnlineCache::expire;
+
+  private static final Runnable windowRunnable = TeamMemberOnlineCache::applyWindow;
+
+  /** 在线状态变化监听，主线程回调 */
+  public interface OnlineStateListener {
+    /**
+     * @param accounts 在线状态变化的账号
+     */
+    void onOnlineStateChanged(@NonNull Set<String> accounts);
+  }
+
+  /** 订阅代理，由业务层调用在线状态订阅接口，订阅结果通过 {@link #updateOnlineState} 更新，主线程回调 */
+  public interface SubscribeDelegate {
+    void subscribe(@NonNull Set<String> accounts);
+
+    void unsubscribe(@NonNull Set<String> accounts);
+  }
+
+  private static final class OnlineState {
+    final boolean online;
+    // 状态产生的时间
+    final long timestamp;
+    // 本地收到的时间，用于判断是否过期
+    final long receiveTime;
+    // 本地设置的状态，不过期
+    final boolean local;
+
+    OnlineState(boolean online, long timestamp, long receiveTime, boolean local) {
+      this.online = online;
+      this.timestamp = timestamp;
+      this.receiveTime = receiveTime;
+      this.local = local;
+    }
+  }
+
+  /**
+   * 本地设置账号在线，{@link #isOnline(String)} 立即生效，监听合并后回调
+   *
+   * @param account 账号
+   */
   public static void addOnlineAccount(String account) {
-    onlineAccounts.add(account);
+    applyLocalState(account, true);
   }
 
+  /**
+   * 本地设置账号离线，{@link #isOnline(String)} 立即生效，监听合并后回调
+   *
+   * @param account 账号
+   */
   public static void removeOnlineAccount(String account) {
-    onlineAccounts.remove(account);
+    applyLocalState(account, false);
+  }
+
+  private static void applyLocalState(String account, boolean online) {
+    if (TextUtils.isEmpty(account)) {
+      return;
+    }
+    long now = elapsedRealtime();
+    OnlineState state = new OnlineState(online, System.currentTimeMillis(), now, true);
+    synchronized (pendingStates) {
+      if (applyState(account, state, now)) {
+        pendingChanged.add(account);
+      }
+      scheduleFlushLocked();
+    }
+  }
+
+  /**
+   * 更新在线状态，合并后在主线程处理
+   *
+   * @param account 账号
+   * @param online 是否在线
+   * @param timestamp 状态产生的时间，早于已记录的时间时丢弃
+   */
+  public static void updateOnlineState(String account, boolean online, long timestamp) {
+    if (TextUtils.isEmpty(account)) {
+      return;
+    }
+    synchronized (pendingStates) {
+      OnlineState pending = pendingStates.get(account);
+      if (pending == null || pending.timestamp <= timestamp) {
+        pendingStates.put(
+            account, new OnlineState(online, timestamp, elapsedRealtime(), false));
+      }
+      scheduleFlushLocked();
+    }
+  }
+
+  // 持有 pendingStates 锁时调用
+  private static void scheduleFlushLocked() {
+    if (!flushScheduled) {
+      flushScheduled = true;
+      mainHandler.postDelayed(flushRunnable, BATCH_DELAY_MILLIS);
+    }
+  }
+
+  /**
+   * 批量更新在线状态
+   *
+   * @param onlineStates 账号 -> 是否在线
+   * @param timestamp 状态产生的时间
+   */
+  public static void updateOnlineStates(Map<String, Boolean> onlineStates, long timestamp) {
+    if (onlineStates == null) {
+      return;
+    }
+    for (Map.Entry<String, Boolean> entry : onlineStates.entrySet()) {
+      updateOnlineState(entry.getKey(), Boolean.TRUE.equals(entry.getValue()), timestamp);
+    }
   }
 
   public static boolean isOnline(String account) {
-    return onlineAccounts.contains(account);
+    OnlineState state = account == null ? null : states.get(account);
+    return state != null
+        && state.online
+        && !isExpired(account, state, elapsedRealtime());
+  }
+
+  /**
+   * 设置订阅窗口外账号的在线状态有效时间，超过该时间未更新视为离线，只在设置了订阅代理时生效
+   *
+   * @param ttlMillis 有效时间，毫秒
+   */
+  public static void setOnlineTtl(long ttlMillis) {
+    if (ttlMillis > 0) {
+      onlineTtl = ttlMillis;
+    }
+  }
+
+  public static void addOnlineStateListener(OnlineStateListener listener) {
+    listeners.add(listener);
+  }
+
+  public static void removeOnlineStateListener(OnlineStateListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * 设置订阅代理，未设置时只记录订阅窗口
+   *
+   * @param delegate 订阅代理
+   */
+  public static void setSubscribeDelegate(@Nullable SubscribeDelegate delegate) {
+    runOnMain(
+        () -> {
+          subscribeDelegate = delegate;
+          if (delegate != null && !subscribedAccounts.isEmpty()) {
+            delegate.subscribe(new HashSet<>(subscribedAccounts));
+          }
+          scheduleExpire(elapsedRealtime());
+        });
+  }
+
+  /**
+   * 上报列表当前可见的账号，合并处理后更新订阅窗口
+   *
+   * @param owner 上报方标识，同一上报方的新上报替换旧的
+   * @param accounts 可见账号，按优先级排列，超出窗口大小的部分不订阅
+   */
+  public static void setVisibleAccounts(
+      @NonNull String owner, @Nullable Collection<String> accounts) {
+    Set<String> accountSet =
+        accounts == null ? Collections.emptySet() : new LinkedHashSet<>(accounts);
+    runOnMain(
+        () -> {
+          if (accountSet.isEmpty()) {
+            visibleAccounts.remove(owner);
+          } else {
+            visibleAccounts.put(owner, accountSet);
+          }
+          mainHandler.removeCallbacks(windowRunnable);
+          mainHandler.postDelayed(windowRunnable, BATCH_DELAY_MILLIS);
+        });
+  }
+
+  /**
+   * 移除上报方的可见账号，列表销毁时调用
+   *
+   * @param owner 上报方标识
+   */
+  public static void removeVisibleAccounts(@NonNull String owner) {
+    setVisibleAccounts(owner, null);
   }
 
   public static void clear() {
-    onlineAccounts.clear();
+    synchronized (pendingStates) {
+      pendingStates.clear();
+      pendingChanged.clear();
+    }
+    runOnMain(
+        () -> {
+          Set<String> changed = new HashSet<>();
+          synchronized (pendingStates) {
+            for (Map.Entry<String, OnlineState> entry : states.entrySet()) {
+              if (entry.getValue().online) {
+                changed.add(entry.getKey());
+              }
+            }
+            states.clear();
+          }
+          mainHandler.removeCallbacks(expireRunnable);
+          notifyChanged(changed);
+        });
+  }
+
+  // 主线程执行，处理待处理的状态变化
+  private static void flush() {
+    long now = elapsedRealtime();
+    Set<String> changed;
+    synchronized (pendingStates) {
+      flushScheduled = false;
+      changed = new HashSet<>(pendingChanged);
+      pendingChanged.clear();
+      for (Map.Entry<String, OnlineState> entry : pendingStates.entrySet()) {
+        if (applyState(entry.getKey(), entry.getValue(), now)) {
+          changed.add(entry.getKey());
+        }
+      }
+      pendingStates.clear();
+    }
+    scheduleExpire(now);
+    notifyChanged(changed);
+  }
+
+  // 持有 pendingStates 锁时调用，写入新状态，返回是否在线状态发生变化
+  private static boolean applyState(String account, OnlineState newState, long now) {
+    OnlineState oldState = states.get(account);
+    if (oldState != null && oldState.timestamp > newState.timestamp) {
+      return false;
+    }
+    boolean wasOnline = oldState != null && oldState.online && !isExpired(account, oldState, now);
+    // 离线状态同样保留到过期，用于丢弃之后到达的旧事件
+    states.put(account, newState);
+    return wasOnline != newState.online;
+  }
+
+  // 主线程执行，移除过期的在线状态
+  private static void expire() {
+    long now = elapsedRealtime();
+    Set<String> changed = new HashSet<>();
+    synchronized (pendingStates) {
+      Iterator<Map.Entry<String, OnlineState>> iterator = states.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, OnlineState> entry = iterator.next();
+        OnlineState state = entry.getValue();
+        if (isExpired(entry.getKey(), state, now)) {
+          iterator.remove();
+          if (state.online) {
+            changed.add(entry.getKey());
+          }
+        }
+      }
+    }
+    scheduleExpire(now);
+    notifyChanged(changed);
+  }
+
+  // 在最早过期的在线状态到期时检查，不会过期的状态见 canExpire
+  private static void scheduleExpire(long now) {
+    long nextExpire = Long.MAX_VALUE;
+    for (Map.Entry<String, OnlineState> entry : states.entrySet()) {
+      if (canExpire(entry.getKey(), entry.getValue())) {
+        nextExpire = Math.min(nextExpire, entry.getValue().receiveTime + onlineTtl);
+      }
+    }
+    mainHandler.removeCallbacks(expireRunnable);
+    if (nextExpire != Long.MAX_VALUE) {
+      mainHandler.postDelayed(expireRunnable, Math.max(0, nextExpire - now));
+    }
+  }
+
+  // 主线程执行，按上报合并订阅窗口并订阅或取消订阅差异部分
+  private static void applyWindow() {
+    Set<String> window = new LinkedHashSet<>();
+    for (Set<String> accounts : visibleAccounts.values()) {
+      for (String account : accounts) {
+        if (window.size() >= MAX_SUBSCRIBE_SIZE) {
+          break;
+        }
+        window.add(account);
+      }
+    }
+    Set<String> added = new HashSet<>(window);
+    added.removeAll(subscribedAccounts);
+    Set<String> removed = new HashSet<>(subscribedAccounts);
+    removed.removeAll(window);
+    if (added.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+    subscribedAccounts.removeAll(removed);
+    subscribedAccounts.addAll(added);
+    SubscribeDelegate delegate = subscribeDelegate;
+    if (delegate == null) {
+      scheduleExpire(elapsedRealtime());
+      return;
+    }
+    if (!removed.isEmpty()) {
+      delegate.unsubscribe(removed);
+      Set<String> changed = new HashSet<>();
+      synchronized (pendingStates) {
+        for (String account : removed) {
+          OnlineState state = states.remove(account);
+          if (state != null && state.online) {
+            changed.add(account);
+          }
+        }
+      }
+      notifyChanged(changed);
+    }
+    if (!added.isEmpty()) {
+      delegate.subscribe(added);
+    }
+    scheduleExpire(elapsedRealtime());
+  }
+
+  // 只有设置了订阅代理时，订阅窗口外的非本地状态会过期；订阅中的账号由订阅推送更新
+  private static boolean canExpire(String account, OnlineState state) {
+    return !state.local && subscribeDelegate != null && !subscribedAccounts.contains(account);
+  }
+
+  private static boolean isExpired(String account, OnlineState state, long now) {
+    return canExpire(account, state) && now - state.receiveTime >= onlineTtl;
+  }
+
+  private static long elapsedRealtime() {
+    return clock.getAsLong();
+  }
+
+  private static void notifyChanged(Set<String> changed) {
+    if (changed.isEmpty()) {
+      return;
+    }
+    Set<String> accounts = Collections.unmodifiableSet(changed);
+    for (OnlineStateListener listener : listeners) {
+      listener.onOnlineStateChanged(accounts);
+    }
+  }
+
+  private static void runOnMain(Runnable runnable) {
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      runnable.run();
+    } else {
+      mainHandler.post(runnable);
+    }
   }
 }
@@ -5,6 +5,7 @@
 package com.netease.yunxin.kit.teamkit.ui.viewmodel;
 
 import android.text.TextUtils;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.MutableLiveData;
 import com.netease.nimlib.sdk.v2.team.enums.V2NIMTeamType;
@@ -14,6 +15,7 @@ import com.netease.yunxin.kit.chatkit.impl.TeamListenerImpl;
 import com.netease.yunxin.kit.chatkit.model.TeamMemberWithUserInfo;
 import com.netease.yunxin.kit.chatkit.model.TeamWithCurrentMember;
 import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
+import com.netease.yunxin.kit.chatkit.ui.cache.TeamMemberPageListener;
 import com.netease.yunxin.kit.chatkit.ui.cache.TeamUserChangedListener;
 import com.netease.yunxin.kit.chatkit.ui.cache.TeamUserManager;
 import com.netease.yunxin.kit.chatkit.utils.ErrorUtils;
@@ -40,6 +42,17 @@ public class TeamBaseViewModel extends BaseViewModel {
   protected final MutableLiveData<FetchResult<List<TeamMemberWithUserInfo>>>
       teamMemberWithUserData = new MutableLiveData<>();
 
+  // 分页加载时第一页之后的群成员，类型为Add
+  protected final MutableLiveData<FetchResult<List<TeamMemberWithUserInfo>>> teamMemberPageData =
+      new MutableLiveData<>();
+
+  // 分页加载进度，数据为已加载数量，加载中为Loading，全部加载后为Success
+  protected final MutableLiveData<FetchResult<Integer>> teamMemberProgressData =
+      new MutableLiveData<>();
+
+  // 本次分页加载是否已收到第一页
+  private boolean pageReceived;
+
   // 获取群成员信息列表
   protected final MutableLiveData<FetchResult<List<String>>> teamMemberData =
       new MutableLiveData<>();
@@ -60,6 +73,14 @@ public class TeamBaseViewModel extends BaseViewModel {
     return teamMemberWithUserData;
   }
 
+  public MutableLiveData<FetchResult<List<TeamMemberWithUserInfo>>> getTeamMemberPageData() {
+    return teamMemberPageData;
+  }
+
+  public MutableLiveData<FetchResult<Integer>> getTeamMemberProgressData() {
+    return teamMemberProgressData;
+  }
+
   public MutableLiveData<FetchResult<List<String>>> getTeamMemberListData() {
     return teamMemberData;
   }
@@ -151,6 +172,47 @@ public class TeamBaseViewModel extends BaseViewModel {
             });
   }
 
+  /**
+   * 分页加载群成员，第一页通过 {@link #getTeamMemberListWithUserData()} 以Init类型通知，之后的页通过 {@link
+   * #getTeamMemberPageData()} 通知，进度通过 {@link #getTeamMemberProgressData()} 通知。已全部加载时与 {@link
+   * #loadTeamMember()} 相同
+   */
+  public void loadTeamMemberPaged() {
+    ALog.d(LIB_TAG, TAG, "loadTeamMemberPaged");
+    TeamUserManager.getInstance().removeTeamMemberPageListener(teamMemberPageListener);
+    pageReceived = false;
+    TeamUserManager.getInstance().getAllTeamMembersPaged(true, teamMemberPageListener);
+  }
+
+  private final TeamMemberPageListener teamMemberPageListener =
+      new TeamMemberPageListener() {
+        @Override
+        public void onPage(
+            @NonNull List<TeamMemberWithUserInfo> page, int loadedCount, boolean finished) {
+          ALog.d(LIB_TAG, TAG, "loadTeamMemberPaged,onPage:" + page.size() + "," + loadedCount);
+          if (!pageReceived) {
+            pageReceived = true;
+            FetchResult<List<TeamMemberWithUserInfo>> fetchResult =
+                new FetchResult<>(LoadStatus.Success);
+            fetchResult.setData(page);
+            teamMemberWithUserData.setValue(fetchResult);
+          } else if (!page.isEmpty()) {
+            teamMemberPageData.setValue(new FetchResult<>(FetchResult.FetchType.Add, page));
+          }
+          teamMemberProgressData.setValue(
+              new FetchResult<>(finished ? LoadStatus.Success : LoadStatus.Loading, loadedCount));
+        }
+
+        @Override
+        public void onError(int errorCode, String errorMsg) {
+          ALog.d(LIB_TAG, TAG, "loadTeamMemberPaged,onFailed:" + errorCode);
+          if (!pageReceived) {
+            teamMemberWithUserData.setValue(new FetchResult<>(errorCode, errorMsg));
+          }
+          teamMemberProgressData.setValue(new FetchResult<>(errorCode, errorMsg));
+        }
+      };
+
   private final TeamUserChangedListener teamUserChangedListener =
       new TeamUserChangedListener() {
         @Override
@@ -269,6 +331,7 @@ public class TeamBaseViewModel extends BaseViewModel {
     if (!TextUtils.isEmpty(teamId)) {
       TeamRepo.removeTeamListener(teamListener);
       TeamUserManager.getInstance().removeMemberChangedListener(teamUserChangedListener);
+      TeamUserManager.getInstance().removeTeamMemberPageListener(teamMemberPageListener);
     }
   }
 }
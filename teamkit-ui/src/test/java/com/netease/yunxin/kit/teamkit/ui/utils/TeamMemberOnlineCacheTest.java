@@ -0,0 +1,65 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.teamkit.ui.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** TeamMemberOnlineCache 本地设置的在线状态不受有效时间影响 */
+public class TeamMemberOnlineCacheTest {
+
+  private static final long TTL = 1000;
+
+  private long now;
+
+  @Before
+  public void setUp() {
+    now = 10000;
+    TeamMemberOnlineCache.clock = () -> now;
+    TeamMemberOnlineCache.setOnlineTtl(TTL);
+  }
+
+  @After
+  public void tearDown() {
+    TeamMemberOnlineCache.setSubscribeDelegate(null);
+    TeamMemberOnlineCache.clear();
+    TeamMemberOnlineCache.setOnlineTtl(TeamMemberOnlineCache.DEFAULT_ONLINE_TTL_MILLIS);
+    TeamMemberOnlineCache.clock = SystemClock::elapsedRealtime;
+  }
+
+  @Test
+  public void addOnlineAccount_staysOnlineAfterTtl() {
+    TeamMemberOnlineCache.addOnlineAccount("account");
+    now += TTL * 10;
+    assertTrue(TeamMemberOnlineCache.isOnline("account"));
+    TeamMemberOnlineCache.removeOnlineAccount("account");
+    assertFalse(TeamMemberOnlineCache.isOnline("account"));
+  }
+
+  @Test
+  public void addOnlineAccount_staysOnlineAfterTtlWithDelegate() {
+    TeamMemberOnlineCache.setSubscribeDelegate(new EmptyDelegate());
+    // 不在订阅窗口内
+    TeamMemberOnlineCache.addOnlineAccount("account");
+    now += TTL * 10;
+    assertTrue(TeamMemberOnlineCache.isOnline("account"));
+  }
+
+  private static class EmptyDelegate implements TeamMemberOnlineCache.SubscribeDelegate {
+
+    @Override
+    public void subscribe(@NonNull Set<String> accounts) {}
+
+    @Override
+    public void unsubscribe(@NonNull Set<String> accounts) {}
+  }
+}